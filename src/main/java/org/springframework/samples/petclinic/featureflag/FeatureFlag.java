@@ -25,6 +25,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
 @Entity
@@ -45,6 +48,32 @@ public class FeatureFlag {
 	@Column(length = 500)
 	private String description;
 
+	@Column(name = "rollout_percentage")
+	@Min(0)
+	@Max(100)
+	private Integer rolloutPercentage;
+
+	@Column(name = "targeting_rules", length = 1000)
+	private String targetingRules;
+
+	@Column(nullable = false)
+	private Boolean shadow = false;
+
+	@Column(name = "active_from")
+	private LocalDateTime activeFrom;
+
+	@Column(name = "active_until")
+	private LocalDateTime activeUntil;
+
+	@Column(name = "window_inverted", nullable = false)
+	private Boolean windowInverted = false;
+
+	@Column(name = "window_daily", nullable = false)
+	private Boolean windowDaily = false;
+
+	@Version
+	private Long version;
+
 	@Column(name = "created_at")
 	private LocalDateTime createdAt;
 
@@ -94,6 +123,107 @@ public class FeatureFlag {
 		this.description = description;
 	}
 
+	/**
+	 * Return the percentage of owners the flag is enabled for, based on a stable hash of
+	 * the owner id. {@code null} means the flag applies to everyone.
+	 */
+	public Integer getRolloutPercentage() {
+		return rolloutPercentage;
+	}
+
+	public void setRolloutPercentage(Integer rolloutPercentage) {
+		this.rolloutPercentage = rolloutPercentage;
+	}
+
+	/**
+	 * Return the rules restricting who the flag is enabled for, in the form
+	 * {@code attribute=value,value;attribute=value}. Supported attributes are
+	 * {@code ownerId}, {@code city} and {@code petType}.
+	 */
+	public String getTargetingRules() {
+		return targetingRules;
+	}
+
+	public void setTargetingRules(String targetingRules) {
+		this.targetingRules = targetingRules;
+	}
+
+	/**
+	 * Return whether the guarded alternative runs in the shadow of the primary path while
+	 * the flag is disabled, see {@link FeatureFlagShadowRunner}.
+	 */
+	public Boolean getShadow() {
+		return shadow;
+	}
+
+	public void setShadow(Boolean shadow) {
+		this.shadow = shadow;
+	}
+
+	/**
+	 * Return the time from which the flag is in effect. Before that time the flag is
+	 * evaluated as disabled, whatever its enabled state. {@code null} means the flag is
+	 * in effect from the start.
+	 */
+	public LocalDateTime getActiveFrom() {
+		return activeFrom;
+	}
+
+	public void setActiveFrom(LocalDateTime activeFrom) {
+		this.activeFrom = activeFrom;
+	}
+
+	/**
+	 * Return the time at which the flag stops being in effect, exclusive. From that time
+	 * on the flag is evaluated as disabled. {@code null} means the flag does not expire.
+	 */
+	public LocalDateTime getActiveUntil() {
+		return activeUntil;
+	}
+
+	public void setActiveUntil(LocalDateTime activeUntil) {
+		this.activeUntil = activeUntil;
+	}
+
+	/**
+	 * Return whether the activation window is inverted: the flag is then evaluated as
+	 * disabled inside the window and is in effect outside of it, for example to pause a
+	 * feature during maintenance.
+	 */
+	public Boolean getWindowInverted() {
+		return windowInverted;
+	}
+
+	public void setWindowInverted(Boolean windowInverted) {
+		this.windowInverted = windowInverted;
+	}
+
+	/**
+	 * Return whether the activation window repeats every day. The window then opens each
+	 * day at the time of day of {@link #getActiveFrom() active from}, starting on that
+	 * day, and stays open for as long as the first window does, which must be less than a
+	 * day.
+	 */
+	public Boolean getWindowDaily() {
+		return windowDaily;
+	}
+
+	public void setWindowDaily(Boolean windowDaily) {
+		this.windowDaily = windowDaily;
+	}
+
+	/**
+	 * Return the number of times the flag was changed. An update carrying a version is
+	 * only applied if the flag has not been changed since.
+	 */
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	public LocalDateTime getCreatedAt() {
 		return createdAt;
 	}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Flips flags in and out of their activation window at the window boundaries. The next
+ * boundary of every flag is kept on a {@link TimerWheel}; when it is reached the flags
+ * are re-evaluated for that time and a new snapshot is published, so flag checks keep
+ * being plain reads. A daily window always has a next boundary, so its flag stays on the
+ * wheel and is flipped every day.
+ * <p>
+ * Boundaries are rescheduled whenever the snapshot changes. Every node runs its own wheel
+ * against its own snapshot and nothing is written to the store, so nodes with
+ * synchronized clocks flip a flag at the same time without coordinating.
+ */
+@Component
+class FeatureFlagActivationScheduler implements DisposableBean {
+
+	private final FeatureFlagService featureFlagService;
+
+	private final TimerWheel wheel;
+
+	private final Duration tick;
+
+	private final Map<String, Transition> scheduled = new HashMap<>();
+
+	private long version = -1;
+
+	@Autowired
+	FeatureFlagActivationScheduler(FeatureFlagService featureFlagService,
+			@Value("${petclinic.feature-flags.schedule.tick:100ms}") Duration tick,
+			@Value("${petclinic.feature-flags.schedule.wheel-size:512}") int wheelSize) {
+		this(featureFlagService, new TimerWheel(tick, wheelSize, threadFactory()), tick);
+	}
+
+	FeatureFlagActivationScheduler(FeatureFlagService featureFlagService, TimerWheel wheel, Duration tick) {
+		this.featureFlagService = featureFlagService;
+		this.wheel = wheel;
+		this.tick = tick;
+	}
+
+	private static CustomizableThreadFactory threadFactory() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("flag-timer-");
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	void start() {
+		reschedule();
+	}
+
+	@EventListener
+	void onFlagsChanged(FeatureFlagsChangedEvent event) {
+		reschedule();
+	}
+
+	/**
+	 * Schedule the next boundary of every flag in the current snapshot, keeping the
+	 * boundaries that are already scheduled and cancelling those that no longer apply.
+	 */
+	void reschedule() {
+		FeatureFlagSnapshot snapshot = this.featureFlagService.snapshot();
+		Map<String, LocalDateTime> transitions = snapshot.nextTransitions();
+		synchronized (this.scheduled) {
+			if (snapshot.version() < this.version) {
+				return;
+			}
+			this.version = snapshot.version();
+			this.scheduled.entrySet().removeIf((entry) -> {
+				if (entry.getValue().time().equals(transitions.get(entry.getKey()))) {
+					return false;
+				}
+				entry.getValue().timeout().cancel();
+				return true;
+			});
+			LocalDateTime now = LocalDateTime.now();
+			transitions.forEach((name, time) -> this.scheduled.computeIfAbsent(name, (key) -> new Transition(time,
+					this.wheel.schedule(Duration.between(now, time), () -> fire(key, time)))));
+		}
+	}
+
+	/**
+	 * Return the number of flags with a scheduled boundary.
+	 */
+	int getScheduledCount() {
+		synchronized (this.scheduled) {
+			return this.scheduled.size();
+		}
+	}
+
+	private void fire(String name, LocalDateTime time) {
+		synchronized (this.scheduled) {
+			Transition transition = this.scheduled.get(name);
+			if (transition != null && transition.time().equals(time)) {
+				this.scheduled.remove(name);
+			}
+		}
+		// The wheel measures elapsed time, the boundary is on the wall clock; only act on
+		// it if the two agree to within a tick, otherwise schedule it again
+		if (!LocalDateTime.now().plus(this.tick).isBefore(time)) {
+			this.featureFlagService.activate(time);
+		}
+		reschedule();
+	}
+
+	@Override
+	public void destroy() {
+		this.wheel.close();
+	}
+
+	private record Transition(LocalDateTime time, TimerWheel.Timeout timeout) {
+
+	}
+
+}
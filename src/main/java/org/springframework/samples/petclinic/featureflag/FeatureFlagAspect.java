@@ -15,48 +15,105 @@
  */
 package org.springframework.samples.petclinic.featureflag;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
+/**
+ * Enforces {@link FeatureFlagRequired} on bean methods.
+ * <p>
+ * The guard of every annotated bean method is resolved once all singletons exist, so an
+ * advised call only looks up its precomputed {@link FeatureFlagGuard} and, for untargeted
+ * flags, reads a single volatile field. The time spent in these checks is published as
+ * the {@code petclinic.featureflags.guard} metric.
+ * <p>
+ * This is the default enforcement, see {@link FeatureFlagInterceptorConfiguration} for
+ * the alternative without AspectJ.
+ */
 @Aspect
 @Component
-class FeatureFlagAspect {
+@ConditionalOnProperty(name = FeatureFlagInterceptorConfiguration.ENFORCEMENT, havingValue = "aspect",
+		matchIfMissing = true)
+class FeatureFlagAspect implements SmartInitializingSingleton {
 
 	private final FeatureFlagService featureFlagService;
 
-	FeatureFlagAspect(FeatureFlagService featureFlagService) {
+	private final ListableBeanFactory beanFactory;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	private final Map<Method, FeatureFlagGuard> guards = new ConcurrentHashMap<>();
+
+	FeatureFlagAspect(FeatureFlagService featureFlagService, ListableBeanFactory beanFactory,
+			ObjectProvider<MeterRegistry> meterRegistry) {
 		this.featureFlagService = featureFlagService;
+		this.beanFactory = beanFactory;
+		this.meterRegistry = meterRegistry;
 	}
 
-	@Around("@annotation(featureFlagRequired)")
-	public Object checkFeatureFlag(ProceedingJoinPoint joinPoint, FeatureFlagRequired featureFlagRequired)
-			throws Throwable {
-		String flagName = featureFlagRequired.value();
-		boolean isEnabled = featureFlagService.isEnabled(flagName);
-
-		if (!isEnabled) {
-			if (featureFlagRequired.throwException()) {
-				throw new FeatureFlagDisabledException("Feature flag '" + flagName + "' is disabled");
-			}
-			else {
-				return getDefaultReturnValue(joinPoint);
+	@Override
+	public void afterSingletonsInstantiated() {
+		for (String beanName : this.beanFactory.getBeanDefinitionNames()) {
+			Class<?> beanType = this.beanFactory.getType(beanName, false);
+			if (beanType != null && AnnotationUtils.isCandidateClass(beanType, FeatureFlagRequired.class)) {
+				Class<?> userClass = ClassUtils.getUserClass(beanType);
+				ReflectionUtils.doWithMethods(userClass, (method) -> guard(method, userClass),
+						ReflectionUtils.USER_DECLARED_METHODS);
 			}
 		}
-
-		return joinPoint.proceed();
 	}
 
-	private Object getDefaultReturnValue(ProceedingJoinPoint joinPoint) {
-		MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-		Class<?> returnType = signature.getReturnType();
+	@Around("@annotation(org.springframework.samples.petclinic.featureflag.FeatureFlagRequired) "
+			+ "|| @within(org.springframework.samples.petclinic.featureflag.FeatureFlagRequired)")
+	public Object checkFeatureFlag(ProceedingJoinPoint joinPoint) throws Throwable {
+		long start = System.nanoTime();
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		FeatureFlagGuard guard = this.guards.get(method);
+		if (guard == null) {
+			guard = guard(method, AopUtils.getTargetClass(joinPoint.getTarget()));
+		}
+		boolean enabled = guard.isEnabled(joinPoint.getArgs());
+		guard.recordCheck(System.nanoTime() - start);
+		if (enabled) {
+			return joinPoint.proceed();
+		}
+		if (guard.isThrowException()) {
+			throw guard.disabled();
+		}
+		return guard.getDefaultValue();
+	}
 
-		if (returnType == boolean.class || returnType == Boolean.class) {
-			return false;
+	private FeatureFlagGuard guard(Method method, Class<?> targetClass) {
+		FeatureFlagGuard existing = this.guards.get(method);
+		if (existing != null) {
+			return existing;
+		}
+		FeatureFlagGuard guard = FeatureFlagGuard.resolve(method, targetClass, this.featureFlagService);
+		if (guard == null) {
+			return null;
+		}
+		existing = this.guards.putIfAbsent(method, guard);
+		if (existing != null) {
+			return existing;
 		}
-		return null;
+		this.meterRegistry.ifAvailable(guard::bindTo);
+		return guard;
 	}
 
 }
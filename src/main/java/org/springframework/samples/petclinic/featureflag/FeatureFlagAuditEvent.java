@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the feature flag audit trail, see {@link FeatureFlagAuditLog}.
+ *
+ * @param time when the event happened
+ * @param kind whether a flag was changed or evaluated
+ * @param flagName the name of the flag
+ * @param action what happened, such as {@code toggled} for a change or {@code denied} for
+ * an evaluation
+ * @param actor who caused the event: the authenticated user or client address of the
+ * request, or {@code system} outside of a request
+ * @param detail the new state of a changed flag, or what was guarded by an evaluated
+ * flag; may be {@code null}
+ */
+public record FeatureFlagAuditEvent(LocalDateTime time, Kind kind, String flagName, String action, String actor,
+		String detail) {
+
+	/**
+	 * The kinds of audited events.
+	 */
+	public enum Kind {
+
+		/**
+		 * A flag was created, changed or deleted.
+		 */
+		CHANGE,
+
+		/**
+		 * A guarded method or handler checked a flag.
+		 */
+		EVALUATION
+
+	}
+
+}
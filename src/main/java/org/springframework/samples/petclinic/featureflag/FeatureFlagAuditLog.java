@@ -0,0 +1,221 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Audit trail of flag changes and guarded flag evaluations.
+ * <p>
+ * Recording an event never blocks and never touches the database: the event is offered to
+ * a bounded lock-free {@link RingBuffer} and the caller moves on. The buffer is drained
+ * periodically, in batches, to every {@link FeatureFlagAuditSink}: the
+ * {@code feature_flag_audit} table and, when configured, a rolling local file. When the
+ * sinks cannot keep up and the buffer is full, further events are dropped and counted
+ * rather than holding up requests.
+ * <p>
+ * Changes are always recorded. Evaluations are sampled, with separate rates for denied
+ * and allowed ones, as every guarded request evaluates a flag.
+ * <p>
+ * Drops, written and failed events and the buffer occupancy are published as the
+ * {@code petclinic.featureflags.audit.*} metrics.
+ */
+@Component
+public class FeatureFlagAuditLog implements MeterBinder, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(FeatureFlagAuditLog.class);
+
+	private static final String SYSTEM = "system";
+
+	private final List<FeatureFlagAuditSink> sinks;
+
+	private final RingBuffer<FeatureFlagAuditEvent> buffer;
+
+	private final int batchSize;
+
+	private final double deniedSampleRate;
+
+	private final double allowedSampleRate;
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder written = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private long reportedDrops;
+
+	@Autowired
+	FeatureFlagAuditLog(ObjectProvider<FeatureFlagAuditSink> sinks,
+			@Value("${petclinic.feature-flags.audit.buffer-size:8192}") int bufferSize,
+			@Value("${petclinic.feature-flags.audit.batch-size:256}") int batchSize,
+			@Value("${petclinic.feature-flags.audit.denied-sample-rate:1.0}") double deniedSampleRate,
+			@Value("${petclinic.feature-flags.audit.allowed-sample-rate:0.0}") double allowedSampleRate) {
+		this(sinks.orderedStream().toList(), bufferSize, batchSize, deniedSampleRate, allowedSampleRate);
+	}
+
+	FeatureFlagAuditLog(List<FeatureFlagAuditSink> sinks, int bufferSize, int batchSize, double deniedSampleRate,
+			double allowedSampleRate) {
+		this.sinks = List.copyOf(sinks);
+		this.buffer = new RingBuffer<>(bufferSize);
+		this.batchSize = batchSize;
+		this.deniedSampleRate = deniedSampleRate;
+		this.allowedSampleRate = allowedSampleRate;
+	}
+
+	/**
+	 * Record a change to a flag, attributed to the current request if there is one.
+	 * @param flagName the name of the flag
+	 * @param action what was done, such as {@code created} or {@code toggled}
+	 * @param detail the resulting state or the reason of the change, may be {@code null}
+	 */
+	public void recordChange(String flagName, String action, String detail) {
+		record(FeatureFlagAuditEvent.Kind.CHANGE, flagName, action, detail);
+	}
+
+	/**
+	 * Record, subject to sampling, that a guard evaluated a flag.
+	 * @param flagName the name of the flag
+	 * @param enabled whether the guarded code was allowed to run
+	 * @param guarded what the flag guards, such as a method name
+	 */
+	public void recordEvaluation(String flagName, boolean enabled, String guarded) {
+		if (isSampled(enabled ? this.allowedSampleRate : this.deniedSampleRate)) {
+			HttpServletRequest request = currentRequest();
+			String detail = (request != null) ? guarded + " " + request.getMethod() + " " + request.getRequestURI()
+					: guarded;
+			record(FeatureFlagAuditEvent.Kind.EVALUATION, flagName, enabled ? "allowed" : "denied", detail);
+		}
+	}
+
+	private void record(FeatureFlagAuditEvent.Kind kind, String flagName, String action, String detail) {
+		if (this.sinks.isEmpty()) {
+			return;
+		}
+		FeatureFlagAuditEvent event = new FeatureFlagAuditEvent(LocalDateTime.now(), kind, flagName, action, actor(),
+				detail);
+		if (!this.buffer.offer(event)) {
+			this.dropped.increment();
+		}
+	}
+
+	/**
+	 * Write the buffered events to every sink, a batch at a time. A sink failing to write
+	 * a batch loses that batch, the others still receive it.
+	 */
+	@Scheduled(fixedDelayString = "${petclinic.feature-flags.audit.flush-interval:1s}")
+	public synchronized void flush() {
+		List<FeatureFlagAuditEvent> batch = new ArrayList<>(this.batchSize);
+		FeatureFlagAuditEvent event;
+		do {
+			event = this.buffer.poll();
+			if (event != null) {
+				batch.add(event);
+			}
+			if (batch.size() == this.batchSize || (event == null && !batch.isEmpty())) {
+				write(batch);
+				batch.clear();
+			}
+		}
+		while (event != null);
+		long drops = this.dropped.sum();
+		if (drops > this.reportedDrops) {
+			logger.warn("Dropped " + (drops - this.reportedDrops) + " feature flag audit events, the buffer of "
+					+ this.buffer.capacity() + " events was full");
+			this.reportedDrops = drops;
+		}
+	}
+
+	private void write(List<FeatureFlagAuditEvent> batch) {
+		for (FeatureFlagAuditSink sink : this.sinks) {
+			try {
+				sink.write(batch);
+				this.written.add(batch.size());
+			}
+			catch (IOException | RuntimeException ex) {
+				this.failed.add(batch.size());
+				logger.warn("Failed to write " + batch.size() + " feature flag audit events to " + sink, ex);
+			}
+		}
+	}
+
+	long getDroppedCount() {
+		return this.dropped.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("petclinic.featureflags.audit.dropped", this.dropped, LongAdder::sum)
+			.description("Number of audit events dropped because the audit buffer was full")
+			.register(registry);
+		FunctionCounter.builder("petclinic.featureflags.audit.written", this.written, LongAdder::sum)
+			.description("Number of audit events written, counted once per sink")
+			.register(registry);
+		FunctionCounter.builder("petclinic.featureflags.audit.failed", this.failed, LongAdder::sum)
+			.description("Number of audit events a sink failed to write")
+			.register(registry);
+		Gauge.builder("petclinic.featureflags.audit.buffered", this.buffer, RingBuffer::size)
+			.description("Number of audit events waiting to be written")
+			.register(registry);
+	}
+
+	@Override
+	public void destroy() {
+		flush();
+	}
+
+	private static boolean isSampled(double rate) {
+		return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+	}
+
+	private static String actor() {
+		HttpServletRequest request = currentRequest();
+		if (request == null) {
+			return SYSTEM;
+		}
+		return (request.getRemoteUser() != null) ? request.getRemoteUser() : request.getRemoteAddr();
+	}
+
+	private static HttpServletRequest currentRequest() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return (attributes instanceof ServletRequestAttributes servletAttributes) ? servletAttributes.getRequest()
+				: null;
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the audit events collected by {@link FeatureFlagAuditLog}. Sinks are
+ * only called from the audit log's flush, one batch at a time.
+ */
+interface FeatureFlagAuditSink {
+
+	/**
+	 * Write a batch of events, oldest first.
+	 * @throws IOException if the events could not be written
+	 */
+	void write(List<FeatureFlagAuditEvent> events) throws IOException;
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Latency and error budgets of the paths guarded by feature flags, keyed by flag name. A
+ * flag whose guarded path exceeds its budget is switched off by the
+ * {@link FeatureFlagKillSwitch}.
+ *
+ * @param budgets the budget of each flag
+ */
+@ConfigurationProperties("petclinic.feature-flags")
+record FeatureFlagBudgets(@DefaultValue Map<String, Budget> budgets) {
+
+	/**
+	 * The budget of a single flag. A window of calls breaches the budget when its latency
+	 * percentile is above {@code latency} or its share of failed calls is above
+	 * {@code errorRate}; it only counts as healthy again once both are below the budget
+	 * scaled by {@code recovery}.
+	 *
+	 * @param latency the highest acceptable latency at the given percentile, or
+	 * {@code null} to only watch errors
+	 * @param percentile the percentile compared with {@code latency}
+	 * @param errorRate the highest acceptable share of failed calls, or {@code null} to
+	 * only watch latency
+	 * @param minSamples the number of calls a window needs before it is judged
+	 * @param cooldown how long the flag stays switched off after its first breach
+	 * @param maxCooldown the cooldown limit, as it doubles with every repeated breach
+	 * @param recovery the share of the budget a window must stay under to reset the
+	 * cooldown
+	 */
+	record Budget(Duration latency, @DefaultValue("0.99") double percentile, Double errorRate,
+			@DefaultValue("20") int minSamples, @DefaultValue("1m") Duration cooldown,
+			@DefaultValue("15m") Duration maxCooldown, @DefaultValue("0.8") double recovery) {
+
+		/**
+		 * Describe how the given window breaches this budget.
+		 * @return the reason, or {@code null} if the window is within budget
+		 */
+		String breach(FeatureFlagKillSwitch.Window window) {
+			long percentileNanos = window.percentile(this.percentile);
+			if (this.latency != null && percentileNanos > this.latency.toNanos()) {
+				return "p" + Math.round(this.percentile * 100) + " latency of " + percentileNanos / 1_000_000
+						+ "ms over " + window.count() + " calls exceeds the budget of " + this.latency.toMillis()
+						+ "ms";
+			}
+			if (this.errorRate != null && window.errorRate() > this.errorRate) {
+				return "error rate of " + window.errorRate() + " over " + window.count()
+						+ " calls exceeds the budget of " + this.errorRate;
+			}
+			return null;
+		}
+
+		boolean isHealthy(FeatureFlagKillSwitch.Window window) {
+			return (this.latency == null || window.percentile(this.percentile) < this.latency.toNanos() * this.recovery)
+					&& (this.errorRate == null || window.errorRate() < this.errorRate * this.recovery);
+		}
+
+	}
+
+}
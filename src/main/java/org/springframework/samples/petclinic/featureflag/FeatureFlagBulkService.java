@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports and exports whole flag sets, for moving flags between environments.
+ * <p>
+ * An import reads the existing flag ids once, then hands all new and existing flags to
+ * the {@link FeatureFlagStore} in one atomic write, which the JPA store turns into one
+ * batched insert and one batched update. Both run in a single transaction. The flag
+ * snapshot is rebuilt once, after the write. Invalid definitions are rejected
+ * individually and do not prevent the rest from being imported. A flag created by someone
+ * else between the read and the write rolls the whole import back, and every flag of it
+ * is reported as rejected. Every imported flag is recorded in the
+ * {@link FeatureFlagAuditLog}.
+ */
+@Service
+class FeatureFlagBulkService {
+
+	private final FeatureFlagService featureFlagService;
+
+	private final FeatureFlagStore store;
+
+	private final TransactionTemplate transactionTemplate;
+
+	FeatureFlagBulkService(FeatureFlagService featureFlagService, FeatureFlagStore store,
+			PlatformTransactionManager transactionManager) {
+		this.featureFlagService = featureFlagService;
+		this.store = store;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Export every flag, ordered by name.
+	 */
+	public List<FeatureFlagDefinition> exportFlags() {
+		return this.store.findAll()
+			.stream()
+			.sorted(Comparator.comparing(FeatureFlag::getName))
+			.map(FeatureFlagDefinition::of)
+			.toList();
+	}
+
+	/**
+	 * Create or update the given flags, matched by name.
+	 * @param definitions the flags to import
+	 * @return the outcome for each definition, in the order given
+	 */
+	public List<FeatureFlagImportResult> importFlags(List<FeatureFlagDefinition> definitions) {
+		return this.transactionTemplate.execute((status) -> importFlags(definitions, status));
+	}
+
+	private List<FeatureFlagImportResult> importFlags(List<FeatureFlagDefinition> definitions,
+			TransactionStatus status) {
+		Map<String, Integer> ids = this.store.findIds();
+		List<FeatureFlagImportResult> results = new ArrayList<>(definitions.size());
+		List<FeatureFlagDefinition> created = new ArrayList<>();
+		Map<Integer, FeatureFlagDefinition> updated = new LinkedHashMap<>();
+		Set<String> seen = new HashSet<>();
+		for (FeatureFlagDefinition definition : definitions) {
+			String problem = validate(definition);
+			if (problem == null && !seen.add(definition.name())) {
+				problem = "Duplicate flag in import";
+			}
+			if (problem != null) {
+				results.add(FeatureFlagImportResult.rejected((definition != null) ? definition.name() : null, problem));
+				continue;
+			}
+			Integer id = ids.get(definition.name());
+			if (id == null) {
+				created.add(definition);
+				results
+					.add(new FeatureFlagImportResult(definition.name(), FeatureFlagImportResult.Outcome.CREATED, null));
+			}
+			else {
+				updated.put(id, definition);
+				results
+					.add(new FeatureFlagImportResult(definition.name(), FeatureFlagImportResult.Outcome.UPDATED, null));
+			}
+		}
+		if (!created.isEmpty() || !updated.isEmpty()) {
+			try {
+				this.store.saveAll(created, updated);
+			}
+			catch (DuplicateKeyException ex) {
+				status.setRollbackOnly();
+				return results.stream()
+					.map((result) -> (result.outcome() != FeatureFlagImportResult.Outcome.REJECTED)
+							? FeatureFlagImportResult.rejected(result.name(),
+									"A flag was created concurrently, nothing was imported")
+							: result)
+					.toList();
+			}
+			this.featureFlagService.refreshAfterCommit();
+			created.forEach((definition) -> audit(definition, "created"));
+			updated.values().forEach((definition) -> audit(definition, "imported"));
+		}
+		return results;
+	}
+
+	/**
+	 * Create the given flags at once, without checking whether they exist. Meant for
+	 * seeding flags known to be missing.
+	 * @param definitions the flags to create
+	 * @throws org.springframework.dao.DataIntegrityViolationException if any of the flags
+	 * exists already, in which case none are created
+	 */
+	public void createAll(Collection<FeatureFlagDefinition> definitions) {
+		this.store.saveAll(definitions, Map.of());
+		this.featureFlagService.refreshAfterCommit();
+		definitions.forEach((definition) -> audit(definition, "created"));
+	}
+
+	private void audit(FeatureFlagDefinition definition, String action) {
+		this.featureFlagService.audit(definition.name(), action,
+				"enabled=" + definition.enabled() + ", rollout=" + definition.rolloutPercentage());
+	}
+
+	private static String validate(FeatureFlagDefinition definition) {
+		if (definition == null || definition.name() == null || definition.name().isBlank()) {
+			return "Name is required";
+		}
+		if (definition.name().length() > 255 || length(definition.description()) > 500
+				|| length(definition.targetingRules()) > 1000) {
+			return "Name, description or targeting rules are too long";
+		}
+		Integer rolloutPercentage = definition.rolloutPercentage();
+		if (rolloutPercentage != null && (rolloutPercentage < 0 || rolloutPercentage > 100)) {
+			return "Rollout percentage must be between 0 and 100";
+		}
+		try {
+			TargetingRules.parse(definition.targetingRules());
+			FeatureFlagService.checkActivationWindow(definition.activeFrom(), definition.activeUntil(),
+					Boolean.TRUE.equals(definition.windowDaily()));
+			return null;
+		}
+		catch (IllegalArgumentException ex) {
+			return ex.getMessage();
+		}
+	}
+
+	private static int length(String value) {
+		return (value != null) ? value.length() : 0;
+	}
+
+}
@@ -15,9 +15,19 @@
  */
 package org.springframework.samples.petclinic.featureflag;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,39 +36,209 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import jakarta.validation.Valid;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
 
+/**
+ * REST API for managing feature flags.
+ * <p>
+ * Every read is tagged with the version of the flag set as a strong ETag. The version
+ * increases with each change to any flag and is known without touching the database, so a
+ * client polling with {@code If-None-Match} is answered with a 304 and no query until
+ * something changes.
+ * <p>
+ * Listing flags reads them from the store a bounded batch at a time. A listing without a
+ * limit streams every matching flag as one JSON array; with a limit it returns one page
+ * and links to the next one with an opaque cursor in a {@code Link} header.
+ */
 @RestController
 @RequestMapping("/api/feature-flags")
 public class FeatureFlagController {
 
+	private static final String ALL = "all";
+
+	private static final String FULL = "full";
+
+	private static final String COMPACT = "compact";
+
+	/**
+	 * Number of flags read from the store at a time while streaming a listing.
+	 */
+	private static final int BATCH_SIZE = 500;
+
+	private static final int MAX_LIMIT = 1000;
+
 	private final FeatureFlagService service;
 
-	public FeatureFlagController(FeatureFlagService service) {
+	private final FeatureFlagEventStream eventStream;
+
+	private final FeatureFlagBulkService bulkService;
+
+	private final JsonMapper jsonMapper;
+
+	public FeatureFlagController(FeatureFlagService service, FeatureFlagEventStream eventStream,
+			FeatureFlagBulkService bulkService, JsonMapper jsonMapper) {
 		this.service = service;
+		this.eventStream = eventStream;
+		this.bulkService = bulkService;
+		this.jsonMapper = jsonMapper;
 	}
 
+	/**
+	 * List flags ordered by name.
+	 * @param prefix the prefix of the names to list
+	 * @param enabled the enabled state of the flags to list
+	 * @param limit the size of the page to return, or none to stream every matching flag
+	 * @param after the cursor of the page to return, taken from the {@code Link} header
+	 * of the previous page
+	 * @param view {@code full} for whole flags or {@code compact} for their name and
+	 * enabled state only
+	 */
 	@GetMapping
-	public ResponseEntity<List<FeatureFlag>> getAll() {
-		return ResponseEntity.ok(service.findAll());
+	public ResponseEntity<StreamingResponseBody> getAll(@RequestParam(required = false) String prefix,
+			@RequestParam(required = false) Boolean enabled, @RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String after, @RequestParam(defaultValue = FULL) String view,
+			WebRequest request) {
+		String etag = service.snapshot().tag();
+		if (request.checkNotModified(etag)) {
+			return notModified(etag);
+		}
+		if ((!FULL.equals(view) && !COMPACT.equals(view)) || (limit != null && limit < 1)) {
+			return ResponseEntity.badRequest().build();
+		}
+		boolean compact = COMPACT.equals(view);
+		FeatureFlagQuery query;
+		try {
+			int size = (limit != null) ? Math.min(limit, MAX_LIMIT) + 1 : BATCH_SIZE;
+			query = new FeatureFlagQuery(prefix, enabled, (after != null) ? decodeCursor(after) : null, size);
+		}
+		catch (IllegalArgumentException ex) {
+			return ResponseEntity.badRequest().build();
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON);
+		if (limit == null) {
+			return response.body((output) -> writeArray(output, (generator) -> {
+				FeatureFlagQuery next = query;
+				List<?> batch;
+				do {
+					batch = read(next, compact);
+					batch.forEach(generator::writePOJO);
+					generator.flush();
+					next = batch.isEmpty() ? next : next.after(nameOf(batch.get(batch.size() - 1)));
+				}
+				while (batch.size() == query.limit());
+			}));
+		}
+		List<?> page = read(query, compact);
+		if (page.size() == query.limit()) {
+			page = page.subList(0, page.size() - 1);
+			String cursor = encodeCursor(nameOf(page.get(page.size() - 1)));
+			String next = ServletUriComponentsBuilder.fromCurrentRequest()
+				.replaceQueryParam("after", cursor)
+				.build()
+				.toUriString();
+			response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+		}
+		List<?> items = page;
+		return response.body((output) -> writeArray(output, (generator) -> items.forEach(generator::writePOJO)));
+	}
+
+	private List<?> read(FeatureFlagQuery query, boolean compact) {
+		return compact ? service.findSummaries(query) : service.find(query);
+	}
+
+	private void writeArray(OutputStream output, Consumer<JsonGenerator> items) {
+		try (JsonGenerator generator = this.jsonMapper.createGenerator(output)) {
+			generator.writeStartArray();
+			items.accept(generator);
+			generator.writeEndArray();
+		}
+	}
+
+	private static String nameOf(Object item) {
+		return (item instanceof FeatureFlagSummary summary) ? summary.name() : ((FeatureFlag) item).getName();
+	}
+
+	private static String encodeCursor(String name) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String decodeCursor(String cursor) {
+		return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
 	}
 
 	@GetMapping("/{id}")
-	public ResponseEntity<FeatureFlag> getById(@PathVariable Integer id) {
-		return service.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+	public ResponseEntity<FeatureFlag> getById(@PathVariable Integer id, WebRequest request) {
+		return versioned(request, () -> service.findById(id));
 	}
 
 	@GetMapping("/name/{name}")
-	public ResponseEntity<FeatureFlag> getByName(@PathVariable String name) {
-		return service.findByName(name).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+	public ResponseEntity<FeatureFlag> getByName(@PathVariable String name, WebRequest request) {
+		return versioned(request, () -> service.findByName(name));
 	}
 
 	@GetMapping("/check/{name}")
-	public ResponseEntity<Boolean> check(@PathVariable String name) {
-		return ResponseEntity.ok(service.isEnabled(name));
+	public ResponseEntity<Boolean> check(@PathVariable String name, WebRequest request) {
+		return versioned(request, () -> Optional.of(service.isEnabled(name)));
+	}
+
+	/**
+	 * Check several flags from the same snapshot.
+	 * @param names the names of the flags to check, or {@code all} for every flag
+	 */
+	@GetMapping("/check")
+	public ResponseEntity<Map<String, Boolean>> check(@RequestParam(defaultValue = ALL) List<String> names,
+			WebRequest request) {
+		FeatureFlagSnapshot snapshot = service.snapshot();
+		if (request.checkNotModified(snapshot.tag())) {
+			return notModified(snapshot.tag());
+		}
+		Map<String, Boolean> flags = List.of(ALL).equals(names) ? snapshot.asMap() : snapshot.check(names);
+		return ResponseEntity.ok().eTag(snapshot.tag()).body(flags);
+	}
+
+	/**
+	 * Answer a read tagged with the version of the flag set. A client that already holds
+	 * the current version gets a 304 without the read being performed.
+	 */
+	private <T> ResponseEntity<T> versioned(WebRequest request, Supplier<Optional<T>> read) {
+		String etag = service.snapshot().tag();
+		if (request.checkNotModified(etag)) {
+			return notModified(etag);
+		}
+		return read.get()
+			.map((body) -> ResponseEntity.ok().eTag(etag).body(body))
+			.orElse(ResponseEntity.notFound().build());
+	}
+
+	private static <T> ResponseEntity<T> notModified(String etag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+	}
+
+	@GetMapping("/export")
+	public ResponseEntity<List<FeatureFlagDefinition>> exportFlags(WebRequest request) {
+		return versioned(request, () -> Optional.of(bulkService.exportFlags()));
+	}
+
+	@PostMapping("/import")
+	public ResponseEntity<List<FeatureFlagImportResult>> importFlags(
+			@RequestBody List<FeatureFlagDefinition> definitions) {
+		return ResponseEntity.ok(bulkService.importFlags(definitions));
+	}
+
+	@GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+		return eventStream.subscribe(lastEventId);
 	}
 
 	@PostMapping
@@ -78,9 +258,15 @@ public class FeatureFlagController {
 			FeatureFlag updated = service.update(id, featureFlag);
 			return ResponseEntity.ok(updated);
 		}
-		catch (IllegalArgumentException e) {
+		catch (FeatureFlagNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		catch (OptimisticLockingFailureException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
 	}
 
 	@DeleteMapping("/{id}")
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.LocalDateTime;
+
+/**
+ * Portable definition of a feature flag, as exported from one environment and imported
+ * into another. Unlike {@link FeatureFlag} it carries no database identity or bookkeeping
+ * columns.
+ *
+ * @param name the name of the flag
+ * @param enabled whether the flag is switched on
+ * @param description what the flag controls
+ * @param rolloutPercentage the percentage of owners the flag is enabled for, or
+ * {@code null} for everyone
+ * @param targetingRules the targeting rules, or {@code null} if the flag is not targeted
+ * @param shadow whether the guarded alternative runs in the shadow of the primary path
+ * while the flag is disabled
+ * @param activeFrom the time from which the flag is in effect, or {@code null}
+ * @param activeUntil the time at which the flag stops being in effect, or {@code null}
+ * @param windowInverted whether the flag is out of effect inside the window instead,
+ * {@code null} for definitions exported before windows could be inverted
+ * @param windowDaily whether the window repeats every day, {@code null} for definitions
+ * exported before windows could repeat
+ */
+public record FeatureFlagDefinition(String name, boolean enabled, String description, Integer rolloutPercentage,
+		String targetingRules, boolean shadow, LocalDateTime activeFrom, LocalDateTime activeUntil,
+		Boolean windowInverted, Boolean windowDaily) {
+
+	static FeatureFlagDefinition of(FeatureFlag featureFlag) {
+		return new FeatureFlagDefinition(featureFlag.getName(), Boolean.TRUE.equals(featureFlag.getEnabled()),
+				featureFlag.getDescription(), featureFlag.getRolloutPercentage(), featureFlag.getTargetingRules(),
+				Boolean.TRUE.equals(featureFlag.getShadow()), featureFlag.getActiveFrom(), featureFlag.getActiveUntil(),
+				Boolean.TRUE.equals(featureFlag.getWindowInverted()),
+				Boolean.TRUE.equals(featureFlag.getWindowDaily()));
+	}
+
+}
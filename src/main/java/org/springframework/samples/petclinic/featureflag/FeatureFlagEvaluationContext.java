@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.List;
+
+/**
+ * Attributes a targeted {@link FeatureFlag} is evaluated against. The owner id is also
+ * the key used to place a subject in a percentage rollout bucket.
+ *
+ * @param ownerId the id of the owner, may be {@code null}
+ * @param city the city of the owner, may be {@code null}
+ * @param petTypes the names of the pet types involved, never {@code null}
+ */
+public record FeatureFlagEvaluationContext(Integer ownerId, String city, List<String> petTypes) {
+
+	public FeatureFlagEvaluationContext {
+		petTypes = (petTypes != null) ? List.copyOf(petTypes) : List.of();
+	}
+
+}
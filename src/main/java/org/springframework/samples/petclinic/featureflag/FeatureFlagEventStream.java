@@ -0,0 +1,319 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams flag changes to Server-Sent Events subscribers. A subscriber first receives a
+ * {@code snapshot} event with every flag and then one {@code change} event per snapshot
+ * version. Event ids combine the instance epoch with the snapshot version, so a client
+ * reconnecting with {@code Last-Event-ID} resumes from where it left off, as long as the
+ * events it missed are still buffered; otherwise it is sent a fresh snapshot.
+ * <p>
+ * All subscribers share one bounded ring buffer of recent changes. Publishing a change
+ * only appends to the buffer and schedules delivery, each subscriber is drained on a
+ * small dedicated pool at its own pace. A subscriber that falls further behind than the
+ * buffer holds is resynchronized with a snapshot instead of holding up anyone else.
+ * <p>
+ * Sending blocks while the client does not read. A send that takes longer than the send
+ * timeout evicts its subscriber: the emitter is completed with an error and the sending
+ * thread is interrupted, so a few stalled clients cannot hold the pool for long.
+ */
+@Component
+class FeatureFlagEventStream implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(FeatureFlagEventStream.class);
+
+	private final FeatureFlagService featureFlagService;
+
+	private final Executor executor;
+
+	private final long timeout;
+
+	private final long sendTimeout;
+
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	private final FeatureFlagsChangedEvent[] buffer;
+
+	private final Object bufferMonitor = new Object();
+
+	private long oldestVersion = -1;
+
+	private long latestVersion = -1;
+
+	@Autowired
+	FeatureFlagEventStream(FeatureFlagService featureFlagService,
+			@Value("${petclinic.feature-flags.stream.buffer-size:256}") int bufferSize,
+			@Value("${petclinic.feature-flags.stream.timeout:30m}") Duration timeout,
+			@Value("${petclinic.feature-flags.stream.threads:4}") int threads,
+			@Value("${petclinic.feature-flags.stream.send-timeout:10s}") Duration sendTimeout) {
+		this(featureFlagService, Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("flag-stream-")),
+				bufferSize, timeout, sendTimeout);
+	}
+
+	FeatureFlagEventStream(FeatureFlagService featureFlagService, Executor executor, int bufferSize, Duration timeout,
+			Duration sendTimeout) {
+		this.featureFlagService = featureFlagService;
+		this.executor = executor;
+		this.buffer = new FeatureFlagsChangedEvent[bufferSize];
+		this.timeout = timeout.toMillis();
+		this.sendTimeout = sendTimeout.toNanos();
+	}
+
+	/**
+	 * Register a new subscriber.
+	 * @param lastEventId the id of the last event the client received, or {@code null}
+	 * @return the emitter to return from the handler method
+	 */
+	SseEmitter subscribe(String lastEventId) {
+		return subscribe(new SseEmitter(this.timeout), lastEventId);
+	}
+
+	SseEmitter subscribe(SseEmitter emitter, String lastEventId) {
+		Subscriber subscriber = new Subscriber(emitter, resumeVersion(lastEventId));
+		emitter.onCompletion(() -> this.subscribers.remove(subscriber));
+		emitter.onTimeout(() -> this.subscribers.remove(subscriber));
+		emitter.onError((ex) -> this.subscribers.remove(subscriber));
+		this.subscribers.add(subscriber);
+		schedule(subscriber);
+		return emitter;
+	}
+
+	int getSubscriberCount() {
+		return this.subscribers.size();
+	}
+
+	@EventListener
+	void onFlagsChanged(FeatureFlagsChangedEvent event) {
+		synchronized (this.bufferMonitor) {
+			this.buffer[(int) (event.version() % this.buffer.length)] = event;
+			if (this.oldestVersion < 0) {
+				this.oldestVersion = event.version();
+			}
+			this.latestVersion = event.version();
+			this.oldestVersion = Math.max(this.oldestVersion, this.latestVersion - this.buffer.length + 1);
+		}
+		for (Subscriber subscriber : this.subscribers) {
+			schedule(subscriber);
+		}
+	}
+
+	/**
+	 * Evict the subscribers whose current send has taken longer than the send timeout.
+	 */
+	@Scheduled(fixedDelayString = "${petclinic.feature-flags.stream.send-timeout:10s}")
+	void evictStalled() {
+		long now = System.nanoTime();
+		for (Subscriber subscriber : this.subscribers) {
+			if (subscriber.isSendingSince(now - this.sendTimeout)) {
+				logger.debug("Evicting feature flag stream subscriber that stopped reading");
+				this.subscribers.remove(subscriber);
+				subscriber.evict();
+			}
+		}
+	}
+
+	/**
+	 * Return the version a client can resume from, or -1 if it needs a full snapshot.
+	 */
+	private long resumeVersion(String lastEventId) {
+		if (lastEventId == null || !lastEventId.startsWith(FeatureFlagSnapshot.EPOCH + "-")) {
+			return -1;
+		}
+		try {
+			long version = Long.parseLong(lastEventId.substring(FeatureFlagSnapshot.EPOCH.length() + 1));
+			if (version == this.featureFlagService.snapshot().version()) {
+				return version;
+			}
+			synchronized (this.bufferMonitor) {
+				boolean buffered = this.oldestVersion >= 0 && version + 1 >= this.oldestVersion
+						&& version <= this.latestVersion;
+				return buffered ? version : -1;
+			}
+		}
+		catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	private void schedule(Subscriber subscriber) {
+		if (subscriber.scheduled.compareAndSet(false, true)) {
+			this.executor.execute(() -> drain(subscriber));
+		}
+	}
+
+	private void drain(Subscriber subscriber) {
+		try {
+			FeatureFlagsChangedEvent event;
+			while (!subscriber.evicted && (event = next(subscriber)) != null) {
+				subscriber.send(event);
+			}
+		}
+		catch (IOException | IllegalStateException ex) {
+			logger.debug("Dropping feature flag stream subscriber", ex);
+			this.subscribers.remove(subscriber);
+			subscriber.emitter.completeWithError(ex);
+			return;
+		}
+		finally {
+			subscriber.scheduled.set(false);
+		}
+		if (!subscriber.evicted && hasPending(subscriber)) {
+			schedule(subscriber);
+		}
+	}
+
+	/**
+	 * Return the next buffered event for the given subscriber, first sending it a
+	 * snapshot if it has none yet or has fallen behind the buffer.
+	 */
+	private FeatureFlagsChangedEvent next(Subscriber subscriber) throws IOException {
+		synchronized (this.bufferMonitor) {
+			if (subscriber.version >= 0 && subscriber.version >= this.latestVersion) {
+				return null;
+			}
+			if (subscriber.version >= 0 && subscriber.version + 1 >= this.oldestVersion) {
+				return this.buffer[(int) ((subscriber.version + 1) % this.buffer.length)];
+			}
+		}
+		subscriber.sendSnapshot(this.featureFlagService.snapshot());
+		return next(subscriber);
+	}
+
+	private boolean hasPending(Subscriber subscriber) {
+		synchronized (this.bufferMonitor) {
+			return subscriber.version < this.latestVersion;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		for (Subscriber subscriber : this.subscribers) {
+			subscriber.emitter.complete();
+		}
+		if (this.executor instanceof ExecutorService executorService) {
+			executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Payload of the {@code snapshot} event.
+	 *
+	 * @param version the version of the snapshot
+	 * @param flags every flag in the snapshot
+	 */
+	record Snapshot(long version, List<FeatureFlagState> flags) {
+
+	}
+
+	private static final class Subscriber {
+
+		private final SseEmitter emitter;
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/**
+		 * The thread sending to the subscriber and when it started, guarded by this
+		 * subscriber.
+		 */
+		private Thread sender;
+
+		private long sendingSince;
+
+		private volatile boolean evicted;
+
+		/**
+		 * The last version sent to the subscriber, only accessed by the draining thread.
+		 */
+		private volatile long version;
+
+		Subscriber(SseEmitter emitter, long version) {
+			this.emitter = emitter;
+			this.version = version;
+		}
+
+		void sendSnapshot(FeatureFlagSnapshot snapshot) throws IOException {
+			send(SseEmitter.event()
+				.id(snapshot.tag())
+				.name("snapshot")
+				.data(new Snapshot(snapshot.version(), snapshot.describe()), MediaType.APPLICATION_JSON));
+			this.version = snapshot.version();
+		}
+
+		void send(FeatureFlagsChangedEvent event) throws IOException {
+			send(SseEmitter.event()
+				.id(FeatureFlagSnapshot.EPOCH + "-" + event.version())
+				.name("change")
+				.data(event, MediaType.APPLICATION_JSON));
+			this.version = event.version();
+		}
+
+		private void send(SseEmitter.SseEventBuilder event) throws IOException {
+			synchronized (this) {
+				this.sender = Thread.currentThread();
+				this.sendingSince = System.nanoTime();
+			}
+			try {
+				this.emitter.send(event);
+			}
+			finally {
+				synchronized (this) {
+					this.sender = null;
+				}
+			}
+		}
+
+		synchronized boolean isSendingSince(long time) {
+			return this.sender != null && this.sendingSince - time <= 0;
+		}
+
+		/**
+		 * Stop sending to the subscriber, interrupting a send in progress.
+		 */
+		void evict() {
+			this.evicted = true;
+			synchronized (this) {
+				if (this.sender != null) {
+					this.sender.interrupt();
+				}
+			}
+			this.emitter.completeWithError(new IOException("Feature flag stream subscriber stopped reading"));
+		}
+
+	}
+
+}
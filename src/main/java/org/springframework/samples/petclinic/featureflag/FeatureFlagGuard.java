@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The enforcement of {@link FeatureFlagRequired} on one method, resolved once up front:
+ * the handle of the flag, where to find the evaluation context among the arguments and
+ * what to return when the flag is off. Checking an untargeted flag is a single volatile
+ * read of the handle. Within a web request the handle answers as long as it is at the
+ * snapshot version the {@link FeatureFlagRequestContext} of the request has pinned; only
+ * when the flags changed during the request is the check answered from the pinned
+ * snapshot instead.
+ * <p>
+ * A guard also keeps track of how often it was checked and how long the checks took,
+ * which can be published as a {@link FunctionTimer}.
+ */
+final class FeatureFlagGuard {
+
+	private static final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+	private final FeatureFlagService featureFlagService;
+
+	private final FeatureFlagHandle handle;
+
+	private final String method;
+
+	private final int contextIndex;
+
+	private final boolean throwException;
+
+	private final Object defaultValue;
+
+	private final LongAdder checks = new LongAdder();
+
+	private final LongAdder nanos = new LongAdder();
+
+	private FeatureFlagGuard(FeatureFlagService featureFlagService, String flagName, Method method, int contextIndex,
+			boolean throwException) {
+		this.featureFlagService = featureFlagService;
+		this.handle = featureFlagService.handle(flagName);
+		this.method = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+		this.contextIndex = contextIndex;
+		this.throwException = throwException;
+		this.defaultValue = defaultValue(method.getReturnType());
+	}
+
+	/**
+	 * Resolve the guard of the given method, from an annotation on the method or else on
+	 * the class it is invoked on.
+	 * @param method the method
+	 * @param targetClass the class the method is invoked on
+	 * @param featureFlagService the service providing the flag handle
+	 * @return the guard, or {@code null} if the method does not require a flag
+	 * @throws IllegalStateException if the annotation names an unsuitable context
+	 * parameter
+	 */
+	static FeatureFlagGuard resolve(Method method, Class<?> targetClass, FeatureFlagService featureFlagService) {
+		FeatureFlagRequired annotation = findAnnotation(method, targetClass);
+		if (annotation == null) {
+			return null;
+		}
+		return new FeatureFlagGuard(featureFlagService, annotation.value(), method,
+				contextIndex(method, annotation.context()), annotation.throwException());
+	}
+
+	/**
+	 * Create the guard of a method from metadata resolved ahead of time, for a flag that
+	 * is evaluated without a context.
+	 * @param method the method
+	 * @param flagName the name of the flag the method requires
+	 * @param throwException whether to throw when the flag is off
+	 * @param featureFlagService the service providing the flag handle
+	 * @return the guard
+	 */
+	static FeatureFlagGuard of(Method method, String flagName, boolean throwException,
+			FeatureFlagService featureFlagService) {
+		return new FeatureFlagGuard(featureFlagService, flagName, method, -1, throwException);
+	}
+
+	/**
+	 * Find the {@link FeatureFlagRequired} annotation of the given method, on the method
+	 * or else on the class it is invoked on.
+	 * @return the annotation, or {@code null} if the method does not require a flag
+	 */
+	static FeatureFlagRequired findAnnotation(Method method, Class<?> targetClass) {
+		FeatureFlagRequired annotation = AnnotatedElementUtils.findMergedAnnotation(method, FeatureFlagRequired.class);
+		return (annotation != null) ? annotation
+				: AnnotatedElementUtils.findMergedAnnotation(targetClass, FeatureFlagRequired.class);
+	}
+
+	String getFlagName() {
+		return this.handle.getName();
+	}
+
+	/**
+	 * Return whether the guarded method is evaluated against one of its arguments, which
+	 * is only possible once the arguments are known.
+	 */
+	boolean isTargeted() {
+		return this.contextIndex >= 0;
+	}
+
+	boolean isEnabled(Object[] arguments) {
+		boolean enabled;
+		if (this.contextIndex < 0) {
+			FeatureFlagHandle.State state = this.handle.getState();
+			FeatureFlagRequestContext requestContext = this.featureFlagService.requestContext();
+			// within a request the flag is answered from the state the request has pinned
+			enabled = (requestContext == null || requestContext.getVersion() == state.version()) ? state.enabled()
+					: requestContext.isEnabled(getFlagName());
+			this.handle.getStatistics().record(enabled);
+		}
+		else {
+			enabled = this.featureFlagService.isEnabled(getFlagName(),
+					(FeatureFlagEvaluationContext) arguments[this.contextIndex]);
+		}
+		this.featureFlagService.recordEvaluation(getFlagName(), enabled, this.method);
+		return enabled;
+	}
+
+	boolean isThrowException() {
+		return this.throwException;
+	}
+
+	/**
+	 * Return the value the guarded method returns in place of running when the flag is
+	 * off and no exception is thrown: {@code false} or zero for primitives, {@code null}
+	 * otherwise.
+	 */
+	Object getDefaultValue() {
+		return this.defaultValue;
+	}
+
+	FeatureFlagDisabledException disabled() {
+		return new FeatureFlagDisabledException("Feature flag '" + getFlagName() + "' is disabled");
+	}
+
+	void recordCheck(long nanos) {
+		this.checks.increment();
+		this.nanos.add(nanos);
+	}
+
+	void bindTo(MeterRegistry registry) {
+		FunctionTimer
+			.builder("petclinic.featureflags.guard", this, (guard) -> guard.checks.sum(), (guard) -> guard.nanos.sum(),
+					TimeUnit.NANOSECONDS)
+			.description("Time spent checking feature flags before guarded methods")
+			.tag("flag", getFlagName())
+			.tag("method", this.method)
+			.register(registry);
+	}
+
+	private static int contextIndex(Method method, String parameterName) {
+		if (parameterName.isEmpty()) {
+			return -1;
+		}
+		String[] parameterNames = parameterNameDiscoverer.getParameterNames(method);
+		for (int i = 0; parameterNames != null && i < parameterNames.length; i++) {
+			if (parameterNames[i].equals(parameterName)) {
+				if (method.getParameterTypes()[i] != FeatureFlagEvaluationContext.class) {
+					throw new IllegalStateException("Parameter '" + parameterName + "' of " + method
+							+ " is not a FeatureFlagEvaluationContext");
+				}
+				return i;
+			}
+		}
+		throw new IllegalStateException("No parameter named '" + parameterName + "' on " + method);
+	}
+
+	private static Object defaultValue(Class<?> returnType) {
+		if (returnType == Boolean.class) {
+			return false;
+		}
+		if (returnType.isPrimitive() && returnType != void.class) {
+			// The element of a fresh primitive array is the zero value of the right type
+			return Array.get(Array.newInstance(returnType, 1), 0);
+		}
+		return null;
+	}
+
+}
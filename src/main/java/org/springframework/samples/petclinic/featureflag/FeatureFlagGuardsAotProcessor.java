@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * Resolves the {@link FeatureFlagRequired} guards of all controller handler methods when
+ * the application is processed ahead of time, and writes them to
+ * {@value FeatureFlagInterceptor#GUARDS}. {@link FeatureFlagInterceptor} then reads the
+ * guards from that file and does not look for annotations at runtime.
+ * <p>
+ * Only handler methods of {@link Controller @Controller} beans are covered, like at
+ * runtime, and a handler method whose flag is evaluated against a
+ * {@link FeatureFlagRequired#context() context} parameter fails the build.
+ */
+class FeatureFlagGuardsAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+	@Override
+	public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+		Map<String, String> guards = new TreeMap<>();
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			Class<?> beanType = beanFactory.getType(beanName, false);
+			if (beanType != null && AnnotatedElementUtils.hasAnnotation(beanType, Controller.class)) {
+				Class<?> handlerType = ClassUtils.getUserClass(beanType);
+				MethodIntrospector
+					.selectMethods(handlerType,
+							(MethodIntrospector.MetadataLookup<FeatureFlagRequired>) (
+									method) -> AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)
+											? FeatureFlagGuard.findAnnotation(method, handlerType) : null)
+					.forEach((method, annotation) -> guards.put(FeatureFlagInterceptor.key(handlerType, method),
+							value(method, annotation)));
+			}
+		}
+		StringBuilder content = new StringBuilder();
+		guards.forEach((key, value) -> content.append(key).append('=').append(value).append('\n'));
+		return (generationContext, code) -> {
+			generationContext.getGeneratedFiles().addResourceFile(FeatureFlagInterceptor.GUARDS, content);
+			generationContext.getRuntimeHints().resources().registerPattern(FeatureFlagInterceptor.GUARDS);
+		};
+	}
+
+	private static String value(Method method, FeatureFlagRequired annotation) {
+		if (!annotation.context().isEmpty()) {
+			throw new IllegalStateException(
+					"Feature flags evaluated against a context parameter cannot be enforced by an interceptor: "
+							+ method);
+		}
+		return annotation.value() + "," + annotation.throwException();
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+/**
+ * Live view of the untargeted state of a single flag, obtained from
+ * {@link FeatureFlagService#handle(String)} and updated by the service whenever it
+ * publishes a new snapshot. Checking a handle is a single volatile read, for callers that
+ * resolve the flags they need up front and check them very often. The state carries the
+ * version of the snapshot it was taken from, so that callers can tell whether it is the
+ * state a request has pinned.
+ */
+final class FeatureFlagHandle {
+
+	private final String name;
+
+	private final FeatureFlagStatistics.Flag statistics;
+
+	private volatile State state;
+
+	FeatureFlagHandle(String name, FeatureFlagSnapshot snapshot, FeatureFlagStatistics.Flag statistics) {
+		this.name = name;
+		this.statistics = statistics;
+		update(snapshot);
+	}
+
+	String getName() {
+		return this.name;
+	}
+
+	boolean isEnabled() {
+		return this.state.enabled();
+	}
+
+	/**
+	 * Return the current state together with the version of its snapshot, in a single
+	 * read.
+	 */
+	State getState() {
+		return this.state;
+	}
+
+	/**
+	 * Return the statistics of the flag, for callers to record their checks in.
+	 */
+	FeatureFlagStatistics.Flag getStatistics() {
+		return this.statistics;
+	}
+
+	void update(FeatureFlagSnapshot snapshot) {
+		this.state = new State(snapshot.version(), snapshot.isEnabled(this.name));
+	}
+
+	/**
+	 * The state of the flag in the snapshot of the given version.
+	 *
+	 * @param version the version of the snapshot
+	 * @param enabled whether the flag is enabled, untargeted
+	 */
+	record State(long version, boolean enabled) {
+
+	}
+
+}
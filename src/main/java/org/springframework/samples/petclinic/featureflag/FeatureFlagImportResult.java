@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+/**
+ * Outcome of importing a single {@link FeatureFlagDefinition}.
+ *
+ * @param name the name of the flag
+ * @param outcome what happened to the flag
+ * @param message why the flag was rejected, or {@code null}
+ */
+public record FeatureFlagImportResult(String name, Outcome outcome, String message) {
+
+	static FeatureFlagImportResult rejected(String name, String message) {
+		return new FeatureFlagImportResult(name, Outcome.REJECTED, message);
+	}
+
+	public enum Outcome {
+
+		CREATED, UPDATED, REJECTED
+
+	}
+
+}
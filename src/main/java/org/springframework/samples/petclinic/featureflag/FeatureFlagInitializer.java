@@ -15,32 +15,112 @@
  */
 package org.springframework.samples.petclinic.featureflag;
 
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Creates the default flags that are missing and loads the flag snapshot, so that the
+ * first request after startup is served from memory.
+ * <p>
+ * The existing flags are read once, with the snapshot itself, and the missing defaults
+ * are created with a single batched insert, however many defaults there are. Runners
+ * complete before the application reports itself ready.
+ * <p>
+ * When the flags were loaded from the {@link FeatureFlagSnapshotFile}, the database is
+ * left alone during startup. The table is read, and the defaults created, once the
+ * application is ready. An attempt that fails because the database cannot be reached is
+ * repeated every reconcile interval until one succeeds.
+ */
 @Component
 class FeatureFlagInitializer implements CommandLineRunner {
 
+	private static final Log logger = LogFactory.getLog(FeatureFlagInitializer.class);
+
+	/**
+	 * The flags every installation starts with.
+	 */
+	static final List<FeatureFlagDefinition> DEFAULTS = List.of(
+			new FeatureFlagDefinition("add_new_pet", true, "Enable adding new pets", null, null, false, null, null,
+					false, false),
+			new FeatureFlagDefinition("add_visit", true, "Enable adding visits", null, null, false, null, null, false,
+					false),
+			new FeatureFlagDefinition("owner_search", true, "Enable owner search", null, null, false, null, null, false,
+					false),
+			new FeatureFlagDefinition("owner_search_index", true, "Answer owner searches from the last name index",
+					null, null, false, null, null, false, false));
+
 	private final FeatureFlagService featureFlagService;
 
-	FeatureFlagInitializer(FeatureFlagService featureFlagService) {
+	private final FeatureFlagBulkService bulkService;
+
+	private volatile boolean reconciled;
+
+	FeatureFlagInitializer(FeatureFlagService featureFlagService, FeatureFlagBulkService bulkService) {
 		this.featureFlagService = featureFlagService;
+		this.bulkService = bulkService;
 	}
 
 	@Override
 	public void run(String... args) {
-		createIfNotExists("add_new_pet", true, "Enable adding new pets");
-		createIfNotExists("add_visit", true, "Enable adding visits");
-		createIfNotExists("owner_search", true, "Enable owner search");
+		if (!featureFlagService.isStale()) {
+			reconcile();
+		}
 	}
 
-	private void createIfNotExists(String name, boolean enabled, String description) {
-		if (!featureFlagService.findByName(name).isPresent()) {
-			FeatureFlag flag = new FeatureFlag();
-			flag.setName(name);
-			flag.setEnabled(enabled);
-			flag.setDescription(description);
-			featureFlagService.create(flag);
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${petclinic.feature-flags.reconcile-interval:5s}",
+			initialDelayString = "${petclinic.feature-flags.reconcile-interval:5s}")
+	synchronized void reconcile() {
+		if (this.reconciled) {
+			return;
+		}
+		try {
+			if (featureFlagService.isStale()) {
+				featureFlagService.refresh();
+			}
+			createMissingDefaults();
+			this.reconciled = true;
+		}
+		catch (DataAccessException ex) {
+			if (featureFlagService.isStale()) {
+				logger.warn("Could not read feature flags, serving them from the snapshot file until the next attempt",
+						ex);
+			}
+			else if (!featureFlagService.isLoaded()) {
+				logger.warn("Could not read feature flags and no snapshot file was loaded, "
+						+ "flags cannot be evaluated until the next attempt succeeds", ex);
+			}
+			else {
+				logger.warn("Could not create the default feature flags, retrying", ex);
+			}
+		}
+	}
+
+	private void createMissingDefaults() {
+		Set<String> existing = featureFlagService.snapshot().asMap().keySet();
+		List<FeatureFlagDefinition> missing = DEFAULTS.stream()
+			.filter((definition) -> !existing.contains(definition.name()))
+			.toList();
+		if (missing.isEmpty()) {
+			return;
+		}
+		try {
+			bulkService.createAll(missing);
+		}
+		catch (DataIntegrityViolationException ex) {
+			// Another node created them first
+			logger.debug("Default feature flags were created concurrently", ex);
+			featureFlagService.refresh();
 		}
 	}
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Enforces {@link FeatureFlagRequired} on controller handler methods. Unlike
+ * {@link FeatureFlagAspect} it needs neither AspectJ nor proxies, which suits AOT
+ * processing and native images.
+ * <p>
+ * The guards of all handler methods are resolved once the application has started. When
+ * the application was processed ahead of time, {@link FeatureFlagGuardsAotProcessor} has
+ * already found them and they are read from {@value #GUARDS}, without looking for
+ * annotations; otherwise the annotations of the handler methods are read at startup. When
+ * a flag is off the handler is not invoked: a {@link FeatureFlagDisabledException} is
+ * thrown, or a 404 is sent for handlers that opt out of the exception. Handler arguments
+ * are not known yet when the interceptor runs, so flags evaluated against a
+ * {@link FeatureFlagRequired#context() context} parameter are rejected, at build time or
+ * at startup.
+ */
+class FeatureFlagInterceptor implements HandlerInterceptor, SmartInitializingSingleton {
+
+	/**
+	 * Location of the guards resolved ahead of time: one {@code key=flag,throwException}
+	 * line per guarded handler method, see {@link #key(Class, Method)}.
+	 */
+	static final String GUARDS = "META-INF/petclinic/feature-flag-guards.properties";
+
+	private final FeatureFlagService featureFlagService;
+
+	private final ObjectProvider<RequestMappingHandlerMapping> handlerMappings;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	private final Properties resolved;
+
+	private volatile Map<Method, FeatureFlagGuard> guards = Map.of();
+
+	FeatureFlagInterceptor(FeatureFlagService featureFlagService,
+			ObjectProvider<RequestMappingHandlerMapping> handlerMappings, ObjectProvider<MeterRegistry> meterRegistry) {
+		this(featureFlagService, handlerMappings, meterRegistry, loadGuards());
+	}
+
+	/**
+	 * Create an interceptor enforcing the given guards resolved ahead of time, or reading
+	 * the annotations of the handler methods if {@code resolved} is {@code null}.
+	 */
+	FeatureFlagInterceptor(FeatureFlagService featureFlagService,
+			ObjectProvider<RequestMappingHandlerMapping> handlerMappings, ObjectProvider<MeterRegistry> meterRegistry,
+			Properties resolved) {
+		this.featureFlagService = featureFlagService;
+		this.handlerMappings = handlerMappings;
+		this.meterRegistry = meterRegistry;
+		this.resolved = resolved;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		register(this.handlerMappings.orderedStream()
+			.flatMap((mapping) -> mapping.getHandlerMethods().values().stream())
+			.toList());
+	}
+
+	/**
+	 * Resolve the guards of the given handler methods.
+	 * @throws IllegalStateException if a handler method requires a flag evaluated against
+	 * a context parameter
+	 */
+	void register(Collection<HandlerMethod> handlerMethods) {
+		Map<Method, FeatureFlagGuard> guards = new HashMap<>();
+		for (HandlerMethod handlerMethod : handlerMethods) {
+			FeatureFlagGuard guard = (this.resolved != null) ? resolved(handlerMethod) : FeatureFlagGuard
+				.resolve(handlerMethod.getMethod(), handlerMethod.getBeanType(), this.featureFlagService);
+			if (guard != null) {
+				if (guard.isTargeted()) {
+					throw new IllegalStateException("Feature flags evaluated against a context parameter cannot be "
+							+ "enforced by an interceptor: " + handlerMethod);
+				}
+				this.meterRegistry.ifAvailable(guard::bindTo);
+				guards.put(handlerMethod.getMethod(), guard);
+			}
+		}
+		this.guards = Map.copyOf(guards);
+	}
+
+	private FeatureFlagGuard resolved(HandlerMethod handlerMethod) {
+		String guard = this.resolved.getProperty(key(handlerMethod.getBeanType(), handlerMethod.getMethod()));
+		if (guard == null) {
+			return null;
+		}
+		int separator = guard.lastIndexOf(',');
+		return FeatureFlagGuard.of(handlerMethod.getMethod(), guard.substring(0, separator),
+				Boolean.parseBoolean(guard.substring(separator + 1)), this.featureFlagService);
+	}
+
+	/**
+	 * Return the key of a handler method in {@value #GUARDS}.
+	 * @param handlerType the type of the controller
+	 * @param method the handler method
+	 * @return the key, made of the names of the controller, the method and its parameter
+	 * types
+	 */
+	static String key(Class<?> handlerType, Method method) {
+		return ClassUtils.getUserClass(handlerType).getName() + "." + method.getName()
+				+ Arrays.stream(method.getParameterTypes())
+					.map(Class::getTypeName)
+					.collect(Collectors.joining(",", "(", ")"));
+	}
+
+	private static Properties loadGuards() {
+		ClassPathResource resource = new ClassPathResource(GUARDS, FeatureFlagInterceptor.class.getClassLoader());
+		if (!resource.exists()) {
+			return null;
+		}
+		try {
+			return PropertiesLoaderUtils.loadProperties(resource);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException("Could not read " + GUARDS, ex);
+		}
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		if (!(handler instanceof HandlerMethod handlerMethod)) {
+			return true;
+		}
+		FeatureFlagGuard guard = this.guards.get(handlerMethod.getMethod());
+		if (guard == null) {
+			return true;
+		}
+		long start = System.nanoTime();
+		boolean enabled = guard.isEnabled(null);
+		guard.recordCheck(System.nanoTime() - start);
+		if (enabled) {
+			return true;
+		}
+		if (guard.isThrowException()) {
+			throw guard.disabled();
+		}
+		response.sendError(HttpServletResponse.SC_NOT_FOUND);
+		return false;
+	}
+
+}
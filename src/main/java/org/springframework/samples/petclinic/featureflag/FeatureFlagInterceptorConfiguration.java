@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Enforces {@link FeatureFlagRequired} with {@link FeatureFlagInterceptor} instead of
+ * {@link FeatureFlagAspect}, when {@code petclinic.feature-flags.enforcement} is set to
+ * {@code interceptor}. For a native image the property has to be set when the application
+ * is processed ahead of time, as conditions are evaluated then, and the guards of the
+ * handler methods are resolved at that point too.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = FeatureFlagInterceptorConfiguration.ENFORCEMENT, havingValue = "interceptor")
+class FeatureFlagInterceptorConfiguration implements WebMvcConfigurer {
+
+	static final String ENFORCEMENT = "petclinic.feature-flags.enforcement";
+
+	private final ObjectProvider<FeatureFlagInterceptor> interceptor;
+
+	FeatureFlagInterceptorConfiguration(ObjectProvider<FeatureFlagInterceptor> interceptor) {
+		this.interceptor = interceptor;
+	}
+
+	@Bean
+	static FeatureFlagInterceptor featureFlagInterceptor(FeatureFlagService featureFlagService,
+			ObjectProvider<RequestMappingHandlerMapping> handlerMappings, ObjectProvider<MeterRegistry> meterRegistry) {
+		return new FeatureFlagInterceptor(featureFlagService, handlerMappings, meterRegistry);
+	}
+
+	@Bean
+	static FeatureFlagGuardsAotProcessor featureFlagGuardsAotProcessor() {
+		return new FeatureFlagGuardsAotProcessor();
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(this.interceptor.getObject());
+	}
+
+}
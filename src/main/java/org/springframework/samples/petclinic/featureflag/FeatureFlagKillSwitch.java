@@ -0,0 +1,247 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Switches off flags whose guarded path exceeds its {@link FeatureFlagBudgets budget},
+ * and switches them back on once a cooldown has passed.
+ * <p>
+ * Guarded paths report their calls through {@link #measure}. Calls are collected in a
+ * window of log-linear latency buckets, which is judged and replaced every interval. A
+ * window with enough calls whose latency percentile or error rate is above the budget
+ * switches the flag off. While the flag is off its path sees no traffic, so there is
+ * nothing to measure; the flag is switched back on once the cooldown has passed. The
+ * cooldown doubles with every breach and only returns to its configured value after a
+ * window stays clearly under budget, so a path that is still struggling stays off for
+ * longer each time instead of flapping.
+ * <p>
+ * Every transition goes through {@link FeatureFlagService} and is therefore persisted,
+ * logged and propagated to other nodes like any other change. A flag is only switched
+ * back on if nobody changed it in the meantime.
+ */
+@Component
+@EnableConfigurationProperties(FeatureFlagBudgets.class)
+public class FeatureFlagKillSwitch {
+
+	private final FeatureFlagService featureFlagService;
+
+	private final Map<String, Breaker> breakers;
+
+	FeatureFlagKillSwitch(FeatureFlagService featureFlagService, FeatureFlagBudgets budgets) {
+		this.featureFlagService = featureFlagService;
+		Map<String, Breaker> breakers = new HashMap<>();
+		budgets.budgets().forEach((name, budget) -> breakers.put(name, new Breaker(name, budget)));
+		this.breakers = Map.copyOf(breakers);
+	}
+
+	/**
+	 * Run a call of the path guarded by the given flag, recording its latency and whether
+	 * it failed. Calls of flags without a budget are run as they are.
+	 * @param flagName the name of the flag guarding the path
+	 * @param call the call to run
+	 * @return the result of the call
+	 */
+	public <T> T measure(String flagName, Supplier<T> call) {
+		if (!this.breakers.containsKey(flagName)) {
+			return call.get();
+		}
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			T result = call.get();
+			failed = false;
+			return result;
+		}
+		finally {
+			record(flagName, System.nanoTime() - start, failed);
+		}
+	}
+
+	void record(String flagName, long nanos, boolean failed) {
+		Breaker breaker = this.breakers.get(flagName);
+		if (breaker != null) {
+			breaker.window.record(nanos, failed);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${petclinic.feature-flags.kill-switch.interval:10s}")
+	void evaluate() {
+		evaluate(System.nanoTime());
+	}
+
+	/**
+	 * Judge the window of every flag collected since the last evaluation.
+	 * @param now the current value of {@link System#nanoTime()}
+	 */
+	synchronized void evaluate(long now) {
+		for (Breaker breaker : this.breakers.values()) {
+			evaluate(breaker, now);
+		}
+	}
+
+	private void evaluate(Breaker breaker, long now) {
+		Window window = breaker.window;
+		breaker.window = new Window();
+		if (breaker.tripped) {
+			if (now - breaker.reenableAt >= 0) {
+				String reason = "cooldown of " + Duration.ofNanos(breaker.reenableAt - breaker.trippedAt) + " passed";
+				// Fails if the flag was changed since, leaving it to whoever changed it
+				this.featureFlagService.switchFlag(breaker.name, true, breaker.trippedVersion, reason);
+				breaker.tripped = false;
+			}
+			return;
+		}
+		FeatureFlagBudgets.Budget budget = breaker.budget;
+		if (window.count() < budget.minSamples()) {
+			return;
+		}
+		String breach = budget.breach(window);
+		if (breach != null) {
+			Optional<FeatureFlag> switched = this.featureFlagService.switchFlag(breaker.name, false, null, breach);
+			// Nothing to restore if the flag was already off, possibly switched by
+			// another node
+			switched.ifPresent((flag) -> breaker.trip(now, flag.getVersion()));
+		}
+		else if (budget.isHealthy(window)) {
+			breaker.cooldown = budget.cooldown().toNanos();
+		}
+	}
+
+	/**
+	 * The state of the kill switch of a single flag.
+	 */
+	private static final class Breaker {
+
+		private final String name;
+
+		private final FeatureFlagBudgets.Budget budget;
+
+		private volatile Window window = new Window();
+
+		private long cooldown;
+
+		private boolean tripped;
+
+		private long trippedAt;
+
+		private long reenableAt;
+
+		private Long trippedVersion;
+
+		private Breaker(String name, FeatureFlagBudgets.Budget budget) {
+			this.name = name;
+			this.budget = budget;
+			this.cooldown = budget.cooldown().toNanos();
+		}
+
+		private void trip(long now, Long version) {
+			this.tripped = true;
+			this.trippedAt = now;
+			this.reenableAt = now + this.cooldown;
+			this.trippedVersion = version;
+			this.cooldown = Math.min(this.cooldown * 2, this.budget.maxCooldown().toNanos());
+		}
+
+	}
+
+	/**
+	 * Latencies and failures of the calls made during one interval. Latencies are counted
+	 * in buckets of one eighth of a power of two, so percentiles are accurate to within
+	 * 12.5% at a fixed size.
+	 */
+	static final class Window {
+
+		private static final int SUB_BUCKETS = 8;
+
+		private static final long MAX_NANOS = 1L << 40;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(index(MAX_NANOS) + SUB_BUCKETS);
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder failed = new LongAdder();
+
+		void record(long nanos, boolean failed) {
+			this.buckets.incrementAndGet(index(Math.max(0, Math.min(nanos, MAX_NANOS))));
+			this.count.increment();
+			if (failed) {
+				this.failed.increment();
+			}
+		}
+
+		long count() {
+			return this.count.sum();
+		}
+
+		double errorRate() {
+			long count = count();
+			return (count > 0) ? (double) this.failed.sum() / count : 0;
+		}
+
+		/**
+		 * Return the given percentile of the recorded latencies, rounded up to the upper
+		 * bound of its bucket.
+		 * @param percentile the percentile, between 0 and 1
+		 * @return the latency in nanoseconds, or 0 if nothing was recorded
+		 */
+		long percentile(double percentile) {
+			long total = 0;
+			for (int i = 0; i < this.buckets.length(); i++) {
+				total += this.buckets.get(i);
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile * total));
+			long seen = 0;
+			for (int i = 0; i < this.buckets.length(); i++) {
+				seen += this.buckets.get(i);
+				if (seen >= rank) {
+					return upperBound(i);
+				}
+			}
+			return 0;
+		}
+
+		private static int index(long nanos) {
+			if (nanos < SUB_BUCKETS) {
+				return (int) nanos;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+			return (exponent - 2) * SUB_BUCKETS + (int) ((nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1));
+		}
+
+		private static long upperBound(int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			int exponent = index / SUB_BUCKETS + 2;
+			int subBucket = index % SUB_BUCKETS;
+			return ((SUB_BUCKETS + subBucket + 1L) << (exponent - 3)) - 1;
+		}
+
+	}
+
+}
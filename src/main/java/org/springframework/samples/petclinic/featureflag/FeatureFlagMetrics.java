@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the {@link FeatureFlagStatistics} of {@link FeatureFlagService}: per flag,
+ * the {@code petclinic.featureflags.evaluations} counters by result and the sampled
+ * {@code petclinic.featureflags.evaluation.latency} timer.
+ */
+@Component
+class FeatureFlagMetrics implements MeterBinder {
+
+	private final FeatureFlagService featureFlagService;
+
+	FeatureFlagMetrics(FeatureFlagService featureFlagService) {
+		this.featureFlagService = featureFlagService;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.featureFlagService.statistics().bindTo(registry);
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+
+/**
+ * Exposes the {@link FeatureFlagRequestContext} of the current request to views so
+ * templates can render against the same flag state the controllers used. Only the owner
+ * controllers render flag-dependent views, other controllers are left alone.
+ */
+@ControllerAdvice(basePackages = "org.springframework.samples.petclinic.owner")
+class FeatureFlagModelAdvice {
+
+	private final ObjectProvider<FeatureFlagService> featureFlagService;
+
+	FeatureFlagModelAdvice(ObjectProvider<FeatureFlagService> featureFlagService) {
+		this.featureFlagService = featureFlagService;
+	}
+
+	@ModelAttribute(FeatureFlagRequestContext.ATTRIBUTE)
+	public FeatureFlagRequestContext featureFlags() {
+		FeatureFlagService featureFlagService = this.featureFlagService.getIfAvailable();
+		return (featureFlagService != null) ? featureFlagService.requestContext() : null;
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+/**
+ * Selection of flags to list, one page at a time. Flags are ordered by name, which is
+ * unique, so a page continues after the name the previous page ended with rather than at
+ * an offset, and pages stay stable while flags are added or removed.
+ *
+ * @param prefix the prefix the name must start with, or {@code null} for any name
+ * @param enabled the enabled state the flag must have, or {@code null} for either
+ * @param after the name the page starts after, or {@code null} for the first page
+ * @param limit the maximum number of flags in the page
+ */
+public record FeatureFlagQuery(String prefix, Boolean enabled, String after, int limit) {
+
+	public FeatureFlagQuery {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit must be positive");
+		}
+	}
+
+	/**
+	 * Return the query for the page following the one that ended with the given name.
+	 */
+	FeatureFlagQuery after(String name) {
+		return new FeatureFlagQuery(this.prefix, this.enabled, name, this.limit);
+	}
+
+	/**
+	 * Return the prefix as a {@code LIKE} pattern escaped with {@code !}, or {@code null}
+	 * if there is no prefix.
+	 */
+	String prefixPattern() {
+		if (this.prefix == null) {
+			return null;
+		}
+		return this.prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+	}
+
+	boolean matches(FeatureFlag featureFlag) {
+		String name = featureFlag.getName();
+		return (this.prefix == null || name.startsWith(this.prefix))
+				&& (this.enabled == null || this.enabled.equals(featureFlag.getEnabled()))
+				&& (this.after == null || name.compareTo(this.after) > 0);
+	}
+
+}
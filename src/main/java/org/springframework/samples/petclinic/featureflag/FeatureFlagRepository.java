@@ -15,14 +15,38 @@
  */
 package org.springframework.samples.petclinic.featureflag;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Integer> {
+public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Integer>, FeatureFlagStatements {
+
+	String PAGE_CONDITION = "WHERE (:prefix IS NULL OR f.name LIKE :prefix ESCAPE '!') "
+			+ "AND (:enabled IS NULL OR f.enabled = :enabled) AND (:after IS NULL OR f.name > :after) "
+			+ "ORDER BY f.name";
 
 	Optional<FeatureFlag> findByName(String name);
 
 	boolean existsByName(String name);
 
+	List<FeatureFlag> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+	/**
+	 * Return a page of flags ordered by name, continuing after the given name.
+	 * @param prefix a {@code LIKE} pattern escaped with {@code !}, or {@code null}
+	 */
+	@Query("SELECT f FROM FeatureFlag f " + PAGE_CONDITION)
+	List<FeatureFlag> findPage(String prefix, Boolean enabled, String after, Pageable pageable);
+
+	/**
+	 * Return a page of flags like {@link #findPage}, reading only their name and state.
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.featureflag.FeatureFlagSummary(f.name, f.enabled) "
+			+ "FROM FeatureFlag f " + PAGE_CONDITION)
+	List<FeatureFlagSummary> findSummaryPage(String prefix, Boolean enabled, String after, Pageable pageable);
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-request view of the feature flags. The context pins the {@link FeatureFlagSnapshot}
+ * that was current when the request first checked a flag, so every check made while
+ * handling the request sees the same state even if a flag is toggled concurrently. Each
+ * flag is resolved once and later checks are answered from the resolved value.
+ * <p>
+ * The context is stored as the {@value #ATTRIBUTE} request attribute and is exposed to
+ * templates under the same name.
+ */
+public final class FeatureFlagRequestContext {
+
+	/**
+	 * Name of the request attribute and model attribute holding the context.
+	 */
+	public static final String ATTRIBUTE = "featureFlags";
+
+	private final FeatureFlagSnapshot snapshot;
+
+	private final Map<String, Boolean> resolved = new LinkedHashMap<>();
+
+	FeatureFlagRequestContext(FeatureFlagSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public boolean isEnabled(String flagName) {
+		Boolean enabled = this.resolved.get(flagName);
+		if (enabled == null) {
+			enabled = this.snapshot.isEnabled(flagName);
+			this.resolved.put(flagName, enabled);
+		}
+		return enabled;
+	}
+
+	/**
+	 * Return the version of the snapshot pinned by the request.
+	 */
+	long getVersion() {
+		return this.snapshot.version();
+	}
+
+	/**
+	 * Evaluate a targeted flag against the given context. Targeted checks are answered
+	 * from the request's snapshot but are not memoized, as they depend on the context.
+	 */
+	public boolean isEnabled(String flagName, FeatureFlagEvaluationContext context) {
+		return (context != null) ? this.snapshot.isEnabled(flagName, context) : isEnabled(flagName);
+	}
+
+	/**
+	 * Return the flags resolved so far while handling the current request.
+	 * @return an unmodifiable map of flag name to resolved state
+	 */
+	public Map<String, Boolean> getResolved() {
+		return Collections.unmodifiableMap(this.resolved);
+	}
+
+	/**
+	 * Return the state of every flag as seen by the current request.
+	 * @return an unmodifiable map of flag name to enabled state
+	 */
+	public Map<String, Boolean> getAll() {
+		return this.snapshot.asMap();
+	}
+
+}
@@ -28,4 +28,12 @@ public @interface FeatureFlagRequired {
 
 	boolean throwException() default true;
 
+	/**
+	 * Name of the method parameter the flag is evaluated against when it uses a rollout
+	 * percentage or targeting rules. The parameter must be a
+	 * {@link FeatureFlagEvaluationContext}, built by the caller from whatever the flag is
+	 * evaluated for. By default the flag is evaluated without a context.
+	 */
+	String context() default "";
+
 }
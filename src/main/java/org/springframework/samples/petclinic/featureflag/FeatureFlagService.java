@@ -15,83 +15,416 @@
  */
 package org.springframework.samples.petclinic.featureflag;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+/**
+ * Manages {@link FeatureFlag}s and answers whether a flag is enabled.
+ * <p>
+ * Flag checks are served from an immutable {@link FeatureFlagSnapshot} that is published
+ * through a single volatile reference, so {@link #isEnabled(String)} is a plain map read
+ * without a cache proxy or a transaction. Flags are read from and written to a
+ * {@link FeatureFlagStore}; mutations replace the snapshot copy-on-write once the store
+ * has committed them.
+ * <p>
+ * Checks made while handling a web request go through the request's
+ * {@link FeatureFlagRequestContext}, so a request never observes a flag flipping halfway
+ * through.
+ * <p>
+ * Every change to the snapshot is announced with a {@link FeatureFlagsChangedEvent} and
+ * written to the {@link FeatureFlagSnapshotFile}. When that file exists at startup, flags
+ * are served from it until the table has been read, so that the first checks do not wait
+ * for the database.
+ * <p>
+ * Every committed change is recorded in the {@link FeatureFlagAuditLog}.
+ */
 @Service
-@Transactional
+@ImportRuntimeHints(FeatureFlagRuntimeHints.class)
 public class FeatureFlagService {
 
-	private final FeatureFlagRepository repository;
+	private static final Log logger = LogFactory.getLog(FeatureFlagService.class);
+
+	private final FeatureFlagStore store;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final FeatureFlagSnapshotFile snapshotFile;
+
+	private final FeatureFlagAuditLog auditLog;
+
+	private final Object monitor = new Object();
+
+	private volatile FeatureFlagSnapshot snapshot;
+
+	private volatile boolean stale;
+
+	private final Map<String, FeatureFlagHandle> handles = new ConcurrentHashMap<>();
 
-	public FeatureFlagService(FeatureFlagRepository repository) {
-		this.repository = repository;
+	private final FeatureFlagStatistics statistics = new FeatureFlagStatistics();
+
+	public FeatureFlagService(FeatureFlagStore store, ApplicationEventPublisher eventPublisher,
+			FeatureFlagSnapshotFile snapshotFile, FeatureFlagAuditLog auditLog) {
+		this.store = store;
+		this.eventPublisher = eventPublisher;
+		this.snapshotFile = snapshotFile;
+		this.auditLog = auditLog;
+		FeatureFlagSnapshot persisted = snapshotFile.read();
+		if (persisted != null) {
+			this.snapshot = persisted.withVersion(1);
+			this.stale = true;
+		}
 	}
 
-	@Cacheable(value = "featureFlags", key = "#flagName")
-	@Transactional(readOnly = true)
 	public boolean isEnabled(String flagName) {
-		return repository.findByName(flagName).map(FeatureFlag::getEnabled).orElse(false);
+		long start = this.statistics.start();
+		FeatureFlagSnapshot snapshot = snapshot();
+		FeatureFlagRequestContext context = requestContext();
+		boolean enabled = (context != null) ? context.isEnabled(flagName) : snapshot.isEnabled(flagName);
+		this.statistics.record(flagName, snapshot, enabled, start);
+		return enabled;
+	}
+
+	/**
+	 * Evaluate a flag for a specific subject, taking its rollout percentage and targeting
+	 * rules into account.
+	 * @param flagName the name of the flag
+	 * @param context the subject to evaluate the flag for, may be {@code null}
+	 * @return whether the flag is enabled for the subject
+	 */
+	public boolean isEnabled(String flagName, FeatureFlagEvaluationContext context) {
+		if (context == null) {
+			return isEnabled(flagName);
+		}
+		long start = this.statistics.start();
+		FeatureFlagSnapshot snapshot = snapshot();
+		FeatureFlagRequestContext requestContext = requestContext();
+		boolean enabled = (requestContext != null) ? requestContext.isEnabled(flagName, context)
+				: snapshot.isEnabled(flagName, context);
+		this.statistics.record(flagName, snapshot, enabled, start);
+		return enabled;
+	}
+
+	/**
+	 * Return the flag context bound to the current request, creating it on first use.
+	 * @return the request's flag context, or {@code null} when called outside of a web
+	 * request
+	 */
+	public FeatureFlagRequestContext requestContext() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) {
+			return null;
+		}
+		String name = FeatureFlagRequestContext.ATTRIBUTE;
+		Object existing = attributes.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+		if (existing instanceof FeatureFlagRequestContext context) {
+			return context;
+		}
+		FeatureFlagRequestContext created = new FeatureFlagRequestContext(snapshot());
+		attributes.setAttribute(name, created, RequestAttributes.SCOPE_REQUEST);
+		return created;
+	}
+
+	/**
+	 * Reload all flags from the store and publish them as a new snapshot.
+	 */
+	public void refresh() {
+		synchronized (this.monitor) {
+			List<FeatureFlag> flags = this.store.findAll();
+			if (this.snapshot == null) {
+				this.snapshot = FeatureFlagSnapshot.of(flags).withVersion(1);
+				this.snapshotFile.write(this.snapshot);
+			}
+			else {
+				apply(current -> FeatureFlagSnapshot.of(flags).activeAt(current.time()));
+			}
+			this.stale = false;
+		}
+	}
+
+	/**
+	 * Return whether the snapshot was loaded from the {@link FeatureFlagSnapshotFile} and
+	 * the table has not been read since.
+	 */
+	boolean isStale() {
+		return this.stale;
+	}
+
+	/**
+	 * Return whether a snapshot is loaded, from the table or from the
+	 * {@link FeatureFlagSnapshotFile}.
+	 */
+	boolean isLoaded() {
+		return this.snapshot != null;
+	}
+
+	/**
+	 * Return the current snapshot. Its version identifies the state of the whole flag set
+	 * and increases with every change, local or picked up from another node.
+	 */
+	FeatureFlagSnapshot snapshot() {
+		FeatureFlagSnapshot current = this.snapshot;
+		if (current == null) {
+			synchronized (this.monitor) {
+				current = this.snapshot;
+				if (current == null) {
+					current = FeatureFlagSnapshot.of(this.store.findAll()).withVersion(1);
+					this.snapshot = current;
+					this.snapshotFile.write(current);
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Return how often each flag was evaluated, and with which outcome.
+	 */
+	FeatureFlagStatistics statistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * Return whether the alternative guarded by the given flag currently runs in the
+	 * shadow of the primary path.
+	 */
+	boolean isShadowed(String flagName) {
+		return snapshot().isShadowed(flagName);
+	}
+
+	/**
+	 * Return a handle on the untargeted state of the given flag, kept current as the flag
+	 * changes. Unlike {@link #isEnabled(String)} a handle is not pinned to the current
+	 * request, it always reflects the latest snapshot.
+	 * @param flagName the name of the flag
+	 * @return the handle, shared by every caller asking for the same flag
+	 */
+	FeatureFlagHandle handle(String flagName) {
+		FeatureFlagHandle handle = this.handles.get(flagName);
+		if (handle != null) {
+			return handle;
+		}
+		synchronized (this.monitor) {
+			return this.handles.computeIfAbsent(flagName,
+					(name) -> new FeatureFlagHandle(name, snapshot(), this.statistics.forFlag(name)));
+		}
+	}
+
+	/**
+	 * Apply flags that were changed or deleted on another node to the local snapshot.
+	 * Changes that are older than the state already held locally are ignored.
+	 * @param changed the flags created or updated since the last synchronization
+	 * @param deleted the names of flags deleted since the last synchronization, with the
+	 * time of deletion
+	 */
+	void applyChanges(Collection<FeatureFlag> changed, Map<String, LocalDateTime> deleted) {
+		if (!changed.isEmpty() || !deleted.isEmpty()) {
+			apply(current -> current.merge(changed, deleted));
+		}
 	}
 
-	@Transactional(readOnly = true)
 	public List<FeatureFlag> findAll() {
-		return repository.findAll();
+		return this.store.findAll();
+	}
+
+	/**
+	 * Return a page of the flags matching the query, ordered by name.
+	 */
+	public List<FeatureFlag> find(FeatureFlagQuery query) {
+		return this.store.find(query);
+	}
+
+	/**
+	 * Return a page of the flags matching the query, with only their name and enabled
+	 * state.
+	 */
+	public List<FeatureFlagSummary> findSummaries(FeatureFlagQuery query) {
+		return this.store.findSummaries(query);
 	}
 
-	@Transactional(readOnly = true)
 	public Optional<FeatureFlag> findById(Integer id) {
-		return repository.findById(id);
+		return this.store.findById(id);
 	}
 
-	@Transactional(readOnly = true)
 	public Optional<FeatureFlag> findByName(String name) {
-		return repository.findByName(name);
+		return this.store.findByName(name);
 	}
 
-	@CacheEvict(value = "featureFlags", key = "#featureFlag.name")
 	public FeatureFlag create(FeatureFlag featureFlag) {
-		if (repository.existsByName(featureFlag.getName())) {
-			throw new IllegalArgumentException("Feature flag with name '" + featureFlag.getName() + "' already exists");
-		}
-		return repository.save(featureFlag);
+		TargetingRules.parse(featureFlag.getTargetingRules());
+		checkActivationWindow(featureFlag.getActiveFrom(), featureFlag.getActiveUntil(),
+				Boolean.TRUE.equals(featureFlag.getWindowDaily()));
+		FeatureFlag saved = this.store.create(featureFlag);
+		publish(current -> current.with(saved));
+		audit(saved.getName(), "created", describe(saved));
+		return saved;
 	}
 
-	@CacheEvict(value = "featureFlags", allEntries = true)
+	/**
+	 * Overwrite a flag. If the given flag carries a version, the update only succeeds if
+	 * the flag has not been changed since.
+	 * @throws FeatureFlagNotFoundException if there is no such flag
+	 * @throws IllegalArgumentException if the targeting rules or the activation window
+	 * are invalid, or the new name is taken
+	 * @throws OptimisticLockingFailureException if the flag was changed concurrently
+	 */
 	public FeatureFlag update(Integer id, FeatureFlag featureFlag) {
-		FeatureFlag existing = repository.findById(id)
-			.orElseThrow(() -> new IllegalArgumentException("Feature flag not found with id: " + id));
+		TargetingRules.parse(featureFlag.getTargetingRules());
+		checkActivationWindow(featureFlag.getActiveFrom(), featureFlag.getActiveUntil(),
+				Boolean.TRUE.equals(featureFlag.getWindowDaily()));
+		FeatureFlag saved = this.store.update(id, featureFlag).orElseThrow(() -> notFound(id));
+		publish(current -> current.with(saved));
+		audit(saved.getName(), "updated", describe(saved));
+		return saved;
+	}
+
+	public void delete(Integer id) {
+		FeatureFlag deleted = this.store.delete(id).orElseThrow(() -> notFound(id));
+		String name = deleted.getName();
+		publish(current -> current.without(name));
+		audit(name, "deleted", null);
+	}
+
+	/**
+	 * Flip a flag atomically, so that concurrent toggles are never lost.
+	 * @throws IllegalArgumentException if there is no such flag
+	 */
+	public FeatureFlag toggle(Integer id) {
+		FeatureFlag toggled = this.store.toggle(id).orElseThrow(() -> notFound(id));
+		publish(current -> current.with(toggled));
+		audit(toggled.getName(), "toggled", "enabled=" + toggled.getEnabled());
+		return toggled;
+	}
+
+	/**
+	 * Switch a flag on or off on behalf of an automated controller rather than a user.
+	 * The transition is logged with its reason.
+	 * @param name the name of the flag
+	 * @param enabled the state to switch to
+	 * @param version the version the flag must still have, or {@code null} to switch it
+	 * regardless
+	 * @param reason why the flag is switched
+	 * @return the switched flag, or empty if there is no such flag, it already had the
+	 * state or it was changed since the given version
+	 */
+	public Optional<FeatureFlag> switchFlag(String name, boolean enabled, Long version, String reason) {
+		Optional<FeatureFlag> switched = this.store.switchEnabled(name, enabled, version);
+		switched.ifPresent((flag) -> {
+			publish(current -> current.with(flag));
+			audit(name, "switched", "enabled=" + enabled + ", " + reason);
+			logger.warn("Feature flag '" + name + "' switched " + (enabled ? "on" : "off") + ": " + reason);
+		});
+		return switched;
+	}
 
-		if (!existing.getName().equals(featureFlag.getName()) && repository.existsByName(featureFlag.getName())) {
-			throw new IllegalArgumentException("Feature flag with name '" + featureFlag.getName() + "' already exists");
+	/**
+	 * Evaluate the activation windows of all flags at the given time, publishing a new
+	 * snapshot if any flag entered or left its window.
+	 * @param time the time to evaluate at, ignored if the snapshot is already newer
+	 */
+	void activate(LocalDateTime time) {
+		// a time given before the snapshot is loaded would be lost otherwise
+		snapshot();
+		apply(current -> current.activeAt(time));
+	}
+
+	/**
+	 * Check that an activation window ends after it starts, and that a daily window has
+	 * both ends and is shorter than a day.
+	 * @throws IllegalArgumentException if the window is empty or cannot repeat daily
+	 */
+	static void checkActivationWindow(LocalDateTime activeFrom, LocalDateTime activeUntil, boolean daily) {
+		if (activeFrom != null && activeUntil != null && !activeUntil.isAfter(activeFrom)) {
+			throw new IllegalArgumentException("Active until must be after active from");
+		}
+		if (daily && (activeFrom == null || activeUntil == null || !activeUntil.isBefore(activeFrom.plusDays(1)))) {
+			throw new IllegalArgumentException("A daily window needs active from and until less than a day apart");
 		}
+	}
 
-		existing.setName(featureFlag.getName());
-		existing.setEnabled(featureFlag.getEnabled());
-		existing.setDescription(featureFlag.getDescription());
+	/**
+	 * Record a change in the audit log once the surrounding transaction commits.
+	 */
+	void audit(String flagName, String action, String detail) {
+		afterCommit(() -> this.auditLog.recordChange(flagName, action, detail));
+	}
 
-		return repository.save(existing);
+	/**
+	 * Record, subject to sampling, that a guard evaluated a flag.
+	 * @see FeatureFlagAuditLog#recordEvaluation(String, boolean, String)
+	 */
+	void recordEvaluation(String flagName, boolean enabled, String guarded) {
+		this.auditLog.recordEvaluation(flagName, enabled, guarded);
 	}
 
-	@CacheEvict(value = "featureFlags", allEntries = true)
-	public void delete(Integer id) {
-		if (!repository.existsById(id)) {
-			throw new IllegalArgumentException("Feature flag not found with id: " + id);
+	private static String describe(FeatureFlag flag) {
+		return "enabled=" + flag.getEnabled() + ", rollout=" + flag.getRolloutPercentage();
+	}
+
+	private static FeatureFlagNotFoundException notFound(Integer id) {
+		return new FeatureFlagNotFoundException("Feature flag not found with id: " + id);
+	}
+
+	/**
+	 * Reload the snapshot in full once the surrounding transaction commits, for flags
+	 * that were changed in bulk without going through this service.
+	 */
+	void refreshAfterCommit() {
+		afterCommit(this::refresh);
+	}
+
+	/**
+	 * Apply the given change to the published snapshot once the surrounding transaction
+	 * commits, or immediately when no transaction is active. A snapshot that has not been
+	 * loaded yet is left alone, it will be read in full on first use.
+	 */
+	private void publish(UnaryOperator<FeatureFlagSnapshot> change) {
+		afterCommit(() -> apply(change));
+	}
+
+	private void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		}
+		else {
+			action.run();
 		}
-		repository.deleteById(id);
 	}
 
-	@CacheEvict(value = "featureFlags", key = "#result.name", condition = "#result != null")
-	public FeatureFlag toggle(Integer id) {
-		FeatureFlag flag = repository.findById(id)
-			.orElseThrow(() -> new IllegalArgumentException("Feature flag not found with id: " + id));
-		flag.setEnabled(!flag.getEnabled());
-		return repository.save(flag);
+	private void apply(UnaryOperator<FeatureFlagSnapshot> change) {
+		synchronized (this.monitor) {
+			FeatureFlagSnapshot current = this.snapshot;
+			if (current != null) {
+				FeatureFlagSnapshot updated = change.apply(current).withVersion(current.version() + 1);
+				List<FeatureFlagsChangedEvent.Change> changes = updated.changesSince(current);
+				if (!changes.isEmpty()) {
+					this.snapshot = updated;
+					this.snapshotFile.write(updated);
+					this.handles.values().forEach((handle) -> handle.update(updated));
+					this.eventPublisher.publishEvent(new FeatureFlagsChangedEvent(updated.version(), changes));
+				}
+			}
+		}
 	}
 
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Chooses between the current path and a candidate replacement guarded by a flag, and
+ * lets the candidate run in the shadow of the current path to compare the two on real
+ * traffic.
+ * <p>
+ * While the flag is enabled the candidate replaces the current path. While it is disabled
+ * the current path runs; if the flag is also marked as {@link FeatureFlag#getShadow()
+ * shadow}, the candidate is started alongside it on a small dedicated pool and its result
+ * is discarded. Shadow calls therefore must not have side effects, and they run outside
+ * of the web request that started them.
+ * <p>
+ * Every call is timed into the {@code petclinic.featureflags.path} histogram, tagged with
+ * the flag, the {@code path} taken ({@code current} or {@code candidate}) and whether it
+ * ran in the {@code shadow}. At most a fixed number of shadow calls run or wait at any
+ * time, calls beyond that are skipped and counted rather than queued, so shadow work can
+ * never hold up request threads.
+ */
+@Component
+public class FeatureFlagShadowRunner implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(FeatureFlagShadowRunner.class);
+
+	private final FeatureFlagService featureFlagService;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Executor executor;
+
+	private final Semaphore permits;
+
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final Map<String, Counter> skipped = new ConcurrentHashMap<>();
+
+	@Autowired
+	FeatureFlagShadowRunner(FeatureFlagService featureFlagService, ObjectProvider<MeterRegistry> meterRegistry,
+			@Value("${petclinic.feature-flags.shadow.threads:2}") int threads,
+			@Value("${petclinic.feature-flags.shadow.max-concurrency:16}") int maxConcurrency) {
+		this(featureFlagService, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+				new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+						new ArrayBlockingQueue<>(maxConcurrency), new CustomizableThreadFactory("flag-shadow-")),
+				maxConcurrency);
+	}
+
+	FeatureFlagShadowRunner(FeatureFlagService featureFlagService, MeterRegistry meterRegistry, Executor executor,
+			int maxConcurrency) {
+		this.featureFlagService = featureFlagService;
+		this.meterRegistry = meterRegistry;
+		this.executor = executor;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Run the path selected by the given flag.
+	 * @param flagName the name of the flag guarding the candidate
+	 * @param current the current path
+	 * @param candidate the replacement, run instead of the current path while the flag is
+	 * enabled and in its shadow while the flag is in shadow mode
+	 * @return the result of the path taken
+	 */
+	public <T> T run(String flagName, Supplier<T> current, Supplier<T> candidate) {
+		if (this.featureFlagService.isEnabled(flagName)) {
+			return timed(flagName, "candidate", false, candidate);
+		}
+		if (this.featureFlagService.isShadowed(flagName)) {
+			shadow(flagName, candidate);
+		}
+		return timed(flagName, "current", false, current);
+	}
+
+	private void shadow(String flagName, Supplier<?> candidate) {
+		if (!this.permits.tryAcquire()) {
+			skipped(flagName);
+			return;
+		}
+		try {
+			this.executor.execute(() -> {
+				try {
+					timed(flagName, "candidate", true, candidate);
+				}
+				catch (RuntimeException ex) {
+					logger.debug("Shadow call of feature flag '" + flagName + "' failed", ex);
+				}
+				finally {
+					this.permits.release();
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			this.permits.release();
+			skipped(flagName);
+		}
+	}
+
+	private <T> T timed(String flagName, String path, boolean shadow, Supplier<T> call) {
+		long start = System.nanoTime();
+		try {
+			return call.get();
+		}
+		finally {
+			timer(flagName, path, shadow).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private Timer timer(String flagName, String path, boolean shadow) {
+		return this.timers.computeIfAbsent(flagName + "/" + path + "/" + shadow,
+				(key) -> Timer.builder("petclinic.featureflags.path")
+					.description("Latency of the paths guarded by feature flags")
+					.tag("flag", flagName)
+					.tag("path", path)
+					.tag("shadow", Boolean.toString(shadow))
+					.publishPercentileHistogram()
+					.register(this.meterRegistry));
+	}
+
+	private void skipped(String flagName) {
+		this.skipped
+			.computeIfAbsent(flagName,
+					(key) -> Counter.builder("petclinic.featureflags.shadow.skipped")
+						.description("Number of shadow calls skipped because too many were running")
+						.tag("flag", flagName)
+						.register(this.meterRegistry))
+			.increment();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.executor instanceof ExecutorService executorService) {
+			executorService.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the enabled state of every feature flag. A snapshot is never modified
+ * once published; changes produce a new snapshot that replaces the previous one.
+ * <p>
+ * Alongside the enabled state the snapshot remembers when each flag was last updated, so
+ * that changes read from the database are only applied when they are newer than what the
+ * snapshot already holds.
+ * <p>
+ * Flags with a rollout percentage or targeting rules are only enabled for a matching
+ * {@link FeatureFlagEvaluationContext}; checks without a context treat them as disabled.
+ * Rollout buckets come from a stable hash of the flag name and the owner id, so an owner
+ * stays in the same bucket on every node and across restarts.
+ * <p>
+ * Every published snapshot carries a version that increases by one with each change. The
+ * operations deriving a new snapshot keep the version, the publisher assigns the next
+ * one. Versions are only meaningful within one running instance, {@link #tag()} combines
+ * the version with an identifier of the instance for use outside of it.
+ * <p>
+ * A snapshot can be written to and read back from a compact binary form, see
+ * {@link FeatureFlagSnapshotFile}.
+ * <p>
+ * Flags with an activation window are evaluated as disabled outside of it, or inside of
+ * it when the window is inverted; a daily window opens again every day. Whether a flag is
+ * in effect is decided once, for the time the snapshot was built at, so checks never
+ * compare times. {@link FeatureFlagActivationScheduler} publishes a new snapshot whenever
+ * a window opens or closes.
+ */
+final class FeatureFlagSnapshot {
+
+	static final FeatureFlagSnapshot EMPTY = new FeatureFlagSnapshot(Map.of(), 0, LocalDateTime.MIN);
+
+	/**
+	 * Marks the start of the binary form, followed by the format version.
+	 */
+	private static final int MAGIC = 0x50434646;
+
+	private static final int FORMAT = 4;
+
+	/**
+	 * Identifies this running instance, so that versions from different instances (or
+	 * from before a restart) are never mistaken for one another.
+	 */
+	static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+	private final Map<String, State> states;
+
+	private final Map<String, Boolean> flags;
+
+	private final Set<String> inactive;
+
+	private final long version;
+
+	private final LocalDateTime time;
+
+	private FeatureFlagSnapshot(Map<String, State> states, long version, LocalDateTime time) {
+		this.states = Map.copyOf(states);
+		this.version = version;
+		this.time = time;
+		Map<String, Boolean> flags = new HashMap<>(states.size() * 2);
+		Set<String> inactive = new HashSet<>();
+		states.forEach((name, state) -> {
+			boolean active = state.isActiveAt(time);
+			if (!active) {
+				inactive.add(name);
+			}
+			flags.put(name, active && state.isEnabledForEveryone());
+		});
+		this.flags = Map.copyOf(flags);
+		this.inactive = Set.copyOf(inactive);
+	}
+
+	static FeatureFlagSnapshot of(Collection<FeatureFlag> featureFlags) {
+		Map<String, State> states = new HashMap<>(featureFlags.size() * 2);
+		for (FeatureFlag featureFlag : featureFlags) {
+			states.put(featureFlag.getName(), State.of(featureFlag));
+		}
+		return new FeatureFlagSnapshot(states, 0, LocalDateTime.now());
+	}
+
+	long version() {
+		return this.version;
+	}
+
+	FeatureFlagSnapshot withVersion(long version) {
+		return new FeatureFlagSnapshot(this.states, version, this.time);
+	}
+
+	/**
+	 * Return the time the activation windows of this snapshot were evaluated at.
+	 */
+	LocalDateTime time() {
+		return this.time;
+	}
+
+	/**
+	 * Return a snapshot with the activation windows evaluated at the given time. The time
+	 * never goes backwards, an earlier time than the current one is ignored.
+	 */
+	FeatureFlagSnapshot activeAt(LocalDateTime time) {
+		return new FeatureFlagSnapshot(this.states, this.version, later(time));
+	}
+
+	/**
+	 * Return, for each flag whose activation window opens or closes after the time of
+	 * this snapshot, the time of its next such transition.
+	 */
+	Map<String, LocalDateTime> nextTransitions() {
+		Map<String, LocalDateTime> transitions = new HashMap<>();
+		this.states.forEach((name, state) -> {
+			LocalDateTime next = state.nextTransitionAfter(this.time);
+			if (next != null) {
+				transitions.put(name, next);
+			}
+		});
+		return transitions;
+	}
+
+	/**
+	 * Return an identifier of this snapshot that is unique across instances.
+	 */
+	String tag() {
+		return EPOCH + "-" + this.version;
+	}
+
+	boolean contains(String name) {
+		return name != null && this.states.containsKey(name);
+	}
+
+	boolean isEnabled(String name) {
+		if (name == null) {
+			return false;
+		}
+		Boolean enabled = this.flags.get(name);
+		return enabled != null && enabled;
+	}
+
+	boolean isEnabled(String name, FeatureFlagEvaluationContext context) {
+		State state = (name != null) ? this.states.get(name) : null;
+		return state != null && !this.inactive.contains(name) && state.isEnabledFor(context);
+	}
+
+	/**
+	 * Return whether the given flag exists and is within its activation window.
+	 */
+	boolean isActive(String name) {
+		return contains(name) && !this.inactive.contains(name);
+	}
+
+	boolean isShadowed(String name) {
+		State state = (name != null) ? this.states.get(name) : null;
+		return state != null && state.shadow();
+	}
+
+	/**
+	 * Return a snapshot holding the given flag, replacing the previous state of the flag
+	 * even if it was renamed.
+	 */
+	FeatureFlagSnapshot with(FeatureFlag featureFlag) {
+		Map<String, State> states = new HashMap<>(this.states);
+		put(states, featureFlag.getName(), State.of(featureFlag));
+		return new FeatureFlagSnapshot(states, this.version, later(LocalDateTime.now()));
+	}
+
+	FeatureFlagSnapshot without(String name) {
+		if (!this.states.containsKey(name)) {
+			return this;
+		}
+		Map<String, State> states = new HashMap<>(this.states);
+		states.remove(name);
+		return new FeatureFlagSnapshot(states, this.version, later(LocalDateTime.now()));
+	}
+
+	/**
+	 * Apply changes read from the database. Updated flags and deletions are only applied
+	 * when they are not older than the state this snapshot already holds for the flag.
+	 * @param changed the flags that were created or updated
+	 * @param deleted the names of deleted flags, with the time of deletion
+	 * @return the resulting snapshot, or this instance if nothing changed
+	 */
+	FeatureFlagSnapshot merge(Collection<FeatureFlag> changed, Map<String, LocalDateTime> deleted) {
+		Map<String, State> states = null;
+		for (FeatureFlag featureFlag : changed) {
+			State incoming = State.of(featureFlag);
+			State known = this.states.get(featureFlag.getName());
+			if (known == null || (!known.equals(incoming) && !incoming.isOlderThan(known.updatedAt()))) {
+				states = (states != null) ? states : new HashMap<>(this.states);
+				put(states, featureFlag.getName(), incoming);
+			}
+		}
+		for (Map.Entry<String, LocalDateTime> deletion : deleted.entrySet()) {
+			State known = this.states.get(deletion.getKey());
+			if (known != null && !known.isNewerThan(deletion.getValue())) {
+				states = (states != null) ? states : new HashMap<>(this.states);
+				states.remove(deletion.getKey());
+			}
+		}
+		return (states != null) ? new FeatureFlagSnapshot(states, this.version, later(LocalDateTime.now())) : this;
+	}
+
+	/**
+	 * Return the flags that differ between the given, older snapshot and this one.
+	 * @param previous the snapshot this one replaces
+	 * @return the changed flags, a {@code null} state denoting a deleted flag
+	 */
+	List<FeatureFlagsChangedEvent.Change> changesSince(FeatureFlagSnapshot previous) {
+		List<FeatureFlagsChangedEvent.Change> changes = new ArrayList<>();
+		this.states.forEach((name, state) -> {
+			if (!state.equals(previous.states.get(name)) || isActive(name) != previous.isActive(name)) {
+				changes.add(new FeatureFlagsChangedEvent.Change(name, state.describe(name, isActive(name))));
+			}
+		});
+		previous.states.keySet().forEach((name) -> {
+			if (!this.states.containsKey(name)) {
+				changes.add(new FeatureFlagsChangedEvent.Change(name, null));
+			}
+		});
+		return changes;
+	}
+
+	/**
+	 * Describe every flag in this snapshot, ordered by name.
+	 */
+	List<FeatureFlagState> describe() {
+		List<FeatureFlagState> described = new ArrayList<>(this.states.size());
+		this.states.forEach((name, state) -> described.add(state.describe(name, isActive(name))));
+		described.sort(Comparator.comparing(FeatureFlagState::name));
+		return described;
+	}
+
+	Map<String, Boolean> asMap() {
+		return this.flags;
+	}
+
+	/**
+	 * Check several flags at once. Unknown flags are reported as disabled.
+	 * @param names the names of the flags to check
+	 * @return the enabled state of each flag, in the order requested
+	 */
+	Map<String, Boolean> check(Collection<String> names) {
+		Map<String, Boolean> checked = new LinkedHashMap<>(names.size() * 2);
+		for (String name : names) {
+			checked.put(name, isEnabled(name));
+		}
+		return checked;
+	}
+
+	/**
+	 * Write every flag in its binary form. The version is not written, it is only
+	 * meaningful within the instance that assigned it.
+	 */
+	void writeTo(DataOutput output) throws IOException {
+		writeHeader(output);
+		output.writeInt(this.states.size());
+		for (Map.Entry<String, State> entry : this.states.entrySet()) {
+			writeFlag(output, entry.getValue().toFeatureFlag(entry.getKey()));
+		}
+	}
+
+	/**
+	 * Read a snapshot written by {@link #writeTo(DataOutput)}.
+	 * @throws IOException if the input is not a snapshot in the current format
+	 */
+	static FeatureFlagSnapshot readFrom(DataInput input) throws IOException {
+		readHeader(input);
+		int size = input.readInt();
+		Map<String, State> states = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			FeatureFlag featureFlag = readFlag(input);
+			states.put(featureFlag.getName(), State.of(featureFlag));
+		}
+		return new FeatureFlagSnapshot(states, 0, LocalDateTime.now());
+	}
+
+	/**
+	 * Write the start of the binary form, which identifies it and its format.
+	 */
+	static void writeHeader(DataOutput output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeByte(FORMAT);
+	}
+
+	/**
+	 * Read the start of the binary form written by {@link #writeHeader(DataOutput)}.
+	 * @throws IOException if the input is not in the current format
+	 */
+	static void readHeader(DataInput input) throws IOException {
+		if (input.readInt() != MAGIC || input.readByte() != FORMAT) {
+			throw new IOException("Not feature flags in format " + FORMAT);
+		}
+	}
+
+	/**
+	 * Write a flag in the binary form shared by snapshots and the
+	 * {@link FileFeatureFlagStore}. Fields a snapshot does not hold are written as
+	 * absent.
+	 */
+	static void writeFlag(DataOutput output, FeatureFlag featureFlag) throws IOException {
+		output.writeBoolean(featureFlag.getId() != null);
+		if (featureFlag.getId() != null) {
+			output.writeInt(featureFlag.getId());
+		}
+		output.writeUTF(featureFlag.getName());
+		output.writeBoolean(Boolean.TRUE.equals(featureFlag.getEnabled()));
+		writeString(output, featureFlag.getDescription());
+		output.writeInt((featureFlag.getRolloutPercentage() != null) ? featureFlag.getRolloutPercentage() : -1);
+		writeString(output, featureFlag.getTargetingRules());
+		output.writeBoolean(Boolean.TRUE.equals(featureFlag.getShadow()));
+		writeTime(output, featureFlag.getActiveFrom());
+		writeTime(output, featureFlag.getActiveUntil());
+		output.writeBoolean(Boolean.TRUE.equals(featureFlag.getWindowInverted()));
+		output.writeBoolean(Boolean.TRUE.equals(featureFlag.getWindowDaily()));
+		output.writeBoolean(featureFlag.getVersion() != null);
+		if (featureFlag.getVersion() != null) {
+			output.writeLong(featureFlag.getVersion());
+		}
+		writeTime(output, featureFlag.getCreatedAt());
+		writeTime(output, featureFlag.getUpdatedAt());
+	}
+
+	/**
+	 * Read a flag written by {@link #writeFlag(DataOutput, FeatureFlag)}.
+	 */
+	static FeatureFlag readFlag(DataInput input) throws IOException {
+		FeatureFlag featureFlag = new FeatureFlag();
+		featureFlag.setId(input.readBoolean() ? input.readInt() : null);
+		featureFlag.setName(input.readUTF());
+		featureFlag.setEnabled(input.readBoolean());
+		featureFlag.setDescription(readString(input));
+		int rolloutPercentage = input.readInt();
+		featureFlag.setRolloutPercentage((rolloutPercentage >= 0) ? rolloutPercentage : null);
+		featureFlag.setTargetingRules(readString(input));
+		featureFlag.setShadow(input.readBoolean());
+		featureFlag.setActiveFrom(readTime(input));
+		featureFlag.setActiveUntil(readTime(input));
+		featureFlag.setWindowInverted(input.readBoolean());
+		featureFlag.setWindowDaily(input.readBoolean());
+		featureFlag.setVersion(input.readBoolean() ? input.readLong() : null);
+		featureFlag.setCreatedAt(readTime(input));
+		featureFlag.setUpdatedAt(readTime(input));
+		return featureFlag;
+	}
+
+	static void writeTime(DataOutput output, LocalDateTime time) throws IOException {
+		output.writeBoolean(time != null);
+		if (time != null) {
+			output.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+			output.writeInt(time.getNano());
+		}
+	}
+
+	static LocalDateTime readTime(DataInput input) throws IOException {
+		return input.readBoolean() ? LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC)
+				: null;
+	}
+
+	private static void writeString(DataOutput output, String value) throws IOException {
+		output.writeBoolean(value != null);
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInput input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+	private LocalDateTime later(LocalDateTime time) {
+		return time.isAfter(this.time) ? time : this.time;
+	}
+
+	private static void put(Map<String, State> states, String name, State state) {
+		if (state.id() != null) {
+			states.values().removeIf((existing) -> state.id().equals(existing.id()));
+		}
+		states.put(name, state);
+	}
+
+	/**
+	 * Return the rollout bucket, between 0 and 99, of the given key for a flag.
+	 * @param salt the hash of the flag name, so that different flags bucket differently
+	 * @param key the targeting key
+	 */
+	static int bucket(int salt, int key) {
+		int hash = salt ^ (key * 0x9E3779B9);
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return Integer.remainderUnsigned(hash, 100);
+	}
+
+	private record State(Integer id, boolean enabled, LocalDateTime updatedAt, int rolloutPercentage,
+			String targetingRules, TargetingRules rules, boolean shadow, LocalDateTime activeFrom,
+			LocalDateTime activeUntil, boolean windowInverted, boolean windowDaily, int salt) {
+
+		static State of(FeatureFlag featureFlag) {
+			Integer rolloutPercentage = featureFlag.getRolloutPercentage();
+			return of(featureFlag.getName(), featureFlag.getId(), Boolean.TRUE.equals(featureFlag.getEnabled()),
+					featureFlag.getUpdatedAt(), (rolloutPercentage != null) ? rolloutPercentage : 100,
+					featureFlag.getTargetingRules(), Boolean.TRUE.equals(featureFlag.getShadow()),
+					featureFlag.getActiveFrom(), featureFlag.getActiveUntil(),
+					Boolean.TRUE.equals(featureFlag.getWindowInverted()),
+					Boolean.TRUE.equals(featureFlag.getWindowDaily()));
+		}
+
+		static State of(String name, Integer id, boolean enabled, LocalDateTime updatedAt, int rolloutPercentage,
+				String targetingRules, boolean shadow, LocalDateTime activeFrom, LocalDateTime activeUntil,
+				boolean windowInverted, boolean windowDaily) {
+			return new State(id, enabled, updatedAt, rolloutPercentage, targetingRules,
+					TargetingRules.parse(targetingRules), shadow, activeFrom, activeUntil, windowInverted, windowDaily,
+					name.hashCode());
+		}
+
+		FeatureFlag toFeatureFlag(String name) {
+			FeatureFlag featureFlag = new FeatureFlag();
+			featureFlag.setId(this.id);
+			featureFlag.setName(name);
+			featureFlag.setEnabled(this.enabled);
+			featureFlag.setRolloutPercentage(this.rolloutPercentage);
+			featureFlag.setTargetingRules(this.targetingRules);
+			featureFlag.setShadow(this.shadow);
+			featureFlag.setActiveFrom(this.activeFrom);
+			featureFlag.setActiveUntil(this.activeUntil);
+			featureFlag.setWindowInverted(this.windowInverted);
+			featureFlag.setWindowDaily(this.windowDaily);
+			featureFlag.setUpdatedAt(this.updatedAt);
+			return featureFlag;
+		}
+
+		FeatureFlagState describe(String name, boolean active) {
+			return new FeatureFlagState(name, this.enabled, this.rolloutPercentage, this.targetingRules, this.shadow,
+					this.activeFrom, this.activeUntil, this.windowInverted, this.windowDaily, active);
+		}
+
+		boolean isActiveAt(LocalDateTime time) {
+			return isInWindowAt(time) != this.windowInverted;
+		}
+
+		private boolean isInWindowAt(LocalDateTime time) {
+			if (this.windowDaily) {
+				return !time.isBefore(this.activeFrom) && time.isBefore(windowOn(time).plus(windowLength()));
+			}
+			return (this.activeFrom == null || !time.isBefore(this.activeFrom))
+					&& (this.activeUntil == null || time.isBefore(this.activeUntil));
+		}
+
+		LocalDateTime nextTransitionAfter(LocalDateTime time) {
+			if (this.activeFrom != null && this.activeFrom.isAfter(time)) {
+				return this.activeFrom;
+			}
+			if (this.windowDaily) {
+				LocalDateTime opened = windowOn(time);
+				LocalDateTime closes = opened.plus(windowLength());
+				return closes.isAfter(time) ? closes : opened.plusDays(1);
+			}
+			if (this.activeUntil != null && this.activeUntil.isAfter(time)) {
+				return this.activeUntil;
+			}
+			return null;
+		}
+
+		/**
+		 * Return when the daily window last opened at or before the given time, which is
+		 * not before the first window.
+		 */
+		private LocalDateTime windowOn(LocalDateTime time) {
+			return this.activeFrom.plusDays(ChronoUnit.DAYS.between(this.activeFrom, time));
+		}
+
+		private Duration windowLength() {
+			return Duration.between(this.activeFrom, this.activeUntil);
+		}
+
+		boolean isEnabledForEveryone() {
+			return this.enabled && this.rolloutPercentage >= 100 && this.rules.isEmpty();
+		}
+
+		boolean isEnabledFor(FeatureFlagEvaluationContext context) {
+			if (context == null) {
+				return isEnabledForEveryone();
+			}
+			if (!this.enabled || !this.rules.matches(context)) {
+				return false;
+			}
+			if (this.rolloutPercentage >= 100) {
+				return true;
+			}
+			Integer ownerId = context.ownerId();
+			return ownerId != null && this.rolloutPercentage > 0 && bucket(this.salt, ownerId) < this.rolloutPercentage;
+		}
+
+		boolean isOlderThan(LocalDateTime time) {
+			return this.updatedAt != null && time != null && this.updatedAt.isBefore(time);
+		}
+
+		boolean isNewerThan(LocalDateTime time) {
+			return this.updatedAt != null && time != null && this.updatedAt.isAfter(time);
+		}
+
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Local copy of the flag snapshot, so that flags can be evaluated at startup before the
+ * flag table has been read. The file is read when the {@link FeatureFlagService} is
+ * created; with the JPA store that still happens after the persistence unit has started,
+ * so the file spares the startup the table read and lets it proceed while the database is
+ * unreachable, but it does not serve flags any earlier. The file holds the compact binary
+ * form of the snapshot and is read with a single read. It is replaced atomically on every
+ * write, so a reader never sees a partially written file.
+ * <p>
+ * The file is only kept when {@code petclinic.feature-flags.snapshot.file} is set.
+ * Failing to read or write it is logged but never fails the caller, the database stays
+ * the source of truth.
+ */
+@Component
+class FeatureFlagSnapshotFile {
+
+	private static final Log logger = LogFactory.getLog(FeatureFlagSnapshotFile.class);
+
+	private final Path path;
+
+	FeatureFlagSnapshotFile(@Value("${petclinic.feature-flags.snapshot.file:}") String path) {
+		this.path = StringUtils.hasText(path) ? Path.of(path) : null;
+	}
+
+	/**
+	 * Read the snapshot last written.
+	 * @return the snapshot, or {@code null} if there is no file or it cannot be read
+	 */
+	FeatureFlagSnapshot read() {
+		if (this.path == null) {
+			return null;
+		}
+		try {
+			byte[] content = Files.readAllBytes(this.path);
+			return FeatureFlagSnapshot.readFrom(new DataInputStream(new ByteArrayInputStream(content)));
+		}
+		catch (NoSuchFileException ex) {
+			return null;
+		}
+		catch (IOException ex) {
+			logger.warn("Ignoring unreadable feature flag snapshot " + this.path, ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Replace the file with the given snapshot.
+	 */
+	void write(FeatureFlagSnapshot snapshot) {
+		if (this.path == null) {
+			return;
+		}
+		try {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			snapshot.writeTo(new DataOutputStream(content));
+			replace(this.path, content.toByteArray());
+		}
+		catch (IOException ex) {
+			logger.warn("Could not write feature flag snapshot " + this.path, ex);
+		}
+	}
+
+	/**
+	 * Replace the given file atomically, by writing a temporary file next to it and
+	 * moving that into place.
+	 */
+	static void replace(Path path, byte[] content) throws IOException {
+		Path directory = path.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path written = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+		try {
+			Files.write(written, content);
+			Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(written);
+		}
+	}
+
+}
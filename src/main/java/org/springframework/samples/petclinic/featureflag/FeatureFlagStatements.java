@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Single statements changing one feature flag, which return the state of the flag as the
+ * statement left it rather than reading it again afterwards.
+ *
+ * @see FeatureFlagStatementsImpl
+ */
+interface FeatureFlagStatements {
+
+	/**
+	 * Flip the enabled state of a flag, so that concurrent toggles are never lost.
+	 * @return the toggled flag, or empty if there is no such flag
+	 */
+	Optional<FeatureFlag> toggle(Integer id, LocalDateTime now);
+
+	/**
+	 * Switch a flag on or off. When a version is given, the flag is only switched if it
+	 * still has that version.
+	 * @return the switched flag, or empty if there is no such flag, it already had the
+	 * state or it was changed since the given version
+	 */
+	Optional<FeatureFlag> switchEnabled(String name, boolean enabled, Long version, LocalDateTime now);
+
+	/**
+	 * Overwrite the settable attributes of a flag. When a version is given, the flag is
+	 * only updated if it still has that version.
+	 * @return the updated flag, or empty if there is no such flag or it was changed since
+	 * the given version
+	 * @throws org.springframework.dao.DuplicateKeyException if the new name is taken
+	 */
+	Optional<FeatureFlag> update(Integer id, Long version, String name, Boolean enabled, String description,
+			Integer rolloutPercentage, String targetingRules, Boolean shadow, LocalDateTime activeFrom,
+			LocalDateTime activeUntil, Boolean windowInverted, Boolean windowDaily, LocalDateTime now);
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * {@link FeatureFlagStatements} reading the changed row back from the update statement
+ * itself: with {@code RETURNING} on PostgreSQL and from the {@code FINAL TABLE} of the
+ * update on H2. MySQL cannot return rows from an update, there the row is read again in
+ * the same transaction, while the update still holds its lock.
+ */
+class FeatureFlagStatementsImpl implements FeatureFlagStatements {
+
+	private static final String COLUMNS = "id, name, enabled, description, rollout_percentage, targeting_rules, "
+			+ "shadow, active_from, active_until, window_inverted, window_daily, version, created_at, updated_at";
+
+	private static final String TOGGLE = "UPDATE feature_flags "
+			+ "SET enabled = NOT enabled, version = version + 1, updated_at = ? WHERE id = ?";
+
+	private static final String SWITCH = "UPDATE feature_flags "
+			+ "SET enabled = ?, version = version + 1, updated_at = ? WHERE name = ? AND enabled <> ? "
+			+ "AND (? IS NULL OR version = ?)";
+
+	private static final String UPDATE = "UPDATE feature_flags "
+			+ "SET name = ?, enabled = ?, description = ?, rollout_percentage = ?, targeting_rules = ?, shadow = ?, "
+			+ "active_from = ?, active_until = ?, window_inverted = ?, window_daily = ?, version = version + 1, "
+			+ "updated_at = ? WHERE id = ? " + "AND (? IS NULL OR version = ?)";
+
+	private static final RowMapper<FeatureFlag> ROW_MAPPER = FeatureFlagStatementsImpl::mapRow;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String database;
+
+	FeatureFlagStatementsImpl(JdbcTemplate jdbcTemplate, @Value("${database:h2}") String database) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.database = database;
+	}
+
+	@Override
+	public Optional<FeatureFlag> toggle(Integer id, LocalDateTime now) {
+		return execute(TOGGLE, new Object[] { now, id }, new int[] { Types.TIMESTAMP, Types.INTEGER }, "id", id);
+	}
+
+	@Override
+	public Optional<FeatureFlag> switchEnabled(String name, boolean enabled, Long version, LocalDateTime now) {
+		Object[] args = { enabled, now, name, enabled, version, version };
+		int[] types = { Types.BOOLEAN, Types.TIMESTAMP, Types.VARCHAR, Types.BOOLEAN, Types.BIGINT, Types.BIGINT };
+		return execute(SWITCH, args, types, "name", name);
+	}
+
+	@Override
+	public Optional<FeatureFlag> update(Integer id, Long version, String name, Boolean enabled, String description,
+			Integer rolloutPercentage, String targetingRules, Boolean shadow, LocalDateTime activeFrom,
+			LocalDateTime activeUntil, Boolean windowInverted, Boolean windowDaily, LocalDateTime now) {
+		Object[] args = { name, enabled, description, rolloutPercentage, targetingRules, shadow, activeFrom,
+				activeUntil, windowInverted, windowDaily, now, id, version, version };
+		int[] types = { Types.VARCHAR, Types.BOOLEAN, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.BOOLEAN,
+				Types.TIMESTAMP, Types.TIMESTAMP, Types.BOOLEAN, Types.BOOLEAN, Types.TIMESTAMP, Types.INTEGER,
+				Types.BIGINT, Types.BIGINT };
+		return execute(UPDATE, args, types, "id", id);
+	}
+
+	/**
+	 * Run the given update statement and return the row it changed.
+	 * @param key the column identifying the row, which the statement does not change
+	 * @param value the value of that column
+	 */
+	private Optional<FeatureFlag> execute(String update, Object[] args, int[] types, String key, Object value) {
+		String returning = switch (this.database) {
+			case "postgres" -> update + " RETURNING " + COLUMNS;
+			case "h2" -> "SELECT " + COLUMNS + " FROM FINAL TABLE (" + update + ")";
+			default -> null;
+		};
+		if (returning != null) {
+			return this.jdbcTemplate.query(returning, args, types, ROW_MAPPER).stream().findFirst();
+		}
+		if (this.jdbcTemplate.update(update, args, types) == 0) {
+			return Optional.empty();
+		}
+		return this.jdbcTemplate
+			.query("SELECT " + COLUMNS + " FROM feature_flags WHERE " + key + " = ?", ROW_MAPPER, value)
+			.stream()
+			.findFirst();
+	}
+
+	private static FeatureFlag mapRow(ResultSet rs, int rowNum) throws SQLException {
+		FeatureFlag featureFlag = new FeatureFlag();
+		featureFlag.setId(rs.getInt("id"));
+		featureFlag.setName(rs.getString("name"));
+		featureFlag.setEnabled(rs.getBoolean("enabled"));
+		featureFlag.setDescription(rs.getString("description"));
+		featureFlag.setRolloutPercentage(rs.getObject("rollout_percentage", Integer.class));
+		featureFlag.setTargetingRules(rs.getString("targeting_rules"));
+		featureFlag.setShadow(rs.getBoolean("shadow"));
+		featureFlag.setActiveFrom(rs.getObject("active_from", LocalDateTime.class));
+		featureFlag.setActiveUntil(rs.getObject("active_until", LocalDateTime.class));
+		featureFlag.setWindowInverted(rs.getBoolean("window_inverted"));
+		featureFlag.setWindowDaily(rs.getBoolean("window_daily"));
+		featureFlag.setVersion(rs.getLong("version"));
+		featureFlag.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+		featureFlag.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+		return featureFlag;
+	}
+
+}
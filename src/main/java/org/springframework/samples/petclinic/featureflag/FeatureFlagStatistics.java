@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts how often each flag is evaluated and with which outcome. Counters are
+ * {@link LongAdder LongAdders}, striped across threads, so that recording never becomes a
+ * point of contention. The latency of evaluations is measured on a random sample of one
+ * in {@value #SAMPLE_RATE} calls only.
+ * <p>
+ * Statistics are only kept for flags that exist or are referenced by a guard, checks of
+ * other names are counted together under {@value #UNKNOWN}, so that arbitrary names
+ * cannot grow the set of meters.
+ */
+final class FeatureFlagStatistics {
+
+	static final String UNKNOWN = "_unknown";
+
+	static final int SAMPLE_RATE = 64;
+
+	static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+	private final Map<String, Flag> flags = new ConcurrentHashMap<>();
+
+	private volatile MeterRegistry registry;
+
+	/**
+	 * Return the statistics of the given flag, creating them if needed.
+	 */
+	Flag forFlag(String name) {
+		Flag flag = this.flags.get(name);
+		return (flag != null) ? flag : this.flags.computeIfAbsent(name, this::create);
+	}
+
+	/**
+	 * Start timing an evaluation if it is part of the sample.
+	 * @return the start time to pass to {@link #record}, or {@link #NOT_SAMPLED}
+	 */
+	long start() {
+		return (ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0) ? System.nanoTime() : NOT_SAMPLED;
+	}
+
+	/**
+	 * Record the outcome of an evaluation.
+	 * @param name the name of the flag
+	 * @param snapshot the snapshot telling whether the flag exists
+	 * @param enabled the outcome
+	 * @param start the value returned by {@link #start()}
+	 */
+	void record(String name, FeatureFlagSnapshot snapshot, boolean enabled, long start) {
+		Flag flag = (name != null) ? this.flags.get(name) : null;
+		if (flag == null) {
+			flag = forFlag(snapshot.contains(name) ? name : UNKNOWN);
+		}
+		flag.record(enabled);
+		if (start != NOT_SAMPLED) {
+			flag.recordLatency(System.nanoTime() - start);
+		}
+	}
+
+	Collection<Flag> flags() {
+		return this.flags.values();
+	}
+
+	/**
+	 * Publish the statistics of all flags, current and future, to the given registry.
+	 */
+	void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		this.flags.values().forEach((flag) -> flag.bindTo(registry));
+	}
+
+	private Flag create(String name) {
+		Flag flag = new Flag(name);
+		MeterRegistry registry = this.registry;
+		if (registry != null) {
+			flag.bindTo(registry);
+		}
+		return flag;
+	}
+
+	/**
+	 * Statistics of a single flag.
+	 */
+	static final class Flag {
+
+		private final String name;
+
+		private final long since = System.nanoTime();
+
+		private final LongAdder enabled = new LongAdder();
+
+		private final LongAdder disabled = new LongAdder();
+
+		private final LongAdder sampled = new LongAdder();
+
+		private final LongAdder sampledNanos = new LongAdder();
+
+		private Flag(String name) {
+			this.name = name;
+		}
+
+		void record(boolean enabled) {
+			(enabled ? this.enabled : this.disabled).increment();
+		}
+
+		void recordLatency(long nanos) {
+			this.sampled.increment();
+			this.sampledNanos.add(nanos);
+		}
+
+		String getName() {
+			return this.name;
+		}
+
+		long getEnabledCount() {
+			return this.enabled.sum();
+		}
+
+		long getDisabledCount() {
+			return this.disabled.sum();
+		}
+
+		/**
+		 * Return the average number of evaluations per second since the statistics were
+		 * created.
+		 */
+		double getEvaluationsPerSecond() {
+			double seconds = (System.nanoTime() - this.since) / 1e9;
+			return (seconds > 0) ? (getEnabledCount() + getDisabledCount()) / seconds : 0;
+		}
+
+		/**
+		 * Return the mean latency of the sampled evaluations, in nanoseconds.
+		 */
+		double getMeanLatencyNanos() {
+			long count = this.sampled.sum();
+			return (count > 0) ? (double) this.sampledNanos.sum() / count : 0;
+		}
+
+		private void bindTo(MeterRegistry registry) {
+			FunctionCounter.builder("petclinic.featureflags.evaluations", this.enabled, LongAdder::sum)
+				.description("Number of feature flag evaluations")
+				.tag("flag", this.name)
+				.tag("result", "enabled")
+				.register(registry);
+			FunctionCounter.builder("petclinic.featureflags.evaluations", this.disabled, LongAdder::sum)
+				.description("Number of feature flag evaluations")
+				.tag("flag", this.name)
+				.tag("result", "disabled")
+				.register(registry);
+			FunctionTimer
+				.builder("petclinic.featureflags.evaluation.latency", this, (flag) -> flag.sampled.sum(),
+						(flag) -> flag.sampledNanos.sum(), TimeUnit.NANOSECONDS)
+				.description("Latency of a sample of feature flag evaluations")
+				.tag("flag", this.name)
+				.register(registry);
+		}
+
+	}
+
+}
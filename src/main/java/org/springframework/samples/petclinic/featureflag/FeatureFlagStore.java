@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage of feature flags behind {@link FeatureFlagService}. Flags are evaluated from
+ * the service's in-memory snapshot whichever store is used; the store is only read to
+ * build that snapshot and written when flags change.
+ * <p>
+ * The store is selected with {@value #PROPERTY}: {@code jpa} (the default) keeps flags in
+ * the {@code feature_flags} table, {@code memory} keeps them in memory only and
+ * {@code file} keeps them in a local file, so that a node can run flags without a
+ * database.
+ * <p>
+ * Every change is stamped with the time it was made and deletions leave a tombstone, so
+ * that {@link FeatureFlagSynchronizer} can pick up changes made by other nodes sharing
+ * the store.
+ */
+public interface FeatureFlagStore {
+
+	/**
+	 * Name of the property selecting the store.
+	 */
+	String PROPERTY = "petclinic.feature-flags.store";
+
+	List<FeatureFlag> findAll();
+
+	Optional<FeatureFlag> findById(Integer id);
+
+	Optional<FeatureFlag> findByName(String name);
+
+	/**
+	 * Return a page of the flags matching the query, ordered by name.
+	 */
+	List<FeatureFlag> find(FeatureFlagQuery query);
+
+	/**
+	 * Return a page of the flags matching the query like {@link #find}, with only their
+	 * name and enabled state.
+	 */
+	List<FeatureFlagSummary> findSummaries(FeatureFlagQuery query);
+
+	/**
+	 * Return the id of every flag, by name.
+	 */
+	Map<String, Integer> findIds();
+
+	/**
+	 * Create a flag.
+	 * @throws IllegalArgumentException if a flag with the same name exists
+	 */
+	FeatureFlag create(FeatureFlag featureFlag);
+
+	/**
+	 * Overwrite a flag. If the given flag carries a version, the update only succeeds if
+	 * the flag has not been changed since.
+	 * @return the updated flag, or empty if there is no such flag
+	 * @throws IllegalArgumentException if the new name is taken
+	 * @throws org.springframework.dao.OptimisticLockingFailureException if the flag was
+	 * changed concurrently
+	 */
+	Optional<FeatureFlag> update(Integer id, FeatureFlag featureFlag);
+
+	/**
+	 * Flip a flag atomically, so that concurrent toggles are never lost.
+	 * @return the toggled flag, or empty if there is no such flag
+	 */
+	Optional<FeatureFlag> toggle(Integer id);
+
+	/**
+	 * Switch a flag on or off, optionally only if it still has the given version.
+	 * @return the switched flag, or empty if there is no such flag, it already had the
+	 * state or it was changed since the given version
+	 */
+	Optional<FeatureFlag> switchEnabled(String name, boolean enabled, Long version);
+
+	/**
+	 * Delete a flag, leaving a tombstone.
+	 * @return the deleted flag, or empty if there is no such flag
+	 */
+	Optional<FeatureFlag> delete(Integer id);
+
+	/**
+	 * Create and update many flags at once, atomically.
+	 * @param created the flags to create, known not to exist
+	 * @param updated the flags to update, by id
+	 * @throws org.springframework.dao.DataIntegrityViolationException if any of the flags
+	 * to create exists already, in which case nothing is written
+	 */
+	void saveAll(Collection<FeatureFlagDefinition> created, Map<Integer, FeatureFlagDefinition> updated);
+
+	/**
+	 * Return the flags created or updated at or after the given time.
+	 */
+	List<FeatureFlag> findChangedSince(LocalDateTime since);
+
+	/**
+	 * Return the names of the flags deleted at or after the given time, with the time of
+	 * their latest deletion.
+	 */
+	Map<String, LocalDateTime> findDeletedSince(LocalDateTime since);
+
+	/**
+	 * Forget the deletions made before the given time.
+	 */
+	void purgeDeletedBefore(LocalDateTime before);
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the local flag snapshot in line with changes made on other nodes. Every interval
+ * the synchronizer reads from the {@link FeatureFlagStore} the flags changed since a
+ * high-water mark, together with the flags deleted since then, and applies only those to
+ * the {@link FeatureFlagService}.
+ * <p>
+ * The high-water mark is moved back by a configurable overlap before each query, so rows
+ * written by a node whose clock lags behind, or committed late, are still picked up.
+ * Re-reading a row that is already known is harmless.
+ * <p>
+ * Only the {@link JpaFeatureFlagStore} is shared between nodes, so the synchronizer runs
+ * with that store alone.
+ */
+@Component
+@ConditionalOnProperty(name = FeatureFlagStore.PROPERTY, havingValue = "jpa", matchIfMissing = true)
+@ConditionalOnProperty(name = "petclinic.feature-flags.sync.enabled", matchIfMissing = true)
+class FeatureFlagSynchronizer {
+
+	private static final Log logger = LogFactory.getLog(FeatureFlagSynchronizer.class);
+
+	private final FeatureFlagService featureFlagService;
+
+	private final FeatureFlagStore store;
+
+	private final Duration overlap;
+
+	private final Duration tombstoneRetention;
+
+	private LocalDateTime highWaterMark = LocalDateTime.now();
+
+	FeatureFlagSynchronizer(FeatureFlagService featureFlagService, FeatureFlagStore store,
+			@Value("${petclinic.feature-flags.sync.overlap:30s}") Duration overlap,
+			@Value("${petclinic.feature-flags.sync.tombstone-retention:1d}") Duration tombstoneRetention) {
+		this.featureFlagService = featureFlagService;
+		this.store = store;
+		this.overlap = overlap;
+		this.tombstoneRetention = tombstoneRetention;
+	}
+
+	@Scheduled(fixedDelayString = "${petclinic.feature-flags.sync.interval:5s}")
+	void synchronize() {
+		if (this.featureFlagService.isStale()) {
+			// Still serving the snapshot file, reading the table at startup failed
+			this.featureFlagService.refresh();
+		}
+		LocalDateTime since = this.highWaterMark.minus(this.overlap);
+		List<FeatureFlag> changed = this.store.findChangedSince(since);
+		Map<String, LocalDateTime> deleted = new HashMap<>(this.store.findDeletedSince(since));
+
+		LocalDateTime latest = this.highWaterMark;
+		for (LocalDateTime deletedAt : deleted.values()) {
+			latest = later(latest, deletedAt);
+		}
+
+		// A flag may have been deleted and then created again under the same name (or the
+		// other way round); only the most recent of the two events counts
+		List<FeatureFlag> updated = new ArrayList<>(changed.size());
+		for (FeatureFlag featureFlag : changed) {
+			LocalDateTime deletedAt = deleted.get(featureFlag.getName());
+			if (deletedAt == null || featureFlag.getUpdatedAt().isAfter(deletedAt)) {
+				deleted.remove(featureFlag.getName());
+				updated.add(featureFlag);
+			}
+			latest = later(latest, featureFlag.getUpdatedAt());
+		}
+
+		if (!updated.isEmpty() || !deleted.isEmpty()) {
+			logger.debug("Applying " + updated.size() + " changed and " + deleted.size() + " deleted feature flags");
+		}
+		this.featureFlagService.applyChanges(updated, deleted);
+		this.highWaterMark = latest;
+	}
+
+	@Scheduled(fixedDelayString = "${petclinic.feature-flags.sync.tombstone-purge-interval:1h}")
+	void purgeTombstones() {
+		this.store.purgeDeletedBefore(LocalDateTime.now().minus(this.tombstoneRetention));
+	}
+
+	private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+		return (b != null && b.isAfter(a)) ? b : a;
+	}
+
+}
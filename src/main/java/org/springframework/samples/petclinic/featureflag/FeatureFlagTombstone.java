@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Records the deletion of a {@link FeatureFlag} so that other nodes can drop the flag
+ * from their snapshot. Deleted rows cannot be found by an {@code updated_at} query, the
+ * tombstone is what makes the delete visible.
+ */
+@Entity
+@Table(name = "feature_flag_tombstones")
+class FeatureFlagTombstone {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Integer id;
+
+	@Column(nullable = false)
+	private String name;
+
+	@Column(name = "deleted_at", nullable = false)
+	private LocalDateTime deletedAt;
+
+	protected FeatureFlagTombstone() {
+	}
+
+	FeatureFlagTombstone(String name, LocalDateTime deletedAt) {
+		this.name = name;
+		this.deletedAt = deletedAt;
+	}
+
+	Integer getId() {
+		return id;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	LocalDateTime getDeletedAt() {
+		return deletedAt;
+	}
+
+}
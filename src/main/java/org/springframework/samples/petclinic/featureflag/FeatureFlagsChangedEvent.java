@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.List;
+
+/**
+ * Published by {@link FeatureFlagService} whenever its flag snapshot changes, whether
+ * through a local mutation or through changes picked up from other nodes.
+ * <p>
+ * The event is published while the snapshot is being swapped, so listeners see events in
+ * version order and must return quickly.
+ *
+ * @param version the version of the snapshot that contains the changes
+ * @param changes the flags that changed
+ */
+public record FeatureFlagsChangedEvent(long version, List<Change> changes) {
+
+	/**
+	 * The change of a single flag.
+	 *
+	 * @param name the name of the flag
+	 * @param state the new state of the flag, or {@code null} if it was deleted
+	 */
+	public record Change(String name, FeatureFlagState state) {
+
+		public boolean isDeleted() {
+			return this.state == null;
+		}
+
+	}
+
+}
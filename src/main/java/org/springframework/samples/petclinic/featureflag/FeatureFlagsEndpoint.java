@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint listing every flag with its current state and how it has been
+ * evaluated: how often, with which outcome and how fast.
+ */
+@Component
+@Endpoint(id = "featureflags")
+public class FeatureFlagsEndpoint {
+
+	private final FeatureFlagService featureFlagService;
+
+	FeatureFlagsEndpoint(FeatureFlagService featureFlagService) {
+		this.featureFlagService = featureFlagService;
+	}
+
+	@ReadOperation
+	public List<FlagDescriptor> flags() {
+		FeatureFlagSnapshot snapshot = this.featureFlagService.snapshot();
+		FeatureFlagStatistics statistics = this.featureFlagService.statistics();
+		List<FlagDescriptor> flags = new ArrayList<>();
+		for (FeatureFlagState state : snapshot.describe()) {
+			flags.add(FlagDescriptor.of(state, statistics.forFlag(state.name())));
+		}
+		for (FeatureFlagStatistics.Flag flag : statistics.flags()) {
+			if (!snapshot.contains(flag.getName())) {
+				flags.add(FlagDescriptor.of(null, flag));
+			}
+		}
+		return flags;
+	}
+
+	@ReadOperation
+	public FlagDescriptor flag(@Selector String name) {
+		return flags().stream().filter((flag) -> flag.name().equals(name)).findFirst().orElse(null);
+	}
+
+	/**
+	 * Description of a single flag.
+	 *
+	 * @param name the name of the flag
+	 * @param state the current state of the flag, or {@code null} if it no longer exists
+	 * @param enabledCount how often the flag was evaluated as enabled
+	 * @param disabledCount how often the flag was evaluated as disabled
+	 * @param hitRate the share of evaluations that found the flag enabled
+	 * @param evaluationsPerSecond the average evaluation rate
+	 * @param meanLatencyNanos the mean latency of the sampled evaluations
+	 */
+	public record FlagDescriptor(String name, FeatureFlagState state, long enabledCount, long disabledCount,
+			double hitRate, double evaluationsPerSecond, double meanLatencyNanos) {
+
+		static FlagDescriptor of(FeatureFlagState state, FeatureFlagStatistics.Flag flag) {
+			long enabled = flag.getEnabledCount();
+			long disabled = flag.getDisabledCount();
+			double hitRate = (enabled + disabled > 0) ? (double) enabled / (enabled + disabled) : 0;
+			return new FlagDescriptor(flag.getName(), state, enabled, disabled, hitRate, flag.getEvaluationsPerSecond(),
+					flag.getMeanLatencyNanos());
+		}
+
+	}
+
+}
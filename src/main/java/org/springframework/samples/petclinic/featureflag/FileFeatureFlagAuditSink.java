@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * {@link FeatureFlagAuditSink} appending events to a local file, one tab-separated line
+ * per event: time, kind, flag, action, actor and detail. Once the file reaches its
+ * maximum size it is rolled over to {@code <file>.1}, older files moving up by one and
+ * the oldest being deleted.
+ * <p>
+ * Only enabled when {@code petclinic.feature-flags.audit.file} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "petclinic.feature-flags.audit.file")
+class FileFeatureFlagAuditSink implements FeatureFlagAuditSink, DisposableBean {
+
+	private final Path path;
+
+	private final long maxSize;
+
+	private final int maxHistory;
+
+	private OutputStream output;
+
+	private long size;
+
+	FileFeatureFlagAuditSink(@Value("${petclinic.feature-flags.audit.file}") Path path,
+			@Value("${petclinic.feature-flags.audit.file-max-size:10MB}") DataSize maxSize,
+			@Value("${petclinic.feature-flags.audit.file-max-history:5}") int maxHistory) {
+		this.path = path;
+		this.maxSize = maxSize.toBytes();
+		this.maxHistory = maxHistory;
+	}
+
+	@Override
+	public synchronized void write(List<FeatureFlagAuditEvent> events) throws IOException {
+		if (this.output == null) {
+			open();
+		}
+		for (FeatureFlagAuditEvent event : events) {
+			byte[] line = (event.time() + "\t" + event.kind() + "\t" + escape(event.flagName()) + "\t"
+					+ escape(event.action()) + "\t" + escape(event.actor()) + "\t" + escape(event.detail()) + "\n")
+				.getBytes(StandardCharsets.UTF_8);
+			this.output.write(line);
+			this.size += line.length;
+		}
+		this.output.flush();
+		if (this.size >= this.maxSize) {
+			roll();
+		}
+	}
+
+	private void open() throws IOException {
+		Path directory = this.path.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		this.output = new BufferedOutputStream(
+				Files.newOutputStream(this.path, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+		this.size = Files.size(this.path);
+	}
+
+	private void roll() throws IOException {
+		close();
+		if (this.maxHistory > 0) {
+			Files.deleteIfExists(rolled(this.maxHistory));
+			for (int i = this.maxHistory - 1; i >= 1; i--) {
+				if (Files.exists(rolled(i))) {
+					Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.move(this.path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+		}
+		else {
+			Files.delete(this.path);
+		}
+	}
+
+	private Path rolled(int index) {
+		return this.path.resolveSibling(this.path.getFileName() + "." + index);
+	}
+
+	private static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private void close() throws IOException {
+		if (this.output != null) {
+			this.output.close();
+			this.output = null;
+		}
+	}
+
+	@Override
+	public synchronized void destroy() throws IOException {
+		close();
+	}
+
+	@Override
+	public String toString() {
+		return "file " + this.path;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link FeatureFlagStore} keeping flags in a local file, for nodes that run flags
+ * without a database. Flags are held in memory and the whole file is rewritten, and
+ * atomically replaced, after every change. If the file cannot be written, the change is
+ * undone in memory too, so memory never holds what the file does not.
+ * <p>
+ * The file is only ever written by this store and is not meant to be shared between
+ * nodes.
+ */
+@Component
+@ConditionalOnProperty(name = FeatureFlagStore.PROPERTY, havingValue = "file")
+class FileFeatureFlagStore extends InMemoryFeatureFlagStore {
+
+	private final Path path;
+
+	/**
+	 * The content last written to the file, guarded by this store.
+	 */
+	private byte[] written;
+
+	FileFeatureFlagStore(@Value("${petclinic.feature-flags.store-file:feature-flags.store}") Path path) {
+		this.path = path;
+		try {
+			readFrom(new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path))));
+		}
+		catch (NoSuchFileException ex) {
+			// Starting without flags, the file is created on the first change
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Could not read feature flags from " + path, ex);
+		}
+		this.written = content();
+	}
+
+	@Override
+	protected void changed() {
+		byte[] content = content();
+		try {
+			FeatureFlagSnapshotFile.replace(this.path, content);
+			this.written = content;
+		}
+		catch (IOException ex) {
+			// memory must not hold a change the file does not
+			undo();
+			throw new DataAccessResourceFailureException("Could not write feature flags to " + this.path, ex);
+		}
+	}
+
+	private byte[] content() {
+		try {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			writeTo(new DataOutputStream(content));
+			return content.toByteArray();
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Could not serialize feature flags", ex);
+		}
+	}
+
+	private void undo() {
+		try {
+			readFrom(new DataInputStream(new ByteArrayInputStream(this.written)));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Could not restore feature flags", ex);
+		}
+	}
+
+}
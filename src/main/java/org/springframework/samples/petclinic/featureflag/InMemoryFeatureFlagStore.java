@@ -0,0 +1,315 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link FeatureFlagStore} keeping flags in memory only, for tests and for nodes that run
+ * flags without a database. Flags start out empty on every start.
+ * <p>
+ * Flags are copied on the way in and out, so callers never share the stored instances.
+ * All operations are serialized on the store, which is cheap as flags are only read here
+ * to build the snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = FeatureFlagStore.PROPERTY, havingValue = "memory")
+class InMemoryFeatureFlagStore implements FeatureFlagStore {
+
+	private final Map<Integer, FeatureFlag> flags = new LinkedHashMap<>();
+
+	private final Map<String, LocalDateTime> deleted = new HashMap<>();
+
+	private int lastId;
+
+	@Override
+	public synchronized List<FeatureFlag> findAll() {
+		return this.flags.values().stream().map(InMemoryFeatureFlagStore::copy).toList();
+	}
+
+	@Override
+	public synchronized Optional<FeatureFlag> findById(Integer id) {
+		return Optional.ofNullable(this.flags.get(id)).map(InMemoryFeatureFlagStore::copy);
+	}
+
+	@Override
+	public synchronized Optional<FeatureFlag> findByName(String name) {
+		return find(name).map(InMemoryFeatureFlagStore::copy);
+	}
+
+	@Override
+	public synchronized List<FeatureFlag> find(FeatureFlagQuery query) {
+		return this.flags.values()
+			.stream()
+			.filter(query::matches)
+			.sorted(Comparator.comparing(FeatureFlag::getName))
+			.limit(query.limit())
+			.map(InMemoryFeatureFlagStore::copy)
+			.toList();
+	}
+
+	@Override
+	public synchronized List<FeatureFlagSummary> findSummaries(FeatureFlagQuery query) {
+		return find(query).stream().map(FeatureFlagSummary::of).toList();
+	}
+
+	@Override
+	public synchronized Map<String, Integer> findIds() {
+		Map<String, Integer> ids = new HashMap<>();
+		this.flags.values().forEach((flag) -> ids.put(flag.getName(), flag.getId()));
+		return ids;
+	}
+
+	@Override
+	public synchronized FeatureFlag create(FeatureFlag featureFlag) {
+		if (find(featureFlag.getName()).isPresent()) {
+			throw new IllegalArgumentException("Feature flag with name '" + featureFlag.getName() + "' already exists");
+		}
+		FeatureFlag created = insert(copy(featureFlag), LocalDateTime.now());
+		changed();
+		return copy(created);
+	}
+
+	@Override
+	public synchronized Optional<FeatureFlag> update(Integer id, FeatureFlag featureFlag) {
+		FeatureFlag existing = this.flags.get(id);
+		if (existing == null) {
+			return Optional.empty();
+		}
+		if (featureFlag.getVersion() != null && !featureFlag.getVersion().equals(existing.getVersion())) {
+			throw new OptimisticLockingFailureException(
+					"Feature flag with id " + id + " was changed since version " + featureFlag.getVersion());
+		}
+		if (find(featureFlag.getName()).filter((other) -> !other.getId().equals(id)).isPresent()) {
+			throw new IllegalArgumentException("Feature flag with name '" + featureFlag.getName() + "' already exists");
+		}
+		existing.setName(featureFlag.getName());
+		existing.setEnabled(featureFlag.getEnabled());
+		existing.setDescription(featureFlag.getDescription());
+		existing.setRolloutPercentage(featureFlag.getRolloutPercentage());
+		existing.setTargetingRules(featureFlag.getTargetingRules());
+		existing.setShadow(Boolean.TRUE.equals(featureFlag.getShadow()));
+		existing.setActiveFrom(featureFlag.getActiveFrom());
+		existing.setActiveUntil(featureFlag.getActiveUntil());
+		existing.setWindowInverted(Boolean.TRUE.equals(featureFlag.getWindowInverted()));
+		existing.setWindowDaily(Boolean.TRUE.equals(featureFlag.getWindowDaily()));
+		return Optional.of(updated(existing));
+	}
+
+	@Override
+	public synchronized Optional<FeatureFlag> toggle(Integer id) {
+		FeatureFlag existing = this.flags.get(id);
+		if (existing == null) {
+			return Optional.empty();
+		}
+		existing.setEnabled(!Boolean.TRUE.equals(existing.getEnabled()));
+		return Optional.of(updated(existing));
+	}
+
+	@Override
+	public synchronized Optional<FeatureFlag> switchEnabled(String name, boolean enabled, Long version) {
+		FeatureFlag existing = find(name).orElse(null);
+		if (existing == null || Boolean.valueOf(enabled).equals(existing.getEnabled())
+				|| (version != null && !version.equals(existing.getVersion()))) {
+			return Optional.empty();
+		}
+		existing.setEnabled(enabled);
+		return Optional.of(updated(existing));
+	}
+
+	@Override
+	public synchronized Optional<FeatureFlag> delete(Integer id) {
+		FeatureFlag existing = this.flags.remove(id);
+		if (existing == null) {
+			return Optional.empty();
+		}
+		this.deleted.put(existing.getName(), LocalDateTime.now());
+		changed();
+		return Optional.of(existing);
+	}
+
+	@Override
+	public synchronized void saveAll(Collection<FeatureFlagDefinition> created,
+			Map<Integer, FeatureFlagDefinition> updated) {
+		for (FeatureFlagDefinition definition : created) {
+			if (find(definition.name()).isPresent()) {
+				throw new DataIntegrityViolationException(
+						"Feature flag with name '" + definition.name() + "' already exists");
+			}
+		}
+		LocalDateTime now = LocalDateTime.now();
+		for (FeatureFlagDefinition definition : created) {
+			FeatureFlag featureFlag = new FeatureFlag();
+			featureFlag.setName(definition.name());
+			insert(apply(featureFlag, definition), now);
+		}
+		updated.forEach((id, definition) -> {
+			FeatureFlag existing = this.flags.get(id);
+			if (existing != null) {
+				touch(apply(existing, definition), now);
+			}
+		});
+		changed();
+	}
+
+	@Override
+	public synchronized List<FeatureFlag> findChangedSince(LocalDateTime since) {
+		return this.flags.values()
+			.stream()
+			.filter((flag) -> !flag.getUpdatedAt().isBefore(since))
+			.map(InMemoryFeatureFlagStore::copy)
+			.toList();
+	}
+
+	@Override
+	public synchronized Map<String, LocalDateTime> findDeletedSince(LocalDateTime since) {
+		Map<String, LocalDateTime> deleted = new HashMap<>();
+		this.deleted.forEach((name, deletedAt) -> {
+			if (!deletedAt.isBefore(since)) {
+				deleted.put(name, deletedAt);
+			}
+		});
+		return deleted;
+	}
+
+	@Override
+	public synchronized void purgeDeletedBefore(LocalDateTime before) {
+		if (this.deleted.values().removeIf((deletedAt) -> deletedAt.isBefore(before))) {
+			changed();
+		}
+	}
+
+	/**
+	 * Called, while holding the lock on this store, after every change.
+	 */
+	protected void changed() {
+	}
+
+	/**
+	 * Write every flag and deletion in the binary form of {@link FeatureFlagSnapshot}.
+	 */
+	synchronized void writeTo(DataOutput output) throws IOException {
+		FeatureFlagSnapshot.writeHeader(output);
+		output.writeInt(this.lastId);
+		output.writeInt(this.flags.size());
+		for (FeatureFlag flag : this.flags.values()) {
+			FeatureFlagSnapshot.writeFlag(output, flag);
+		}
+		output.writeInt(this.deleted.size());
+		for (Map.Entry<String, LocalDateTime> deletion : this.deleted.entrySet()) {
+			output.writeUTF(deletion.getKey());
+			FeatureFlagSnapshot.writeTime(output, deletion.getValue());
+		}
+	}
+
+	/**
+	 * Replace the content of this store with flags written by {@link #writeTo}.
+	 * @throws IOException if the input is not in the current format
+	 */
+	synchronized void readFrom(DataInput input) throws IOException {
+		FeatureFlagSnapshot.readHeader(input);
+		int lastId = input.readInt();
+		Map<Integer, FeatureFlag> flags = new LinkedHashMap<>();
+		int size = input.readInt();
+		for (int i = 0; i < size; i++) {
+			FeatureFlag flag = FeatureFlagSnapshot.readFlag(input);
+			flags.put(flag.getId(), flag);
+		}
+		Map<String, LocalDateTime> deleted = new HashMap<>();
+		int deletions = input.readInt();
+		for (int i = 0; i < deletions; i++) {
+			deleted.put(input.readUTF(), FeatureFlagSnapshot.readTime(input));
+		}
+		this.lastId = lastId;
+		this.flags.clear();
+		this.flags.putAll(flags);
+		this.deleted.clear();
+		this.deleted.putAll(deleted);
+	}
+
+	private Optional<FeatureFlag> find(String name) {
+		return this.flags.values().stream().filter((flag) -> Objects.equals(flag.getName(), name)).findFirst();
+	}
+
+	private FeatureFlag insert(FeatureFlag featureFlag, LocalDateTime now) {
+		featureFlag.setId(++this.lastId);
+		featureFlag.setVersion(0L);
+		featureFlag.setCreatedAt(now);
+		featureFlag.setUpdatedAt(now);
+		this.flags.put(featureFlag.getId(), featureFlag);
+		return featureFlag;
+	}
+
+	private FeatureFlag updated(FeatureFlag featureFlag) {
+		touch(featureFlag, LocalDateTime.now());
+		changed();
+		return copy(featureFlag);
+	}
+
+	private static void touch(FeatureFlag featureFlag, LocalDateTime now) {
+		featureFlag.setVersion(featureFlag.getVersion() + 1);
+		featureFlag.setUpdatedAt(now);
+	}
+
+	private static FeatureFlag apply(FeatureFlag featureFlag, FeatureFlagDefinition definition) {
+		featureFlag.setEnabled(definition.enabled());
+		featureFlag.setDescription(definition.description());
+		featureFlag.setRolloutPercentage(definition.rolloutPercentage());
+		featureFlag.setTargetingRules(definition.targetingRules());
+		featureFlag.setShadow(definition.shadow());
+		featureFlag.setActiveFrom(definition.activeFrom());
+		featureFlag.setActiveUntil(definition.activeUntil());
+		featureFlag.setWindowInverted(Boolean.TRUE.equals(definition.windowInverted()));
+		featureFlag.setWindowDaily(Boolean.TRUE.equals(definition.windowDaily()));
+		return featureFlag;
+	}
+
+	private static FeatureFlag copy(FeatureFlag featureFlag) {
+		FeatureFlag copy = new FeatureFlag();
+		copy.setId(featureFlag.getId());
+		copy.setName(featureFlag.getName());
+		copy.setEnabled(featureFlag.getEnabled());
+		copy.setDescription(featureFlag.getDescription());
+		copy.setRolloutPercentage(featureFlag.getRolloutPercentage());
+		copy.setTargetingRules(featureFlag.getTargetingRules());
+		copy.setShadow(featureFlag.getShadow());
+		copy.setActiveFrom(featureFlag.getActiveFrom());
+		copy.setActiveUntil(featureFlag.getActiveUntil());
+		copy.setWindowInverted(featureFlag.getWindowInverted());
+		copy.setWindowDaily(featureFlag.getWindowDaily());
+		copy.setVersion(featureFlag.getVersion());
+		copy.setCreatedAt(featureFlag.getCreatedAt());
+		copy.setUpdatedAt(featureFlag.getUpdatedAt());
+		return copy;
+	}
+
+}
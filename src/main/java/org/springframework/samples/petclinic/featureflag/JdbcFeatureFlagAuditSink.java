@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * {@link FeatureFlagAuditSink} inserting events into the {@code feature_flag_audit}
+ * table, one batched statement per batch. Enabled with the {@link JpaFeatureFlagStore},
+ * the only store backed by the database, unless
+ * {@code petclinic.feature-flags.audit.table} is {@code false}.
+ */
+@Component
+@ConditionalOnProperty(name = FeatureFlagStore.PROPERTY, havingValue = "jpa", matchIfMissing = true)
+@ConditionalOnProperty(name = "petclinic.feature-flags.audit.table", havingValue = "true", matchIfMissing = true)
+class JdbcFeatureFlagAuditSink implements FeatureFlagAuditSink {
+
+	private static final String INSERT = "INSERT INTO feature_flag_audit "
+			+ "(occurred_at, kind, flag_name, action, actor, detail) VALUES (?, ?, ?, ?, ?, ?)";
+
+	private static final int[] INSERT_TYPES = { Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+			Types.VARCHAR, Types.VARCHAR };
+
+	private final JdbcTemplate jdbcTemplate;
+
+	JdbcFeatureFlagAuditSink(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	@Transactional
+	public void write(List<FeatureFlagAuditEvent> events) {
+		List<Object[]> inserts = new ArrayList<>(events.size());
+		for (FeatureFlagAuditEvent event : events) {
+			inserts.add(new Object[] { event.time(), event.kind().name(), truncate(event.flagName(), 255),
+					event.action(), truncate(event.actor(), 255), truncate(event.detail(), 1000) });
+		}
+		this.jdbcTemplate.batchUpdate(INSERT, inserts, INSERT_TYPES);
+	}
+
+	private static String truncate(String value, int length) {
+		return (value != null && value.length() > length) ? value.substring(0, length) : value;
+	}
+
+	@Override
+	public String toString() {
+		return "table feature_flag_audit";
+	}
+
+}
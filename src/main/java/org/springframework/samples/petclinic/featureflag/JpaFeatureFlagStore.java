@@ -0,0 +1,221 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * {@link FeatureFlagStore} keeping flags in the {@code feature_flags} table. Single flags
+ * are changed with conditional update statements that also return the changed row, see
+ * {@link FeatureFlagStatements}, so concurrent changes are never lost; bulk writes use
+ * one batched JDBC statement per kind of change.
+ */
+@Component
+@ConditionalOnProperty(name = FeatureFlagStore.PROPERTY, havingValue = "jpa", matchIfMissing = true)
+class JpaFeatureFlagStore implements FeatureFlagStore {
+
+	private static final String INSERT = "INSERT INTO feature_flags "
+			+ "(name, enabled, description, rollout_percentage, targeting_rules, shadow, active_from, active_until, "
+			+ "window_inverted, window_daily, version, created_at, updated_at) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+
+	private static final int[] INSERT_TYPES = { Types.VARCHAR, Types.BOOLEAN, Types.VARCHAR, Types.INTEGER,
+			Types.VARCHAR, Types.BOOLEAN, Types.TIMESTAMP, Types.TIMESTAMP, Types.BOOLEAN, Types.BOOLEAN,
+			Types.TIMESTAMP, Types.TIMESTAMP };
+
+	private static final String UPDATE = "UPDATE feature_flags "
+			+ "SET enabled = ?, description = ?, rollout_percentage = ?, targeting_rules = ?, shadow = ?, "
+			+ "active_from = ?, active_until = ?, window_inverted = ?, window_daily = ?, version = version + 1, "
+			+ "updated_at = ? WHERE id = ?";
+
+	private static final int[] UPDATE_TYPES = { Types.BOOLEAN, Types.VARCHAR, Types.INTEGER, Types.VARCHAR,
+			Types.BOOLEAN, Types.TIMESTAMP, Types.TIMESTAMP, Types.BOOLEAN, Types.BOOLEAN, Types.TIMESTAMP,
+			Types.INTEGER };
+
+	private final FeatureFlagRepository repository;
+
+	private final FeatureFlagTombstoneRepository tombstones;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	JpaFeatureFlagStore(FeatureFlagRepository repository, FeatureFlagTombstoneRepository tombstones,
+			JdbcTemplate jdbcTemplate) {
+		this.repository = repository;
+		this.tombstones = tombstones;
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<FeatureFlag> findAll() {
+		return this.repository.findAll();
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<FeatureFlag> findById(Integer id) {
+		return this.repository.findById(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<FeatureFlag> findByName(String name) {
+		return this.repository.findByName(name);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<FeatureFlag> find(FeatureFlagQuery query) {
+		return this.repository.findPage(query.prefixPattern(), query.enabled(), query.after(),
+				PageRequest.ofSize(query.limit()));
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<FeatureFlagSummary> findSummaries(FeatureFlagQuery query) {
+		return this.repository.findSummaryPage(query.prefixPattern(), query.enabled(), query.after(),
+				PageRequest.ofSize(query.limit()));
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Integer> findIds() {
+		Map<String, Integer> ids = new HashMap<>();
+		this.jdbcTemplate.query("SELECT id, name FROM feature_flags", (rs) -> {
+			ids.put(rs.getString("name"), rs.getInt("id"));
+		});
+		return ids;
+	}
+
+	@Override
+	@Transactional
+	public FeatureFlag create(FeatureFlag featureFlag) {
+		if (this.repository.existsByName(featureFlag.getName())) {
+			throw new IllegalArgumentException("Feature flag with name '" + featureFlag.getName() + "' already exists");
+		}
+		return this.repository.save(featureFlag);
+	}
+
+	@Override
+	@Transactional
+	public Optional<FeatureFlag> update(Integer id, FeatureFlag featureFlag) {
+		Optional<FeatureFlag> updated;
+		try {
+			updated = this.repository.update(id, featureFlag.getVersion(), featureFlag.getName(),
+					featureFlag.getEnabled(), featureFlag.getDescription(), featureFlag.getRolloutPercentage(),
+					featureFlag.getTargetingRules(), Boolean.TRUE.equals(featureFlag.getShadow()),
+					featureFlag.getActiveFrom(), featureFlag.getActiveUntil(),
+					Boolean.TRUE.equals(featureFlag.getWindowInverted()),
+					Boolean.TRUE.equals(featureFlag.getWindowDaily()), LocalDateTime.now());
+		}
+		catch (DuplicateKeyException ex) {
+			throw new IllegalArgumentException("Feature flag with name '" + featureFlag.getName() + "' already exists",
+					ex);
+		}
+		if (updated.isEmpty() && featureFlag.getVersion() != null && this.repository.existsById(id)) {
+			throw new OptimisticLockingFailureException(
+					"Feature flag with id " + id + " was changed since version " + featureFlag.getVersion());
+		}
+		return updated;
+	}
+
+	@Override
+	@Transactional
+	public Optional<FeatureFlag> toggle(Integer id) {
+		return this.repository.toggle(id, LocalDateTime.now());
+	}
+
+	@Override
+	@Transactional
+	public Optional<FeatureFlag> switchEnabled(String name, boolean enabled, Long version) {
+		return this.repository.switchEnabled(name, enabled, version, LocalDateTime.now());
+	}
+
+	@Override
+	@Transactional
+	public Optional<FeatureFlag> delete(Integer id) {
+		Optional<FeatureFlag> existing = this.repository.findById(id);
+		existing.ifPresent((featureFlag) -> {
+			this.repository.deleteById(id);
+			this.tombstones.save(new FeatureFlagTombstone(featureFlag.getName(), LocalDateTime.now()));
+		});
+		return existing;
+	}
+
+	@Override
+	@Transactional
+	public void saveAll(Collection<FeatureFlagDefinition> created, Map<Integer, FeatureFlagDefinition> updated) {
+		LocalDateTime now = LocalDateTime.now();
+		if (!created.isEmpty()) {
+			List<Object[]> inserts = new ArrayList<>(created.size());
+			for (FeatureFlagDefinition definition : created) {
+				inserts.add(new Object[] { definition.name(), definition.enabled(), definition.description(),
+						definition.rolloutPercentage(), definition.targetingRules(), definition.shadow(),
+						definition.activeFrom(), definition.activeUntil(),
+						Boolean.TRUE.equals(definition.windowInverted()), Boolean.TRUE.equals(definition.windowDaily()),
+						now, now });
+			}
+			this.jdbcTemplate.batchUpdate(INSERT, inserts, INSERT_TYPES);
+		}
+		if (!updated.isEmpty()) {
+			List<Object[]> updates = new ArrayList<>(updated.size());
+			updated.forEach((id,
+					definition) -> updates.add(new Object[] { definition.enabled(), definition.description(),
+							definition.rolloutPercentage(), definition.targetingRules(), definition.shadow(),
+							definition.activeFrom(), definition.activeUntil(),
+							Boolean.TRUE.equals(definition.windowInverted()),
+							Boolean.TRUE.equals(definition.windowDaily()), now, id }));
+			this.jdbcTemplate.batchUpdate(UPDATE, updates, UPDATE_TYPES);
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<FeatureFlag> findChangedSince(LocalDateTime since) {
+		return this.repository.findByUpdatedAtGreaterThanEqual(since);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, LocalDateTime> findDeletedSince(LocalDateTime since) {
+		Map<String, LocalDateTime> deleted = new HashMap<>();
+		for (FeatureFlagTombstone tombstone : this.tombstones.findByDeletedAtGreaterThanEqual(since)) {
+			deleted.merge(tombstone.getName(), tombstone.getDeletedAt(), (a, b) -> a.isAfter(b) ? a : b);
+		}
+		return deleted;
+	}
+
+	@Override
+	public void purgeDeletedBefore(LocalDateTime before) {
+		this.tombstones.purgeOlderThan(before);
+	}
+
+}
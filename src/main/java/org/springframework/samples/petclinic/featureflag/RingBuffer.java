@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free queue for many producers and a single consumer. Each slot carries a
+ * sequence number telling whether it is free for the producer claiming a position or
+ * holds an element for the consumer, so producers only contend on one compare-and-set and
+ * never wait: an element offered to a full buffer is rejected instead.
+ *
+ * @param <E> the type of the elements
+ */
+final class RingBuffer<E> {
+
+	private final AtomicReferenceArray<E> elements;
+
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	private volatile long head;
+
+	/**
+	 * Create a buffer.
+	 * @param capacity the number of elements the buffer holds, rounded up to a power of
+	 * two
+	 */
+	RingBuffer(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Invalid ring buffer capacity " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.elements = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Add an element, unless the buffer is full.
+	 * @return whether the element was added
+	 */
+	boolean offer(E element) {
+		long position = this.tail.get();
+		while (true) {
+			int index = (int) (position & this.mask);
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.elements.lazySet(index, element);
+					this.sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = this.tail.get();
+			}
+			else if (difference < 0) {
+				return false;
+			}
+			else {
+				position = this.tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Remove the oldest element. Must only be called by the single consumer.
+	 * @return the element, or {@code null} if the buffer is empty
+	 */
+	E poll() {
+		long position = this.head;
+		int index = (int) (position & this.mask);
+		if (this.sequences.get(index) != position + 1) {
+			return null;
+		}
+		E element = this.elements.get(index);
+		this.elements.lazySet(index, null);
+		this.sequences.lazySet(index, position + this.mask + 1);
+		this.head = position + 1;
+		return element;
+	}
+
+	/**
+	 * Return the number of elements in the buffer, which may already be outdated.
+	 */
+	int size() {
+		return (int) Math.max(this.tail.get() - this.head, 0);
+	}
+
+	int capacity() {
+		return this.mask + 1;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Parsed form of {@link FeatureFlag#getTargetingRules()}. Rules are written as
+ * {@code attribute=value,value;attribute=value}, for example
+ * {@code city=Madison,Monona;petType=dog}. A context matches when it matches every rule,
+ * and it matches a rule when its attribute equals any of the listed values. Supported
+ * attributes are {@code ownerId}, {@code city} and {@code petType}; cities and pet types
+ * are compared ignoring case.
+ * <p>
+ * Rules are parsed once when a snapshot is built, matching does not allocate.
+ */
+final class TargetingRules {
+
+	static final TargetingRules NONE = new TargetingRules(null, null, null);
+
+	private final int[] ownerIds;
+
+	private final String[] cities;
+
+	private final String[] petTypes;
+
+	private TargetingRules(int[] ownerIds, String[] cities, String[] petTypes) {
+		this.ownerIds = ownerIds;
+		this.cities = cities;
+		this.petTypes = petTypes;
+	}
+
+	/**
+	 * Parse the given rule expression.
+	 * @param expression the rules, may be {@code null} or empty
+	 * @return the parsed rules
+	 * @throws IllegalArgumentException if the expression is malformed or uses an unknown
+	 * attribute
+	 */
+	static TargetingRules parse(String expression) {
+		if (!StringUtils.hasText(expression)) {
+			return NONE;
+		}
+		int[] ownerIds = null;
+		String[] cities = null;
+		String[] petTypes = null;
+		for (String rule : StringUtils.tokenizeToStringArray(expression, ";")) {
+			int separator = rule.indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Invalid targeting rule '" + rule + "'");
+			}
+			String attribute = rule.substring(0, separator).trim();
+			String[] values = StringUtils.tokenizeToStringArray(rule.substring(separator + 1), ",");
+			switch (attribute) {
+				case "ownerId" -> ownerIds = parseIds(rule, values);
+				case "city" -> cities = values;
+				case "petType" -> petTypes = values;
+				default -> throw new IllegalArgumentException("Unknown targeting attribute '" + attribute + "'");
+			}
+		}
+		return new TargetingRules(ownerIds, cities, petTypes);
+	}
+
+	private static int[] parseIds(String rule, String[] values) {
+		try {
+			int[] ids = Arrays.stream(values).mapToInt(Integer::parseInt).toArray();
+			Arrays.sort(ids);
+			return ids;
+		}
+		catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid owner id in targeting rule '" + rule + "'", ex);
+		}
+	}
+
+	boolean isEmpty() {
+		return this.ownerIds == null && this.cities == null && this.petTypes == null;
+	}
+
+	boolean matches(FeatureFlagEvaluationContext context) {
+		if (this.ownerIds != null
+				&& (context.ownerId() == null || Arrays.binarySearch(this.ownerIds, context.ownerId()) < 0)) {
+			return false;
+		}
+		if (this.cities != null && !containsIgnoreCase(this.cities, context.city())) {
+			return false;
+		}
+		if (this.petTypes != null) {
+			List<String> petTypes = context.petTypes();
+			for (int i = 0; i < petTypes.size(); i++) {
+				if (containsIgnoreCase(this.petTypes, petTypes.get(i))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean containsIgnoreCase(String[] values, String candidate) {
+		if (candidate == null) {
+			return false;
+		}
+		for (String value : values) {
+			if (value.equalsIgnoreCase(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return (this == other) || (other instanceof TargetingRules that && Arrays.equals(this.ownerIds, that.ownerIds)
+				&& Arrays.equals(this.cities, that.cities) && Arrays.equals(this.petTypes, that.petTypes));
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(this.ownerIds);
+		result = 31 * result + Arrays.hashCode(this.cities);
+		return 31 * result + Arrays.hashCode(this.petTypes);
+	}
+
+}
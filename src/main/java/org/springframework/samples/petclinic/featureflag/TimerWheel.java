@@ -0,0 +1,195 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Hashed timer wheel running tasks at a deadline, at a granularity of one tick. Each tick
+ * advances a cursor over a fixed ring of buckets; a task lands in the bucket of the tick
+ * it is due at and carries the number of full revolutions still to wait, so scheduling
+ * and cancelling are constant time however far ahead a task is due.
+ * <p>
+ * A single worker thread owns the buckets. Newly scheduled tasks are handed over through
+ * a lock-free queue and placed when the next tick is processed. Tasks run on the worker
+ * thread and must therefore be short. A task never runs before its deadline and at most
+ * one tick after it, as long as earlier tasks do not hold up the worker. Cancelled tasks
+ * are dropped when the cursor next passes their bucket.
+ */
+final class TimerWheel implements AutoCloseable {
+
+	private static final Log logger = LogFactory.getLog(TimerWheel.class);
+
+	/**
+	 * Longest delay accepted, to keep deadlines clear of overflow. Tasks scheduled
+	 * further ahead run after this delay instead.
+	 */
+	private static final long MAX_DELAY = Long.MAX_VALUE / 4;
+
+	private final long tickNanos;
+
+	private final List<Timeout>[] buckets;
+
+	private final int mask;
+
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+	private final long startTime = System.nanoTime();
+
+	private final Thread worker;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Create and start a wheel.
+	 * @param tick the duration of one tick
+	 * @param ticksPerWheel the number of buckets, rounded up to a power of two
+	 * @param threadFactory the factory for the worker thread
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	TimerWheel(Duration tick, int ticksPerWheel, ThreadFactory threadFactory) {
+		if (tick.isNegative() || tick.isZero() || ticksPerWheel <= 0 || ticksPerWheel > (1 << 20)) {
+			throw new IllegalArgumentException("Invalid timer wheel of " + ticksPerWheel + " ticks of " + tick);
+		}
+		int size = Integer.highestOneBit(ticksPerWheel);
+		if (size < ticksPerWheel) {
+			size <<= 1;
+		}
+		this.tickNanos = tick.toNanos();
+		this.buckets = new List[size];
+		for (int i = 0; i < size; i++) {
+			this.buckets[i] = new ArrayList<>();
+		}
+		this.mask = size - 1;
+		this.worker = threadFactory.newThread(this::work);
+		this.worker.start();
+	}
+
+	/**
+	 * Run the given task once the delay has elapsed.
+	 * @param delay the delay, a negative delay meaning the task is overdue
+	 * @param task the task to run
+	 * @return a handle to cancel the task
+	 */
+	Timeout schedule(Duration delay, Runnable task) {
+		long nanos = (delay.compareTo(Duration.ofNanos(MAX_DELAY)) > 0) ? MAX_DELAY : Math.max(delay.toNanos(), 0);
+		Timeout timeout = new Timeout(System.nanoTime() - this.startTime + nanos, task);
+		this.pending.add(timeout);
+		return timeout;
+	}
+
+	int size() {
+		return this.buckets.length;
+	}
+
+	@Override
+	public void close() {
+		this.running = false;
+		LockSupport.unpark(this.worker);
+	}
+
+	private void work() {
+		long tick = 0;
+		while (this.running) {
+			long wait = tick * this.tickNanos - (System.nanoTime() - this.startTime);
+			if (wait > 0) {
+				LockSupport.parkNanos(this, wait);
+				continue;
+			}
+			transferPending(tick);
+			expire(this.buckets[(int) (tick & this.mask)]);
+			tick++;
+		}
+	}
+
+	private void transferPending(long tick) {
+		Timeout timeout;
+		while ((timeout = this.pending.poll()) != null) {
+			if (!timeout.cancelled) {
+				long due = Math.max((timeout.deadline + this.tickNanos - 1) / this.tickNanos, tick);
+				timeout.rounds = (due - tick) / this.buckets.length;
+				this.buckets[(int) (due & this.mask)].add(timeout);
+			}
+		}
+	}
+
+	private void expire(List<Timeout> bucket) {
+		for (Iterator<Timeout> iterator = bucket.iterator(); iterator.hasNext();) {
+			Timeout timeout = iterator.next();
+			if (timeout.cancelled) {
+				iterator.remove();
+			}
+			else if (timeout.rounds > 0) {
+				timeout.rounds--;
+			}
+			else {
+				iterator.remove();
+				run(timeout);
+			}
+		}
+	}
+
+	private void run(Timeout timeout) {
+		try {
+			timeout.task.run();
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Timer task failed", ex);
+		}
+	}
+
+	/**
+	 * Handle on a scheduled task.
+	 */
+	static final class Timeout {
+
+		private final long deadline;
+
+		private final Runnable task;
+
+		private long rounds;
+
+		private volatile boolean cancelled;
+
+		private Timeout(long deadline, Runnable task) {
+			this.deadline = deadline;
+			this.task = task;
+		}
+
+		/**
+		 * Prevent the task from running, if it has not run yet.
+		 */
+		void cancel() {
+			this.cancelled = true;
+		}
+
+		boolean isCancelled() {
+			return this.cancelled;
+		}
+
+	}
+
+}
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import org.hibernate.annotations.BatchSize;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.model.Person;
 import org.springframework.util.Assert;
@@ -28,6 +29,9 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
@@ -36,6 +40,10 @@ import jakarta.validation.constraints.NotBlank;
 
 /**
  * Simple JavaBean domain object representing an owner.
+ * <p>
+ * Pets and their visits are loaded lazily, and then for several owners or pets at once.
+ * Callers pick the fetch plan they need from {@link OwnerRepository}, the {@link #PETS}
+ * entity graph loads an owner with its pets and their types in a single query.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -46,8 +54,15 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "owners")
+@NamedEntityGraph(name = Owner.PETS, attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+		subgraphs = @NamedSubgraph(name = "pet", attributeNodes = @NamedAttributeNode("type")))
 public class Owner extends Person {
 
+	/**
+	 * Name of the entity graph loading an owner with its pets and their types.
+	 */
+	public static final String PETS = "Owner.pets";
+
 	@Column
 	@NotBlank
 	private String address;
@@ -61,9 +76,17 @@ public class Owner extends Person {
 	@Pattern(regexp = "\\d{10}", message = "{telephone.invalid}")
 	private String telephone;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	/**
+	 * The last name in lower case, computed by the database so that searches matching and
+	 * ordering by it can use an index.
+	 */
+	@Column(insertable = false, updatable = false)
+	private String lastNameLower;
+
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JoinColumn(name = "owner_id")
 	@OrderBy("name")
+	@BatchSize(size = 25)
 	private final List<Pet> pets = new ArrayList<>();
 
 	public String getAddress() {
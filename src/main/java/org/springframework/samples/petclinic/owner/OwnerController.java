@@ -15,13 +15,11 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagKillSwitch;
 import org.springframework.samples.petclinic.featureflag.FeatureFlagService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -55,9 +53,19 @@ class OwnerController {
 
 	private final FeatureFlagService featureFlagService;
 
-	public OwnerController(OwnerRepository owners, FeatureFlagService featureFlagService) {
+	private final FeatureFlagKillSwitch killSwitch;
+
+	private final OwnerPager pager;
+
+	private final ObjectProvider<OwnerNameIndex> nameIndex;
+
+	public OwnerController(OwnerRepository owners, FeatureFlagService featureFlagService,
+			FeatureFlagKillSwitch killSwitch, OwnerPager pager, ObjectProvider<OwnerNameIndex> nameIndex) {
 		this.owners = owners;
 		this.featureFlagService = featureFlagService;
+		this.killSwitch = killSwitch;
+		this.pager = pager;
+		this.nameIndex = nameIndex;
 	}
 
 	@InitBinder
@@ -86,6 +94,7 @@ class OwnerController {
 		}
 
 		this.owners.save(owner);
+		this.nameIndex.ifAvailable((index) -> index.saved(owner));
 		redirectAttributes.addFlashAttribute("message", "New Owner Created");
 		return "redirect:/owners/" + owner.getId();
 	}
@@ -96,48 +105,52 @@ class OwnerController {
 	}
 
 	@GetMapping("/owners")
-	public String processFindForm(@RequestParam(defaultValue = "1") int page, Owner owner, BindingResult result,
+	public String processFindForm(@RequestParam(required = false) String cursor, Owner owner, BindingResult result,
 			Model model) {
 		if (!featureFlagService.isEnabled("owner_search")) {
 			result.rejectValue("lastName", "disabled", "Owner search is currently disabled");
 			return "owners/findOwners";
 		}
 
-		String lastName = owner.getLastName();
-		if (lastName == null) {
-			lastName = "";
-		}
+		String lastName = (owner.getLastName() != null) ? owner.getLastName() : "";
 
-		Page<Owner> ownersResults = findPaginatedForOwnersLastName(page, lastName);
-		if (ownersResults.isEmpty()) {
+		OwnerCursor position = parseCursor(cursor);
+
+		// the search is switched off automatically when it gets too slow
+		OwnerPage ownersResults = this.killSwitch.measure("owner_search", () -> this.pager.find(lastName, position));
+		if (ownersResults.owners().isEmpty()) {
 			// no owners found
 			result.rejectValue("lastName", "notFound", "not found");
 			return "owners/findOwners";
 		}
 
-		if (ownersResults.getTotalElements() == 1) {
+		if (ownersResults.owners().size() == 1 && ownersResults.previous() == null && ownersResults.next() == null) {
 			// 1 owner found
-			owner = ownersResults.iterator().next();
-			return "redirect:/owners/" + owner.getId();
+			return "redirect:/owners/" + ownersResults.owners().get(0).id();
 		}
 
 		// multiple owners found
-		return addPaginationModel(page, model, ownersResults);
+		return addPaginationModel(lastName, model, ownersResults);
 	}
 
-	private String addPaginationModel(int page, Model model, Page<Owner> paginated) {
-		List<Owner> listOwners = paginated.getContent();
-		model.addAttribute("currentPage", page);
-		model.addAttribute("totalPages", paginated.getTotalPages());
-		model.addAttribute("totalItems", paginated.getTotalElements());
-		model.addAttribute("listOwners", listOwners);
+	private String addPaginationModel(String lastName, Model model, OwnerPage paginated) {
+		model.addAttribute("lastName", lastName);
+		model.addAttribute("ownersPage", paginated);
+		model.addAttribute("listOwners", paginated.owners());
 		return "owners/ownersList";
 	}
 
-	private Page<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
-		int pageSize = 5;
-		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return owners.findByLastNameStartingWith(lastname, pageable);
+	private static OwnerCursor parseCursor(String cursor) {
+		if (cursor == null) {
+			return OwnerCursor.FIRST;
+		}
+		try {
+			return OwnerCursor.decode(cursor);
+		}
+		catch (IllegalArgumentException ex) {
+			// a damaged link starts the search over
+			return OwnerCursor.FIRST;
+		}
 	}
 
 	@GetMapping("/owners/{ownerId}/edit")
@@ -161,6 +174,7 @@ class OwnerController {
 
 		owner.setId(ownerId);
 		this.owners.save(owner);
+		this.nameIndex.ifAvailable((index) -> index.saved(owner));
 		redirectAttributes.addFlashAttribute("message", "Owner Values Updated");
 		return "redirect:/owners/{ownerId}";
 	}
@@ -173,7 +187,7 @@ class OwnerController {
 	@GetMapping("/owners/{ownerId}")
 	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
-		Optional<Owner> optionalOwner = this.owners.findById(ownerId);
+		Optional<Owner> optionalOwner = this.owners.findWithPetsAndVisitsById(ownerId);
 		Owner owner = optionalOwner.orElseThrow(() -> new IllegalArgumentException(
 				"Owner not found with id: " + ownerId + ". Please ensure the ID is correct "));
 		mav.addObject(owner);
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a page of the owner search results in (last name, id) order, passed around
+ * as an opaque token. A page either starts right after an owner or ends right before one;
+ * a page ending before no owner at all is the last page.
+ *
+ * @param page the number of the page, for display only
+ * @param lastName the last name of the owner the page starts after or ends before, or
+ * {@code null} for the last page
+ * @param id the id of that owner, or {@code null} for the last page
+ * @param before whether the page ends before the owner rather than starting after it
+ */
+record OwnerCursor(int page, String lastName, Integer id, boolean before) {
+
+	/**
+	 * The first page, starting before every owner.
+	 */
+	static final OwnerCursor FIRST = new OwnerCursor(1, "", 0, false);
+
+	OwnerCursor {
+		if (page < 1 || (!before && (lastName == null || id == null)) || ((lastName == null) != (id == null))) {
+			throw new IllegalArgumentException("Invalid owner cursor");
+		}
+	}
+
+	static OwnerCursor after(int page, OwnerKey owner) {
+		return new OwnerCursor(page, owner.lastName(), owner.id(), false);
+	}
+
+	static OwnerCursor before(int page, OwnerKey owner) {
+		return new OwnerCursor(page, owner.lastName(), owner.id(), true);
+	}
+
+	static OwnerCursor last(int page) {
+		return new OwnerCursor(page, null, null, true);
+	}
+
+	boolean isFirst() {
+		return !this.before && this.lastName.isEmpty();
+	}
+
+	boolean isLast() {
+		return this.before && this.lastName == null;
+	}
+
+	/**
+	 * Return the URL-safe token of this cursor.
+	 */
+	String encode() {
+		String key = (this.id != null) ? this.id + ":" + this.lastName : "";
+		String value = this.page + ":" + (this.before ? "b" : "a") + ":" + key;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Read a cursor from its token.
+	 * @throws IllegalArgumentException if the token is not a valid cursor
+	 */
+	static OwnerCursor decode(String token) {
+		String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		String[] parts = value.split(":", 4);
+		if (parts.length < 3 || !(parts[1].equals("a") || parts[1].equals("b"))) {
+			throw new IllegalArgumentException("Invalid owner cursor");
+		}
+		int page = Integer.parseInt(parts[0]);
+		boolean before = parts[1].equals("b");
+		if (parts.length == 3 && parts[2].isEmpty()) {
+			return new OwnerCursor(page, null, null, before);
+		}
+		if (parts.length != 4) {
+			throw new IllegalArgumentException("Invalid owner cursor");
+		}
+		return new OwnerCursor(page, parts[3], Integer.valueOf(parts[2]), before);
+	}
+
+}
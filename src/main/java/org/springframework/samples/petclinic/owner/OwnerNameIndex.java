@@ -0,0 +1,286 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the owners by last name, which answers the prefix searches of the
+ * owner search and their counts without reading the database. Last names are compared
+ * case-insensitively, and owners with the same last name are ordered by id.
+ * <p>
+ * The index is an immutable sorted snapshot that is replaced as a whole: lookups never
+ * lock, and an owner that is saved copies the snapshot once. It is built when the
+ * application is ready, updated by the {@link OwnerController} when an owner is created
+ * or renamed, and rebuilt from the database every refresh interval to pick up the changes
+ * made by other nodes. Until it is built, {@link #find} returns {@code null}.
+ */
+@Component
+@ConditionalOnProperty(name = "petclinic.owners.index.enabled", matchIfMissing = true)
+class OwnerNameIndex {
+
+	private static final Log logger = LogFactory.getLog(OwnerNameIndex.class);
+
+	private final OwnerRepository owners;
+
+	private final Object monitor = new Object();
+
+	private volatile Snapshot snapshot;
+
+	private volatile long version;
+
+	// owners saved while a rebuild reads the database, guarded by the monitor
+	private Map<Integer, String> savedDuringRebuild;
+
+	OwnerNameIndex(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${petclinic.owners.index.refresh-interval:10m}",
+			initialDelayString = "${petclinic.owners.index.refresh-interval:10m}")
+	void rebuild() {
+		synchronized (this.monitor) {
+			this.savedDuringRebuild = new LinkedHashMap<>();
+		}
+		List<OwnerKey> keys;
+		try {
+			keys = this.owners.findAllKeys();
+		}
+		catch (RuntimeException ex) {
+			synchronized (this.monitor) {
+				this.savedDuringRebuild = null;
+			}
+			// searches keep using the current snapshot, or the database if there is none
+			logger.warn("Could not index the last names of the owners", ex);
+			return;
+		}
+		synchronized (this.monitor) {
+			Snapshot rebuilt = Snapshot.of(keys);
+			// the rows read may predate owners saved in the meantime
+			for (Map.Entry<Integer, String> saved : this.savedDuringRebuild.entrySet()) {
+				rebuilt = rebuilt.with(saved.getKey(), saved.getValue());
+			}
+			this.savedDuringRebuild = null;
+			this.snapshot = rebuilt;
+			this.version++;
+		}
+		logger.debug("Indexed the last names of " + keys.size() + " owners");
+	}
+
+	/**
+	 * Record the last name of an owner that was created or updated.
+	 * @param owner the saved owner
+	 */
+	void saved(Owner owner) {
+		synchronized (this.monitor) {
+			if (this.savedDuringRebuild != null) {
+				this.savedDuringRebuild.put(owner.getId(), owner.getLastName());
+			}
+			if (this.snapshot != null) {
+				this.snapshot = this.snapshot.with(owner.getId(), owner.getLastName());
+			}
+			this.version++;
+		}
+	}
+
+	/**
+	 * Return a number that changes whenever an owner is saved or the index is rebuilt.
+	 */
+	long version() {
+		return this.version;
+	}
+
+	/**
+	 * Look up the owners whose last name starts with the given prefix.
+	 * @param lastName the last name prefix
+	 * @return the matching owners, or {@code null} if the index is not built yet
+	 */
+	Range find(String lastName) {
+		Snapshot current = this.snapshot;
+		return (current != null) ? current.find(normalize(lastName)) : null;
+	}
+
+	static String normalize(String lastName) {
+		return (lastName != null) ? lastName.toLowerCase(Locale.ROOT) : "";
+	}
+
+	private static int compare(String name, int id, String otherName, int otherId) {
+		int result = name.compareTo(otherName);
+		return (result != 0) ? result : Integer.compare(id, otherId);
+	}
+
+	/**
+	 * The owners in (normalized last name, id) order, kept in parallel arrays.
+	 */
+	private static final class Snapshot {
+
+		private final String[] names;
+
+		private final OwnerKey[] keys;
+
+		private Snapshot(String[] names, OwnerKey[] keys) {
+			this.names = names;
+			this.keys = keys;
+		}
+
+		static Snapshot of(Collection<OwnerKey> owners) {
+			OwnerKey[] keys = owners.toArray(new OwnerKey[0]);
+			Arrays.sort(keys, (a, b) -> compare(normalize(a.lastName()), a.id(), normalize(b.lastName()), b.id()));
+			String[] names = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				names[i] = normalize(keys[i].lastName());
+			}
+			return new Snapshot(names, keys);
+		}
+
+		Snapshot with(Integer id, String lastName) {
+			List<String> names = new ArrayList<>(this.names.length + 1);
+			List<OwnerKey> keys = new ArrayList<>(this.keys.length + 1);
+			for (int i = 0; i < this.keys.length; i++) {
+				if (!this.keys[i].id().equals(id)) {
+					names.add(this.names[i]);
+					keys.add(this.keys[i]);
+				}
+			}
+			String name = normalize(lastName);
+			int position = 0;
+			while (position < keys.size() && compare(names.get(position), keys.get(position).id(), name, id) < 0) {
+				position++;
+			}
+			names.add(position, name);
+			keys.add(position, new OwnerKey(id, lastName));
+			return new Snapshot(names.toArray(new String[0]), keys.toArray(new OwnerKey[0]));
+		}
+
+		Range find(String prefix) {
+			int from = lowerBound(prefix, Integer.MIN_VALUE);
+			// the names starting with the prefix follow each other
+			int low = from;
+			int high = this.names.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.names[middle].startsWith(prefix)) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return new Range(this, from, low);
+		}
+
+		/**
+		 * Return the position of the first owner at or after the given key.
+		 */
+		int lowerBound(String name, int id) {
+			return bound(name, id, false);
+		}
+
+		/**
+		 * Return the position of the first owner after the given key.
+		 */
+		int upperBound(String name, int id) {
+			return bound(name, id, true);
+		}
+
+		private int bound(String name, int id, boolean inclusive) {
+			int low = 0;
+			int high = this.names.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				int result = compare(this.names[middle], this.keys[middle].id(), name, id);
+				if (result < 0 || (inclusive && result == 0)) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+	}
+
+	/**
+	 * The owners whose last name starts with a prefix, as positions in a snapshot.
+	 */
+	static final class Range {
+
+		private final Snapshot snapshot;
+
+		private final int from;
+
+		private final int to;
+
+		private Range(Snapshot snapshot, int from, int to) {
+			this.snapshot = snapshot;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Return the number of owners in the range.
+		 */
+		int size() {
+			return this.to - this.from;
+		}
+
+		/**
+		 * Return the number of owners in the range that come before the given owner.
+		 */
+		int countBefore(String lastName, int id) {
+			return clamp(this.snapshot.lowerBound(normalize(lastName), id));
+		}
+
+		/**
+		 * Return the number of owners in the range that come before the given owner, or
+		 * are the given owner.
+		 */
+		int countUpTo(String lastName, int id) {
+			return clamp(this.snapshot.upperBound(normalize(lastName), id));
+		}
+
+		/**
+		 * Return the owners of the range between the given positions.
+		 * @param start the position of the first owner, inclusive
+		 * @param end the position of the last owner, exclusive
+		 */
+		List<OwnerKey> keys(int start, int end) {
+			return Arrays.asList(this.snapshot.keys).subList(this.from + start, this.from + end);
+		}
+
+		private int clamp(int position) {
+			return Math.min(Math.max(position - this.from, 0), size());
+		}
+
+	}
+
+}
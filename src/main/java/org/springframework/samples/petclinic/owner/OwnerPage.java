@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+/**
+ * A page of owner search results with the links of the pager: the pages around the
+ * current one, and the first, previous, next and last pages where they exist.
+ *
+ * @param owners the owners on the page
+ * @param number the number of the page
+ * @param pages the links to the pages around this one, including this one
+ * @param first the link to the first page, or {@code null} on the first page
+ * @param previous the link to the previous page, or {@code null} on the first page
+ * @param next the link to the next page, or {@code null} on the last page
+ * @param last the link to the last page, or {@code null} on the last page or when the
+ * number of pages is not known
+ * @param total the number of matching owners, or {@code null} if not counted
+ */
+public record OwnerPage(List<OwnerSummary> owners, int number, List<Link> pages, Link first, Link previous, Link next,
+		Link last, Long total) {
+
+	/**
+	 * Link to a page.
+	 *
+	 * @param number the number of the page
+	 * @param cursor the token of the page
+	 */
+	public record Link(int number, String cursor) {
+
+		static Link to(OwnerCursor cursor) {
+			return new Link(cursor.page(), cursor.encode());
+		}
+
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagShadowRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pages through owner search results by seeking on (last name, id) instead of skipping
+ * rows, so that every page costs the same however deep it is.
+ * <p>
+ * A page is read together with the owners of the following pages of the window, in a
+ * single query, and the owners of the preceding pages of the window are read in a second
+ * one. Together they give the position of each page of the window. The number of matching
+ * owners is only needed to link to the last page; it is read from a cache and can be
+ * turned off.
+ * <p>
+ * Once the {@link OwnerNameIndex} is built, the positions and the count come from the
+ * index instead, and only the owners of the page itself are read, by id. The index is
+ * guarded by the {@code owner_search_index} flag: while the flag is disabled the pages
+ * are read from the database, and in shadow mode the index is read alongside to compare
+ * the two.
+ */
+@Component
+class OwnerPager {
+
+	private final OwnerRepository owners;
+
+	private final int pageSize;
+
+	private final int window;
+
+	private final boolean count;
+
+	private final OwnerNameIndex index;
+
+	private final FeatureFlagShadowRunner shadowRunner;
+
+	@Autowired
+	OwnerPager(OwnerRepository owners, ObjectProvider<OwnerNameIndex> index,
+			ObjectProvider<FeatureFlagShadowRunner> shadowRunner,
+			@Value("${petclinic.owners.page-size:5}") int pageSize,
+			@Value("${petclinic.owners.page-window:2}") int window,
+			@Value("${petclinic.owners.count:true}") boolean count) {
+		this(owners, index.getIfAvailable(), shadowRunner.getIfAvailable(), pageSize, window, count);
+	}
+
+	OwnerPager(OwnerRepository owners, OwnerNameIndex index, int pageSize, int window, boolean count) {
+		this(owners, index, null, pageSize, window, count);
+	}
+
+	OwnerPager(OwnerRepository owners, OwnerNameIndex index, FeatureFlagShadowRunner shadowRunner, int pageSize,
+			int window, boolean count) {
+		this.owners = owners;
+		this.index = index;
+		this.shadowRunner = shadowRunner;
+		this.pageSize = pageSize;
+		this.window = window;
+		this.count = count;
+	}
+
+	/**
+	 * Read the page at the given position.
+	 * @param lastName the last name prefix to search for
+	 * @param cursor the position of the page
+	 * @return the page, which is the first page if the position has no owners any more
+	 */
+	OwnerPage find(String lastName, OwnerCursor cursor) {
+		OwnerNameIndex.Range range = (this.index != null) ? this.index.find(lastName) : null;
+		if (range == null) {
+			return findInDatabase(lastName, cursor);
+		}
+		if (this.shadowRunner == null) {
+			return findInIndex(range, lastName, cursor);
+		}
+		return this.shadowRunner.run("owner_search_index", () -> findInDatabase(lastName, cursor),
+				() -> findInIndex(range, lastName, cursor));
+	}
+
+	private OwnerPage findInIndex(OwnerNameIndex.Range range, String lastName, OwnerCursor cursor) {
+		OwnerPage page = find(range, cursor);
+		return (page != null) ? page : findInDatabase(lastName, cursor);
+	}
+
+	private OwnerPage findInDatabase(String lastName, OwnerCursor cursor) {
+		// last names are compared in lower case, as the index compares them
+		String pattern = likePattern(OwnerNameIndex.normalize(lastName));
+		String cursorName = OwnerNameIndex.normalize(cursor.lastName());
+		// one owner more than the window before the page tells whether the window reaches
+		// the first page
+		PageRequest behindWindow = PageRequest.ofSize(this.pageSize * this.window + 1);
+		PageRequest aheadWindow = PageRequest.ofSize(this.pageSize * this.window);
+		List<OwnerSummary> owners;
+		List<OwnerSummary> ahead;
+		List<OwnerSummary> behind;
+		if (!cursor.before()) {
+			List<OwnerSummary> read = this.owners.findSummariesAfter(pattern, cursorName, cursor.id(),
+					PageRequest.ofSize(this.pageSize * (this.window + 1)));
+			if (read.isEmpty() && !cursor.isFirst()) {
+				return findInDatabase(lastName, OwnerCursor.FIRST);
+			}
+			owners = read.subList(0, Math.min(this.pageSize, read.size()));
+			ahead = read.subList(owners.size(), read.size());
+			behind = cursor.isFirst() ? List.of() : this.owners.findSummariesBefore(pattern,
+					OwnerNameIndex.normalize(owners.get(0).lastName()), owners.get(0).id(), behindWindow);
+		}
+		else {
+			PageRequest withWindow = PageRequest.ofSize(this.pageSize * (this.window + 1) + 1);
+			List<OwnerSummary> read = cursor.isLast() ? this.owners.findLastSummaries(pattern, withWindow)
+					: this.owners.findSummariesBefore(pattern, cursorName, cursor.id(), withWindow);
+			if (read.size() <= this.pageSize) {
+				// nothing before this page, read the first page in full
+				return findInDatabase(lastName, OwnerCursor.FIRST);
+			}
+			owners = new ArrayList<>(read.subList(0, this.pageSize));
+			Collections.reverse(owners);
+			behind = read.subList(this.pageSize, read.size());
+			OwnerSummary lastOwner = owners.get(owners.size() - 1);
+			ahead = this.owners.findSummariesAfter(pattern, OwnerNameIndex.normalize(lastOwner.lastName()),
+					lastOwner.id(), aheadWindow);
+		}
+		// the page number is exact when the window reaches the first page, and kept
+		// otherwise
+		boolean reachesFirst = behind.size() <= this.pageSize * this.window;
+		int number = reachesFirst ? pageNumber(behind.size()) : Math.max(cursor.page(), this.window + 1);
+		return page(cursor, owners, keys(ahead), keys(behind), number, () -> this.owners.countByLastNameLike(pattern));
+	}
+
+	/**
+	 * Read the page at the given position of the index, or return {@code null} if the
+	 * index does not match the database.
+	 */
+	private OwnerPage find(OwnerNameIndex.Range range, OwnerCursor cursor) {
+		int start;
+		if (!cursor.before()) {
+			start = range.countUpTo(cursor.lastName(), cursor.id());
+			if (start >= range.size() && !cursor.isFirst()) {
+				return find(range, OwnerCursor.FIRST);
+			}
+		}
+		else {
+			int end = cursor.isLast() ? range.size() : range.countBefore(cursor.lastName(), cursor.id());
+			if (end <= this.pageSize) {
+				return find(range, OwnerCursor.FIRST);
+			}
+			start = end - this.pageSize;
+		}
+		int end = Math.min(start + this.pageSize, range.size());
+		// one owner more than the window before the page, as read from the database
+		int behindStart = Math.max(start - this.pageSize * this.window - 1, 0);
+		List<OwnerKey> behind = new ArrayList<>(range.keys(behindStart, start));
+		Collections.reverse(behind);
+		List<OwnerKey> ahead = range.keys(end, Math.min(end + this.pageSize * this.window, range.size()));
+		List<OwnerKey> keys = range.keys(start, end);
+		List<OwnerSummary> owners = this.owners.findSummariesInOrder(keys.stream().map(OwnerKey::id).toList());
+		if (owners.size() < keys.size()) {
+			// an owner is gone from the database, the index is behind until its next
+			// rebuild
+			return null;
+		}
+		return page(cursor, owners, ahead, behind, pageNumber(start), range::size);
+	}
+
+	/**
+	 * Return the pattern matching the last names that start with the given prefix, with
+	 * {@code !} as escape character.
+	 */
+	static String likePattern(String lastName) {
+		return lastName.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+	}
+
+	private int pageNumber(int ownersBefore) {
+		return (ownersBefore + this.pageSize - 1) / this.pageSize + 1;
+	}
+
+	private static List<OwnerKey> keys(List<OwnerSummary> owners) {
+		return owners.stream().map(OwnerSummary::key).toList();
+	}
+
+	private OwnerPage page(OwnerCursor cursor, List<OwnerSummary> owners, List<OwnerKey> ahead, List<OwnerKey> behind,
+			int number, LongSupplier count) {
+		List<OwnerPage.Link> pages = new ArrayList<>();
+		// the k-th previous page ends before the first owner of the page that follows it
+		for (int k = 1; k <= this.window && behind.size() > (k - 1) * this.pageSize; k++) {
+			OwnerCursor previous = (behind.size() <= k * this.pageSize) ? OwnerCursor.FIRST : OwnerCursor
+				.before(number - k, (k == 1) ? owners.get(0).key() : behind.get((k - 1) * this.pageSize - 1));
+			pages.add(0, OwnerPage.Link.to(previous));
+		}
+		int current = pages.size();
+		pages.add(OwnerPage.Link.to(new OwnerCursor(number, cursor.lastName(), cursor.id(), cursor.before())));
+		// the k-th next page starts after the last owner of the page that precedes it
+		for (int k = 1; k <= this.window && ahead.size() > (k - 1) * this.pageSize; k++) {
+			OwnerKey after = (k == 1) ? owners.get(owners.size() - 1).key() : ahead.get((k - 1) * this.pageSize - 1);
+			pages.add(OwnerPage.Link.to(OwnerCursor.after(number + k, after)));
+		}
+		OwnerPage.Link previous = (current > 0) ? pages.get(current - 1) : null;
+		OwnerPage.Link next = (current < pages.size() - 1) ? pages.get(current + 1) : null;
+		OwnerPage.Link first = (previous != null) ? OwnerPage.Link.to(OwnerCursor.FIRST) : null;
+		Long total;
+		if (previous == null && next == null) {
+			total = (long) owners.size();
+		}
+		else {
+			total = this.count ? count.getAsLong() : null;
+		}
+		OwnerPage.Link last = null;
+		if (total != null && next != null) {
+			int lastNumber = (int) Math.max((total + this.pageSize - 1) / this.pageSize, number + 1);
+			last = OwnerPage.Link.to(OwnerCursor.last(lastNumber));
+		}
+		return new OwnerPage(owners, number, pages, first, previous, next, last, total);
+	}
+
+}
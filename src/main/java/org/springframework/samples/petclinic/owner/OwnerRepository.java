@@ -15,11 +15,23 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.hibernate.Hibernate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository class for <code>Owner</code> domain objects. All method names are compliant
@@ -35,6 +47,19 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface OwnerRepository extends JpaRepository<Owner, Integer> {
 
+	/**
+	 * Name of the cache holding the number of owners per last name prefix.
+	 */
+	String OWNER_COUNTS = "ownerCounts";
+
+	String SUMMARY_SELECT = "SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(o.id, o.firstName, "
+			+ "o.lastName, o.address, o.city, o.telephone, listagg(p.name, ', ') WITHIN GROUP (ORDER BY p.name)) "
+			+ "FROM Owner o LEFT JOIN o.pets p ";
+
+	String LAST_NAME_LIKE = "WHERE o.lastNameLower LIKE :lastNamePattern ESCAPE '!' ";
+
+	String SUMMARY_GROUP_BY = "GROUP BY o.id, o.firstName, o.lastName, o.lastNameLower, o.address, o.city, o.telephone ";
+
 	/**
 	 * Retrieve {@link Owner}s from the data store by last name, returning all owners
 	 * whose last name <i>starts</i> with the given name.
@@ -44,6 +69,88 @@ public interface OwnerRepository extends JpaRepository<Owner, Integer> {
 	 */
 	Page<Owner> findByLastNameStartingWith(String lastName, Pageable pageable);
 
+	/**
+	 * Retrieve the {@link OwnerSummary summaries} of the owners whose lower case last
+	 * name is like the given pattern, with {@code !} as escape character, that come after
+	 * the given owner in (lower case last name, id) order, the order of the
+	 * {@link OwnerNameIndex}. Each page is read in a single query that seeks on the index
+	 * and joins the names of the pets, without loading any entity.
+	 * @param lastNamePattern the lower case pattern to match last names against
+	 * @param lastName the lower case last name of the owner to start after, empty to
+	 * start at the first owner
+	 * @param id the id of the owner to start after
+	 * @param pageable the number of owners to read
+	 * @return the owners in ascending (last name, id) order
+	 */
+	@Query(SUMMARY_SELECT + LAST_NAME_LIKE
+			+ "AND o.lastNameLower >= :lastName AND (o.lastNameLower > :lastName OR o.id > :id) " + SUMMARY_GROUP_BY
+			+ "ORDER BY o.lastNameLower, o.id")
+	List<OwnerSummary> findSummariesAfter(String lastNamePattern, String lastName, Integer id, Pageable pageable);
+
+	/**
+	 * Retrieve the {@link OwnerSummary summaries} of the owners like
+	 * {@link #findSummariesAfter}, but that come before the given owner, nearest first.
+	 * @return the owners in descending (last name, id) order
+	 */
+	@Query(SUMMARY_SELECT + LAST_NAME_LIKE
+			+ "AND o.lastNameLower <= :lastName AND (o.lastNameLower < :lastName OR o.id < :id) " + SUMMARY_GROUP_BY
+			+ "ORDER BY o.lastNameLower DESC, o.id DESC")
+	List<OwnerSummary> findSummariesBefore(String lastNamePattern, String lastName, Integer id, Pageable pageable);
+
+	/**
+	 * Retrieve the {@link OwnerSummary summaries} of the last owners like
+	 * {@link #findSummariesAfter}, last first.
+	 * @return the owners in descending (last name, id) order
+	 */
+	@Query(SUMMARY_SELECT + LAST_NAME_LIKE + SUMMARY_GROUP_BY + "ORDER BY o.lastNameLower DESC, o.id DESC")
+	List<OwnerSummary> findLastSummaries(String lastNamePattern, Pageable pageable);
+
+	/**
+	 * Retrieve the {@link OwnerSummary summaries} of the owners with the given ids.
+	 * @param ids the ids of the owners
+	 * @return the owners, in no particular order
+	 */
+	@Query(SUMMARY_SELECT + "WHERE o.id IN :ids " + SUMMARY_GROUP_BY)
+	List<OwnerSummary> findSummariesByIdIn(Collection<Integer> ids);
+
+	/**
+	 * Retrieve the {@link OwnerSummary summaries} of the owners with the given ids, in
+	 * the order of the ids. Owners that do not exist are left out.
+	 * @param ids the ids of the owners
+	 * @return the owners, in the order of the ids
+	 */
+	default List<OwnerSummary> findSummariesInOrder(List<Integer> ids) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+		Map<Integer, OwnerSummary> byId = findSummariesByIdIn(ids).stream()
+			.collect(Collectors.toMap(OwnerSummary::id, Function.identity()));
+		return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+	}
+
+	/**
+	 * Retrieve the id and last name of every owner, to build the {@link OwnerNameIndex}.
+	 * @return the keys of all owners, in no particular order
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerKey(o.id, o.lastName) FROM Owner o")
+	List<OwnerKey> findAllKeys();
+
+	/**
+	 * Count the owners whose lower case last name is like the given pattern, as
+	 * {@link #findSummariesAfter} matches them. Counts are cached until an owner is
+	 * saved.
+	 * @param lastNamePattern the lower case pattern to match last names against
+	 * @return the number of matching owners
+	 */
+	@Transactional(readOnly = true)
+	@Cacheable(OWNER_COUNTS)
+	@Query("SELECT count(o) FROM Owner o " + LAST_NAME_LIKE)
+	long countByLastNameLike(String lastNamePattern);
+
+	@Override
+	@CacheEvict(cacheNames = OWNER_COUNTS, allEntries = true)
+	<S extends Owner> S save(S owner);
+
 	/**
 	 * Retrieve an {@link Owner} from the data store by id.
 	 * <p>
@@ -51,6 +158,9 @@ public interface OwnerRepository extends JpaRepository<Owner, Integer> {
 	 * no {@link Owner} is found with the provided id, it will return an empty
 	 * {@link Optional}.
 	 * </p>
+	 * <p>
+	 * Only the owner itself is loaded, its pets are fetched lazily.
+	 * </p>
 	 * @param id the id to search for
 	 * @return an {@link Optional} containing the {@link Owner} if found, or an empty
 	 * {@link Optional} if not found.
@@ -59,4 +169,28 @@ public interface OwnerRepository extends JpaRepository<Owner, Integer> {
 	 */
 	Optional<Owner> findById(Integer id);
 
+	/**
+	 * Retrieve an {@link Owner} with its pets and their types, in a single query. The
+	 * visits of the pets are not loaded.
+	 * @param id the id to search for
+	 * @return an {@link Optional} containing the {@link Owner} if found
+	 * @see Owner#PETS
+	 */
+	@EntityGraph(Owner.PETS)
+	Optional<Owner> findWithPetsById(Integer id);
+
+	/**
+	 * Retrieve an {@link Owner} with its pets, their types and all their visits. The
+	 * visits of all pets are fetched in one additional query: fetching them in the same
+	 * query would repeat every pet once per visit.
+	 * @param id the id to search for
+	 * @return an {@link Optional} containing the {@link Owner} if found
+	 */
+	@Transactional(readOnly = true)
+	default Optional<Owner> findWithPetsAndVisitsById(Integer id) {
+		Optional<Owner> owner = findWithPetsById(id);
+		owner.ifPresent((found) -> found.getPets().forEach((pet) -> Hibernate.initialize(pet.getVisits())));
+		return owner;
+	}
+
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * An owner suggested while typing a last name in the owner search.
+ *
+ * @param id the id of the owner
+ * @param name the first and last name of the owner
+ * @param city the city of the owner
+ * @param pets the names of the pets of the owner, separated by commas, or {@code null} if
+ * the owner has no pets
+ */
+public record OwnerSuggestion(Integer id, String name, String city, String pets) {
+
+	static OwnerSuggestion of(OwnerSummary owner) {
+		return new OwnerSuggestion(owner.id(), owner.firstName() + " " + owner.lastName(), owner.city(), owner.pets());
+	}
+
+}
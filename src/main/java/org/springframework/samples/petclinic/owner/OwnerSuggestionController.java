@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+import org.springframework.samples.petclinic.featureflag.FeatureFlagService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * JSON endpoint behind the autocomplete of the owner search form. Like the search itself,
+ * it is switched off with the {@code owner_search} flag.
+ */
+@RestController
+class OwnerSuggestionController {
+
+	private final OwnerSuggestions suggestions;
+
+	private final FeatureFlagService featureFlagService;
+
+	OwnerSuggestionController(OwnerSuggestions suggestions, FeatureFlagService featureFlagService) {
+		this.suggestions = suggestions;
+		this.featureFlagService = featureFlagService;
+	}
+
+	@GetMapping("/owners/suggestions")
+	List<OwnerSuggestion> suggest(@RequestParam(defaultValue = "") String lastName,
+			@RequestParam(defaultValue = "10") int limit) {
+		if (!this.featureFlagService.isEnabled("owner_search") || lastName.isBlank()) {
+			return List.of();
+		}
+		return this.suggestions.suggest(lastName.strip(), limit);
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagKillSwitch;
+import org.springframework.stereotype.Component;
+
+/**
+ * Suggests the first owners whose last name starts with a prefix, for the autocomplete of
+ * the owner search. The owners are found in the {@link OwnerNameIndex} and only they are
+ * read from the database, or the first ones are read from the database while there is no
+ * index.
+ * <p>
+ * Typing a name asks for the same few prefixes again and again, so the suggestions of the
+ * most recently used prefixes are kept in a small LRU cache. An entry is dropped when the
+ * index changes, which covers owners that are created or renamed, and otherwise expires
+ * after a time to live, which covers pets that are added.
+ * <p>
+ * Owners are read under the budget of the {@code owner_search} flag, so slow or failing
+ * suggestions switch the owner search off like slow searches do.
+ */
+@Component
+class OwnerSuggestions {
+
+	private final OwnerRepository owners;
+
+	private final OwnerNameIndex index;
+
+	private final FeatureFlagKillSwitch killSwitch;
+
+	private final int limit;
+
+	private final Duration timeToLive;
+
+	private final Clock clock;
+
+	private final Map<String, Entry> cache;
+
+	@Autowired
+	OwnerSuggestions(OwnerRepository owners, ObjectProvider<OwnerNameIndex> index, FeatureFlagKillSwitch killSwitch,
+			@Value("${petclinic.owners.suggestions.limit:10}") int limit,
+			@Value("${petclinic.owners.suggestions.cache-size:256}") int cacheSize,
+			@Value("${petclinic.owners.suggestions.time-to-live:1m}") Duration timeToLive) {
+		this(owners, index.getIfAvailable(), killSwitch, limit, cacheSize, timeToLive, Clock.systemUTC());
+	}
+
+	OwnerSuggestions(OwnerRepository owners, OwnerNameIndex index, FeatureFlagKillSwitch killSwitch, int limit,
+			int cacheSize, Duration timeToLive, Clock clock) {
+		this.owners = owners;
+		this.index = index;
+		this.killSwitch = killSwitch;
+		this.limit = limit;
+		this.timeToLive = timeToLive;
+		this.clock = clock;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > cacheSize;
+			}
+
+		};
+	}
+
+	/**
+	 * Suggest the owners whose last name starts with the given prefix.
+	 * @param lastName the last name prefix
+	 * @param limit the maximum number of owners, capped at the configured limit
+	 * @return the owners in (last name, id) order
+	 */
+	List<OwnerSuggestion> suggest(String lastName, int limit) {
+		int count = Math.max(0, Math.min(limit, this.limit));
+		List<OwnerSuggestion> suggestions = suggest(lastName);
+		return (suggestions.size() > count) ? suggestions.subList(0, count) : suggestions;
+	}
+
+	private List<OwnerSuggestion> suggest(String lastName) {
+		String key = OwnerNameIndex.normalize(lastName);
+		long version = (this.index != null) ? this.index.version() : 0;
+		long now = this.clock.millis();
+		synchronized (this.cache) {
+			Entry cached = this.cache.get(key);
+			if (cached != null && cached.version() == version && now < cached.expires()) {
+				return cached.suggestions();
+			}
+		}
+		List<OwnerSuggestion> suggestions = this.killSwitch.measure("owner_search", () -> read(key))
+			.stream()
+			.map(OwnerSuggestion::of)
+			.toList();
+		synchronized (this.cache) {
+			this.cache.put(key, new Entry(suggestions, version, now + this.timeToLive.toMillis()));
+		}
+		return suggestions;
+	}
+
+	/**
+	 * Read the owners whose last name starts with the given lower case prefix, matched
+	 * ignoring case by both the index and the database, like the cache key.
+	 */
+	private List<OwnerSummary> read(String lastName) {
+		OwnerNameIndex.Range range = (this.index != null) ? this.index.find(lastName) : null;
+		if (range == null) {
+			return this.owners.findSummariesAfter(OwnerPager.likePattern(lastName), "", 0,
+					PageRequest.ofSize(this.limit));
+		}
+		List<OwnerKey> keys = range.keys(0, Math.min(this.limit, range.size()));
+		return this.owners.findSummariesInOrder(keys.stream().map(OwnerKey::id).toList());
+	}
+
+	private record Entry(List<OwnerSuggestion> suggestions, long version, long expires) {
+
+	}
+
+}
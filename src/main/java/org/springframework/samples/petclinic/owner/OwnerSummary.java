@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Read-only view of an {@link Owner} for the owner list, with the names of its pets
+ * joined into a single string. Summaries are read by {@link OwnerRepository} in one query
+ * and are not managed by the persistence context.
+ *
+ * @param id the id of the owner
+ * @param firstName the first name of the owner
+ * @param lastName the last name of the owner
+ * @param address the address of the owner
+ * @param city the city of the owner
+ * @param telephone the telephone number of the owner
+ * @param pets the names of the pets of the owner in alphabetical order, separated by
+ * commas, or {@code null} if the owner has no pets
+ */
+public record OwnerSummary(Integer id, String firstName, String lastName, String address, String city, String telephone,
+		String pets) {
+
+	OwnerKey key() {
+		return new OwnerKey(this.id, this.lastName);
+	}
+
+}
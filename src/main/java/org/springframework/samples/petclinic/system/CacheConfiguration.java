@@ -21,12 +21,19 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
 
 /**
  * Cache configuration intended for caches providing the JCache API. This configuration
  * creates the used cache for the application and enables statistics that become
  * accessible via JMX.
+ * <p>
+ * Without a JCache provider on the classpath the caches are Caffeine caches instead,
+ * bounded in size and expiring as set by {@code spring.cache.caffeine.spec}.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
@@ -36,7 +43,8 @@ class CacheConfiguration {
 	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
 		return cm -> {
 			cm.createCache("vets", cacheConfiguration());
-			cm.createCache("featureFlags", cacheConfiguration());
+			cm.createCache("ownerCounts", cacheConfiguration()
+				.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MINUTES, 10))));
 		};
 	}
 
@@ -49,7 +57,7 @@ class CacheConfiguration {
 	 * configuration options (like the size limit) must be set via a configuration
 	 * mechanism that is provided by the selected JCache implementation.
 	 */
-	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration() {
+	private MutableConfiguration<Object, Object> cacheConfiguration() {
 		return new MutableConfiguration<>().setStatisticsEnabled(true);
 	}
 
@@ -6,6 +6,8 @@ DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
 DROP TABLE feature_flags IF EXISTS;
+DROP TABLE feature_flag_tombstones IF EXISTS;
+DROP TABLE feature_flag_audit IF EXISTS;
 
 
 CREATE TABLE vets (
@@ -40,9 +42,11 @@ CREATE TABLE owners (
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
-  telephone  VARCHAR(20)
+  telephone  VARCHAR(20),
+  last_name_lower VARCHAR(30) INVISIBLE GENERATED ALWAYS AS (LOWER(last_name))
 );
-CREATE INDEX owners_last_name ON owners (last_name);
+CREATE INDEX owners_last_name ON owners (last_name, id);
+CREATE INDEX owners_last_name_lower ON owners (last_name_lower, id);
 
 CREATE TABLE pets (
   id         INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -69,7 +73,34 @@ CREATE TABLE feature_flags (
   name       VARCHAR(255) NOT NULL UNIQUE,
   enabled    BOOLEAN NOT NULL DEFAULT FALSE,
   description VARCHAR(500),
+  rollout_percentage INTEGER,
+  targeting_rules VARCHAR(1000),
+  shadow BOOLEAN NOT NULL DEFAULT FALSE,
+  active_from TIMESTAMP,
+  active_until TIMESTAMP,
+  window_inverted BOOLEAN NOT NULL DEFAULT FALSE,
+  window_daily BOOLEAN NOT NULL DEFAULT FALSE,
+  version BIGINT NOT NULL DEFAULT 0,
   created_at TIMESTAMP,
   updated_at TIMESTAMP
 );
 CREATE INDEX idx_feature_flags_name ON feature_flags(name);
+CREATE INDEX idx_feature_flags_updated_at ON feature_flags(updated_at);
+
+CREATE TABLE feature_flag_tombstones (
+  id         INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name       VARCHAR(255) NOT NULL,
+  deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX idx_feature_flag_tombstones_deleted_at ON feature_flag_tombstones(deleted_at);
+
+CREATE TABLE feature_flag_audit (
+  id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  occurred_at TIMESTAMP NOT NULL,
+  kind        VARCHAR(20) NOT NULL,
+  flag_name   VARCHAR(255) NOT NULL,
+  action      VARCHAR(20) NOT NULL,
+  actor       VARCHAR(255),
+  detail      VARCHAR(1000)
+);
+CREATE INDEX idx_feature_flag_audit_occurred_at ON feature_flag_audit(occurred_at);
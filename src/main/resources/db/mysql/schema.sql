@@ -32,7 +32,9 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  last_name_lower VARCHAR(30) AS (lower(last_name)) STORED INVISIBLE,
+  INDEX(last_name),
+  INDEX owners_last_name_lower (last_name_lower, id)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
@@ -59,7 +61,34 @@ CREATE TABLE IF NOT EXISTS feature_flags (
   name VARCHAR(255) NOT NULL UNIQUE,
   enabled BOOLEAN NOT NULL DEFAULT FALSE,
   description VARCHAR(500),
+  rollout_percentage INT,
+  targeting_rules VARCHAR(1000),
+  shadow BOOLEAN NOT NULL DEFAULT FALSE,
+  active_from TIMESTAMP NULL,
+  active_until TIMESTAMP NULL,
+  window_inverted BOOLEAN NOT NULL DEFAULT FALSE,
+  window_daily BOOLEAN NOT NULL DEFAULT FALSE,
+  version BIGINT NOT NULL DEFAULT 0,
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-  INDEX(name)
+  INDEX(name),
+  INDEX(updated_at)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS feature_flag_tombstones (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  deleted_at TIMESTAMP NOT NULL,
+  INDEX(deleted_at)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS feature_flag_audit (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  occurred_at TIMESTAMP NOT NULL,
+  kind VARCHAR(20) NOT NULL,
+  flag_name VARCHAR(255) NOT NULL,
+  action VARCHAR(20) NOT NULL,
+  actor VARCHAR(255),
+  detail VARCHAR(1000),
+  INDEX(occurred_at)
 ) engine=InnoDB;
@@ -29,9 +29,10 @@ CREATE TABLE IF NOT EXISTS owners (
   last_name  TEXT,
   address    TEXT,
   city       TEXT,
-  telephone  TEXT
+  telephone  TEXT,
+  last_name_lower TEXT COLLATE "C" GENERATED ALWAYS AS (lower(last_name)) STORED
 );
-CREATE INDEX ON owners (last_name);
+CREATE INDEX ON owners (last_name_lower, id);
 
 CREATE TABLE IF NOT EXISTS pets (
   id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -56,7 +57,34 @@ CREATE TABLE IF NOT EXISTS feature_flags (
   name       TEXT NOT NULL UNIQUE,
   enabled    BOOLEAN NOT NULL DEFAULT FALSE,
   description TEXT,
+  rollout_percentage INT,
+  targeting_rules TEXT,
+  shadow BOOLEAN NOT NULL DEFAULT FALSE,
+  active_from TIMESTAMP,
+  active_until TIMESTAMP,
+  window_inverted BOOLEAN NOT NULL DEFAULT FALSE,
+  window_daily BOOLEAN NOT NULL DEFAULT FALSE,
+  version BIGINT NOT NULL DEFAULT 0,
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 CREATE INDEX ON feature_flags (name);
+CREATE INDEX ON feature_flags (updated_at);
+
+CREATE TABLE IF NOT EXISTS feature_flag_tombstones (
+  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name       TEXT NOT NULL,
+  deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX ON feature_flag_tombstones (deleted_at);
+
+CREATE TABLE IF NOT EXISTS feature_flag_audit (
+  id          INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  occurred_at TIMESTAMP NOT NULL,
+  kind        TEXT NOT NULL,
+  flag_name   TEXT NOT NULL,
+  action      TEXT NOT NULL,
+  actor       TEXT,
+  detail      TEXT
+);
+CREATE INDEX ON feature_flag_audit (occurred_at);
@@ -0,0 +1,81 @@
+/*
+ * Suggests owners while a last name is typed in the owner search form. The form works
+ * the same without this script: it only adds a list of links to the matching owners.
+ */
+(function () {
+  var input = document.querySelector('[data-suggestions-url]');
+  if (!input || !window.fetch) {
+    return;
+  }
+  var list = document.createElement('div');
+  list.className = 'list-group owner-suggestions';
+  list.setAttribute('role', 'listbox');
+  input.setAttribute('autocomplete', 'off');
+  input.parentNode.insertBefore(list, input.nextSibling);
+
+  var timer;
+  var pending;
+
+  function clear() {
+    list.replaceChildren();
+  }
+
+  function abort() {
+    if (pending) {
+      pending.abort();
+      pending = null;
+    }
+  }
+
+  function render(owners) {
+    clear();
+    owners.forEach(function (owner) {
+      var link = document.createElement('a');
+      link.className = 'list-group-item';
+      link.setAttribute('role', 'option');
+      link.href = input.dataset.ownerUrl + owner.id;
+      var name = document.createElement('strong');
+      name.textContent = owner.name;
+      link.appendChild(name);
+      var details = [owner.city, owner.pets].filter(Boolean).join(' – ');
+      if (details) {
+        link.appendChild(document.createTextNode(' ' + details));
+      }
+      list.appendChild(link);
+    });
+  }
+
+  input.addEventListener('input', function () {
+    clearTimeout(timer);
+    var lastName = input.value.trim();
+    if (!lastName) {
+      abort();
+      clear();
+      return;
+    }
+    timer = setTimeout(function () {
+      abort();
+      pending = new AbortController();
+      var url = input.dataset.suggestionsUrl + '?lastName=' + encodeURIComponent(lastName);
+      fetch(url, { headers: { Accept: 'application/json' }, signal: pending.signal })
+        .then(function (response) {
+          return response.ok ? response.json() : [];
+        })
+        .then(function (owners) {
+          // a response that arrives after the input changed would show the wrong owners
+          if (input.value.trim() === lastName) {
+            render(owners);
+          }
+        })
+        .catch(function () {
+          // aborted by a newer request, or the search form is still there to use
+        });
+    }, 150);
+  });
+
+  input.addEventListener('keydown', function (event) {
+    if (event.key === 'Escape') {
+      clear();
+    }
+  });
+})();
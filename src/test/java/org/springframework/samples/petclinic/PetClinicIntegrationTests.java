@@ -18,6 +18,7 @@ package org.springframework.samples.petclinic;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
@@ -25,9 +26,11 @@ import org.springframework.boot.restclient.RestTemplateBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.web.client.RestTemplate;
 
@@ -40,6 +43,12 @@ public class PetClinicIntegrationTests {
 	@Autowired
 	private VetRepository vets;
 
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private CacheManager cacheManager;
+
 	@Autowired
 	private RestTemplateBuilder builder;
 
@@ -49,6 +58,16 @@ public class PetClinicIntegrationTests {
 		vets.findAll(); // served from cache
 	}
 
+	@Test
+	void testOwnerCountsCacheIsBounded() {
+		owners.countByLastNameLike("da%");
+
+		Cache<?, ?> counts = (Cache<?, ?>) cacheManager.getCache(OwnerRepository.OWNER_COUNTS).getNativeCache();
+		assertThat(counts.estimatedSize()).isOne();
+		assertThat(counts.policy().eviction().orElseThrow().getMaximum()).isEqualTo(500);
+		assertThat(counts.policy().expireAfterWrite()).isPresent();
+	}
+
 	@Test
 	void testOwnerDetails() {
 		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
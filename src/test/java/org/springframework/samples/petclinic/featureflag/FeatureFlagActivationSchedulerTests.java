@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagActivationSchedulerTests {
+
+	private static final Duration TICK = Duration.ofMillis(10);
+
+	@Mock
+	private FeatureFlagSnapshotFile snapshotFile;
+
+	@Mock
+	private FeatureFlagAuditLog auditLog;
+
+	private FeatureFlagService service;
+
+	private FeatureFlagActivationScheduler scheduler;
+
+	@BeforeEach
+	void setup() {
+		service = new FeatureFlagService(new InMemoryFeatureFlagStore(), (event) -> {
+			if (event instanceof FeatureFlagsChangedEvent changed) {
+				scheduler.onFlagsChanged(changed);
+			}
+		}, snapshotFile, auditLog);
+		scheduler = new FeatureFlagActivationScheduler(service, new TimerWheel(TICK, 8, Thread::new), TICK);
+		scheduler.start();
+	}
+
+	@AfterEach
+	void stop() {
+		scheduler.destroy();
+	}
+
+	@Test
+	void shouldFlipFlagAtWindowBoundaries() throws InterruptedException {
+		LocalDateTime now = LocalDateTime.now();
+		service.create(flag(now.plus(Duration.ofMillis(100)), now.plus(Duration.ofMillis(250))));
+
+		assertThat(service.isEnabled("maintenance")).isFalse();
+		assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+
+		awaitEnabled(true);
+		assertThat(LocalDateTime.now()).isAfterOrEqualTo(now.plus(Duration.ofMillis(100)).minus(TICK));
+		awaitEnabled(false);
+		assertThat(LocalDateTime.now()).isAfterOrEqualTo(now.plus(Duration.ofMillis(250)).minus(TICK));
+		assertThat(scheduler.getScheduledCount()).isZero();
+	}
+
+	@Test
+	void shouldCancelBoundaryOfChangedWindow() {
+		FeatureFlag created = service.create(flag(LocalDateTime.now().plusHours(1), null));
+		assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+
+		created.setActiveFrom(null);
+		service.update(created.getId(), created);
+
+		assertThat(service.isEnabled("maintenance")).isTrue();
+		assertThat(scheduler.getScheduledCount()).isZero();
+	}
+
+	@Test
+	void shouldForgetBoundaryOfDeletedFlag() {
+		FeatureFlag created = service.create(flag(null, LocalDateTime.now().plusHours(1)));
+		assertThat(service.isEnabled("maintenance")).isTrue();
+		assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+
+		service.delete(created.getId());
+
+		assertThat(scheduler.getScheduledCount()).isZero();
+	}
+
+	private void awaitEnabled(boolean enabled) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (service.isEnabled("maintenance") != enabled && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(service.isEnabled("maintenance")).isEqualTo(enabled);
+	}
+
+	private static FeatureFlag flag(LocalDateTime activeFrom, LocalDateTime activeUntil) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName("maintenance");
+		flag.setEnabled(true);
+		flag.setActiveFrom(activeFrom);
+		flag.setActiveUntil(activeUntil);
+		return flag;
+	}
+
+}
@@ -18,11 +18,20 @@ package org.springframework.samples.petclinic.featureflag;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.BDDMockito.given;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,9 +40,18 @@ class FeatureFlagAspectTests {
 	@Mock
 	private FeatureFlagService featureFlagService;
 
-	@InjectMocks
+	private MeterRegistry meterRegistry;
+
 	private FeatureFlagAspect aspect;
 
+	@BeforeEach
+	void setup() {
+		meterRegistry = new SimpleMeterRegistry();
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+		aspect = new FeatureFlagAspect(featureFlagService, beanFactory,
+				beanFactory.getBeanProvider(MeterRegistry.class));
+	}
+
 	@Test
 	void shouldReturnTrueWhenFlagIsEnabled() {
 		given(featureFlagService.isEnabled("test_flag")).willReturn(true);
@@ -43,4 +61,143 @@ class FeatureFlagAspectTests {
 		assertThat(result).isTrue();
 	}
 
+	@Test
+	void shouldProceedWhenFlagIsEnabled() {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(true));
+
+		assertThat(proxy().greet()).isEqualTo("hello");
+	}
+
+	@Test
+	void shouldThrowWhenFlagIsDisabled() {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(false));
+
+		assertThatExceptionOfType(FeatureFlagDisabledException.class).isThrownBy(() -> proxy().greet())
+			.withMessageContaining("test_flag");
+	}
+
+	@Test
+	void shouldReturnDefaultValueWhenFlagIsDisabled() {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(false));
+		GuardedService proxy = proxy();
+
+		assertThat(proxy.check()).isFalse();
+		assertThat(proxy.count()).isZero();
+		assertThat(proxy.name()).isNull();
+	}
+
+	@Test
+	void shouldFollowFlagChanges() {
+		FeatureFlagHandle handle = handle(false);
+		given(featureFlagService.handle("test_flag")).willReturn(handle);
+		GuardedService proxy = proxy();
+		assertThat(proxy.check()).isFalse();
+
+		handle.update(FeatureFlagSnapshot.of(List.of(flag(true))));
+
+		assertThat(proxy.check()).isTrue();
+	}
+
+	@Test
+	void shouldAnswerFromStatePinnedByRequest() {
+		// the flag was switched off after the request pinned version 1
+		given(featureFlagService.handle("test_flag"))
+			.willReturn(new FeatureFlagHandle("test_flag", FeatureFlagSnapshot.of(List.of(flag(false))).withVersion(2),
+					new FeatureFlagStatistics().forFlag("test_flag")));
+		given(featureFlagService.requestContext())
+			.willReturn(new FeatureFlagRequestContext(FeatureFlagSnapshot.of(List.of(flag(true))).withVersion(1)));
+
+		assertThat(proxy().greet()).isEqualTo("hello");
+	}
+
+	@Test
+	void shouldAnswerFromHandleAtVersionPinnedByRequest() {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(true));
+		FeatureFlagRequestContext requestContext = new FeatureFlagRequestContext(
+				FeatureFlagSnapshot.of(List.of(flag(true))).withVersion(1));
+		given(featureFlagService.requestContext()).willReturn(requestContext);
+
+		assertThat(proxy().greet()).isEqualTo("hello");
+		assertThat(requestContext.getResolved()).isEmpty();
+	}
+
+	@Test
+	void shouldEvaluateAgainstContextParameter() {
+		FeatureFlagEvaluationContext context = new FeatureFlagEvaluationContext(1, "Madison", List.of());
+		given(featureFlagService.handle("test_flag")).willReturn(handle(false));
+		given(featureFlagService.isEnabled("test_flag", context)).willReturn(true);
+
+		assertThat(proxy().forOwner(context)).isEqualTo("hello owner");
+	}
+
+	@Test
+	void shouldRejectContextParameterOfOtherType() {
+		assertThatIllegalStateException().isThrownBy(() -> proxy().forCity("Madison"))
+			.withMessageContaining("not a FeatureFlagEvaluationContext");
+	}
+
+	@Test
+	void shouldRecordTimeSpentInChecks() {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(true));
+		GuardedService proxy = proxy();
+
+		proxy.greet();
+		proxy.greet();
+
+		assertThat(meterRegistry.get("petclinic.featureflags.guard").tag("flag", "test_flag").functionTimer().count())
+			.isEqualTo(2);
+	}
+
+	private GuardedService proxy() {
+		AspectJProxyFactory factory = new AspectJProxyFactory(new GuardedService());
+		factory.addAspect(aspect);
+		return factory.getProxy();
+	}
+
+	private static FeatureFlagHandle handle(boolean enabled) {
+		return new FeatureFlagHandle("test_flag", FeatureFlagSnapshot.of(List.of(flag(enabled))).withVersion(1),
+				new FeatureFlagStatistics().forFlag("test_flag"));
+	}
+
+	private static FeatureFlag flag(boolean enabled) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName("test_flag");
+		flag.setEnabled(enabled);
+		return flag;
+	}
+
+	public static class GuardedService {
+
+		@FeatureFlagRequired("test_flag")
+		public String greet() {
+			return "hello";
+		}
+
+		@FeatureFlagRequired(value = "test_flag", throwException = false)
+		public boolean check() {
+			return true;
+		}
+
+		@FeatureFlagRequired(value = "test_flag", throwException = false)
+		public int count() {
+			return 1;
+		}
+
+		@FeatureFlagRequired(value = "test_flag", throwException = false)
+		public String name() {
+			return "name";
+		}
+
+		@FeatureFlagRequired(value = "test_flag", context = "owner")
+		public String forOwner(FeatureFlagEvaluationContext owner) {
+			return "hello owner";
+		}
+
+		@FeatureFlagRequired(value = "test_flag", context = "city")
+		public String forCity(String city) {
+			return "hello " + city;
+		}
+
+	}
+
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeatureFlagAuditLogTests {
+
+	private final RecordingSink sink = new RecordingSink();
+
+	@AfterEach
+	void resetRequest() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void shouldWriteChangesOnFlushOnly() {
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(this.sink), 16, 16, 1, 0);
+
+		auditLog.recordChange("test_flag", "toggled", "enabled=true");
+		assertThat(this.sink.batches).isEmpty();
+
+		auditLog.flush();
+		assertThat(this.sink.batches).singleElement().satisfies((batch) -> {
+			FeatureFlagAuditEvent event = batch.get(0);
+			assertThat(event.kind()).isEqualTo(FeatureFlagAuditEvent.Kind.CHANGE);
+			assertThat(event.flagName()).isEqualTo("test_flag");
+			assertThat(event.action()).isEqualTo("toggled");
+			assertThat(event.actor()).isEqualTo("system");
+			assertThat(event.detail()).isEqualTo("enabled=true");
+		});
+	}
+
+	@Test
+	void shouldWriteInBatches() {
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(this.sink), 16, 4, 1, 0);
+		for (int i = 0; i < 10; i++) {
+			auditLog.recordChange("flag_" + i, "created", null);
+		}
+
+		auditLog.flush();
+
+		assertThat(this.sink.batches).extracting(List::size).containsExactly(4, 4, 2);
+	}
+
+	@Test
+	void shouldSampleEvaluationsByOutcome() {
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(this.sink), 16, 16, 1, 0);
+
+		auditLog.recordEvaluation("test_flag", true, "OwnerController.find");
+		auditLog.recordEvaluation("test_flag", false, "OwnerController.find");
+		auditLog.flush();
+
+		assertThat(this.sink.batches).singleElement()
+			.satisfies(
+					(batch) -> assertThat(batch).extracting(FeatureFlagAuditEvent::action).containsExactly("denied"));
+	}
+
+	@Test
+	void shouldAttributeEventsToCurrentRequest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/owners");
+		request.setRemoteUser("admin");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(this.sink), 16, 16, 1, 0);
+
+		auditLog.recordEvaluation("test_flag", false, "OwnerController.find");
+		auditLog.flush();
+
+		FeatureFlagAuditEvent event = this.sink.batches.get(0).get(0);
+		assertThat(event.actor()).isEqualTo("admin");
+		assertThat(event.detail()).isEqualTo("OwnerController.find GET /owners");
+	}
+
+	@Test
+	void shouldDropEventsWhileBufferIsFull() {
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(this.sink), 2, 16, 1, 0);
+
+		auditLog.recordChange("flag_a", "created", null);
+		auditLog.recordChange("flag_b", "created", null);
+		auditLog.recordChange("flag_c", "created", null);
+		auditLog.flush();
+
+		assertThat(auditLog.getDroppedCount()).isEqualTo(1);
+		assertThat(this.sink.batches).singleElement()
+			.satisfies((batch) -> assertThat(batch).extracting(FeatureFlagAuditEvent::flagName)
+				.containsExactly("flag_a", "flag_b"));
+	}
+
+	@Test
+	void shouldWriteToOtherSinksWhenOneFails() {
+		FeatureFlagAuditSink failing = (events) -> {
+			throw new IOException("disk full");
+		};
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(failing, this.sink), 16, 16, 1, 0);
+
+		auditLog.recordChange("test_flag", "deleted", null);
+		auditLog.flush();
+
+		assertThat(this.sink.batches).hasSize(1);
+	}
+
+	@Test
+	void shouldNotBufferWithoutSinks() {
+		FeatureFlagAuditLog auditLog = new FeatureFlagAuditLog(List.of(), 1, 16, 1, 1);
+
+		auditLog.recordChange("flag_a", "created", null);
+		auditLog.recordChange("flag_b", "created", null);
+
+		assertThat(auditLog.getDroppedCount()).isZero();
+	}
+
+	private static final class RecordingSink implements FeatureFlagAuditSink {
+
+		private final List<List<FeatureFlagAuditEvent>> batches = new ArrayList<>();
+
+		@Override
+		public void write(List<FeatureFlagAuditEvent> events) {
+			this.batches.add(List.copyOf(events));
+		}
+
+	}
+
+}
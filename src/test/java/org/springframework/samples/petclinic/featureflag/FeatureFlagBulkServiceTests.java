@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagImportResult.Outcome;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class FeatureFlagBulkServiceTests {
+
+	@Autowired
+	private FeatureFlagRepository repository;
+
+	@Autowired
+	private FeatureFlagTombstoneRepository tombstones;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private FeatureFlagService featureFlagService;
+
+	private FeatureFlagBulkService bulkService;
+
+	@BeforeEach
+	void setup() {
+		featureFlagService = mock(FeatureFlagService.class);
+		bulkService = new FeatureFlagBulkService(featureFlagService,
+				new JpaFeatureFlagStore(repository, tombstones, new JdbcTemplate(dataSource)), transactionManager);
+	}
+
+	@Test
+	void shouldCreateAndUpdateFlagsByName() {
+		bulkService.importFlags(
+				List.of(new FeatureFlagDefinition("bulk_a", false, "A", null, null, false, null, null, false, false)));
+
+		List<FeatureFlagImportResult> results = bulkService.importFlags(List.of(
+				new FeatureFlagDefinition("bulk_a", true, "A, updated", 50, null, false, null, null, false, false),
+				new FeatureFlagDefinition("bulk_b", true, "B", null, "city=Madison", false, null, null, false, false)));
+
+		assertThat(results).extracting(FeatureFlagImportResult::outcome)
+			.containsExactly(Outcome.UPDATED, Outcome.CREATED);
+		assertThat(bulkService.exportFlags()).containsExactly(
+				new FeatureFlagDefinition("bulk_a", true, "A, updated", 50, null, false, null, null, false, false),
+				new FeatureFlagDefinition("bulk_b", true, "B", null, "city=Madison", false, null, null, false, false));
+		verify(featureFlagService, times(2)).refreshAfterCommit();
+		verify(featureFlagService).audit("bulk_a", "imported", "enabled=true, rollout=50");
+		verify(featureFlagService).audit("bulk_b", "created", "enabled=true, rollout=null");
+	}
+
+	@Test
+	void shouldRejectInvalidDefinitionsIndividually() {
+		List<FeatureFlagImportResult> results = bulkService.importFlags(List.of(
+				new FeatureFlagDefinition("bulk_valid", true, null, null, null, false, null, null, false, false),
+				new FeatureFlagDefinition(" ", true, null, null, null, false, null, null, false, false),
+				new FeatureFlagDefinition("bulk_rollout", true, null, 150, null, false, null, null, false, false),
+				new FeatureFlagDefinition("bulk_rules", true, null, null, "color=red", false, null, null, false, false),
+				new FeatureFlagDefinition("bulk_valid", false, null, null, null, false, null, null, false, false)));
+
+		assertThat(results).extracting(FeatureFlagImportResult::outcome)
+			.containsExactly(Outcome.CREATED, Outcome.REJECTED, Outcome.REJECTED, Outcome.REJECTED, Outcome.REJECTED);
+		assertThat(results).allSatisfy(
+				(result) -> assertThat(result.message() == null).isEqualTo(result.outcome() != Outcome.REJECTED));
+		assertThat(bulkService.exportFlags()).containsExactly(
+				new FeatureFlagDefinition("bulk_valid", true, null, null, null, false, null, null, false, false));
+	}
+
+	@Test
+	void shouldRejectImportWhenFlagIsCreatedConcurrently() {
+		JpaFeatureFlagStore store = spy(new JpaFeatureFlagStore(repository, tombstones, new JdbcTemplate(dataSource)));
+		willAnswer((invocation) -> {
+			Object ids = invocation.callRealMethod();
+			FeatureFlag concurrent = new FeatureFlag();
+			concurrent.setName("bulk_race");
+			concurrent.setEnabled(true);
+			repository.saveAndFlush(concurrent);
+			return ids;
+		}).given(store).findIds();
+		bulkService = new FeatureFlagBulkService(featureFlagService, store, transactionManager);
+
+		List<FeatureFlagImportResult> results = bulkService.importFlags(List.of(
+				new FeatureFlagDefinition("bulk_race", false, null, null, null, false, null, null, false, false),
+				new FeatureFlagDefinition(" ", true, null, null, null, false, null, null, false, false)));
+
+		assertThat(results).extracting(FeatureFlagImportResult::outcome)
+			.containsExactly(Outcome.REJECTED, Outcome.REJECTED);
+		assertThat(results.get(0).message()).contains("concurrently");
+		assertThat(results.get(1).message()).isEqualTo("Name is required");
+		verify(featureFlagService, never()).refreshAfterCommit();
+	}
+
+	@Test
+	void shouldCreateAllFlagsInOneBatch() {
+		bulkService.createAll(FeatureFlagInitializer.DEFAULTS);
+
+		assertThat(bulkService.exportFlags()).containsExactlyElementsOf(FeatureFlagInitializer.DEFAULTS);
+		verify(featureFlagService).refreshAfterCommit();
+	}
+
+}
@@ -20,12 +20,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -34,6 +38,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -42,12 +48,20 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisabledInAotMode
 class FeatureFlagControllerTests {
 
+	private static final String ETAG = "\"" + FeatureFlagSnapshot.EPOCH + "-3\"";
+
 	@Autowired
 	private MockMvc mockMvc;
 
 	@MockitoBean
 	private FeatureFlagService service;
 
+	@MockitoBean
+	private FeatureFlagEventStream eventStream;
+
+	@MockitoBean
+	private FeatureFlagBulkService bulkService;
+
 	private FeatureFlag testFlag;
 
 	@BeforeEach
@@ -59,21 +73,102 @@ class FeatureFlagControllerTests {
 		testFlag.setDescription("Test flag");
 		testFlag.setCreatedAt(LocalDateTime.now());
 		testFlag.setUpdatedAt(LocalDateTime.now());
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(testFlag)).withVersion(3));
 	}
 
 	@Test
 	void shouldGetAllFlags() throws Exception {
 		List<FeatureFlag> flags = Arrays.asList(testFlag);
-		given(service.findAll()).willReturn(flags);
+		given(service.find(new FeatureFlagQuery(null, null, null, 500))).willReturn(flags);
 
-		mockMvc.perform(get("/api/feature-flags"))
-			.andExpect(status().isOk())
+		list(get("/api/feature-flags")).andExpect(status().isOk())
 			.andExpect(content().contentType(MediaType.APPLICATION_JSON))
 			.andExpect(jsonPath("$[0].id").value(1))
 			.andExpect(jsonPath("$[0].name").value("test_flag"))
 			.andExpect(jsonPath("$[0].enabled").value(true));
 	}
 
+	@Test
+	void shouldStreamAllFlagsInBatches() throws Exception {
+		List<FeatureFlag> batch = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			batch.add(flag(i + 1, String.format("flag_%03d", i)));
+		}
+		given(service.find(new FeatureFlagQuery("flag_", null, null, 500))).willReturn(batch);
+		given(service.find(new FeatureFlagQuery("flag_", null, "flag_499", 500)))
+			.willReturn(List.of(flag(501, "flag_500")));
+
+		list(get("/api/feature-flags").param("prefix", "flag_")).andExpect(status().isOk())
+			.andExpect(jsonPath("$.length()").value(501))
+			.andExpect(jsonPath("$[500].name").value("flag_500"));
+	}
+
+	@Test
+	void shouldReturnPageWithLinkToNextPage() throws Exception {
+		given(service.find(new FeatureFlagQuery(null, true, null, 2)))
+			.willReturn(List.of(testFlag, flag(2, "test_flag_2")));
+
+		String link = list(get("/api/feature-flags").param("enabled", "true").param("limit", "1"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.length()").value(1))
+			.andExpect(jsonPath("$[0].name").value("test_flag"))
+			.andReturn()
+			.getResponse()
+			.getHeader("Link");
+
+		String cursor = link.substring(link.indexOf("after=") + 6, link.indexOf('>'));
+		given(service.find(new FeatureFlagQuery(null, true, "test_flag", 2))).willReturn(List.of());
+		list(get("/api/feature-flags").param("enabled", "true").param("limit", "1").param("after", cursor))
+			.andExpect(status().isOk())
+			.andExpect(header().doesNotExist("Link"))
+			.andExpect(jsonPath("$.length()").value(0));
+	}
+
+	@Test
+	void shouldListCompactFlags() throws Exception {
+		given(service.findSummaries(new FeatureFlagQuery(null, null, null, 500)))
+			.willReturn(List.of(new FeatureFlagSummary("test_flag", true)));
+
+		list(get("/api/feature-flags").param("view", "compact")).andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].name").value("test_flag"))
+			.andExpect(jsonPath("$[0].enabled").value(true))
+			.andExpect(jsonPath("$[0].description").doesNotExist());
+	}
+
+	@Test
+	void shouldRejectInvalidListing() throws Exception {
+		mockMvc.perform(get("/api/feature-flags").param("after", "not base64!")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/feature-flags").param("limit", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/feature-flags").param("view", "other")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void shouldTagReadsWithFlagSetVersion() throws Exception {
+		given(service.findByName("test_flag")).willReturn(Optional.of(testFlag));
+
+		mockMvc.perform(get("/api/feature-flags/name/test_flag"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", ETAG));
+	}
+
+	@Test
+	void shouldReturnNotModifiedWithoutReadingWhenVersionIsUnchanged() throws Exception {
+		mockMvc.perform(get("/api/feature-flags").header("If-None-Match", ETAG))
+			.andExpect(status().isNotModified())
+			.andExpect(header().string("ETag", ETAG));
+
+		verify(service, never()).find(any());
+	}
+
+	@Test
+	void shouldReturnFlagsWhenVersionHasChanged() throws Exception {
+		given(service.find(any())).willReturn(List.of(testFlag));
+
+		list(get("/api/feature-flags").header("If-None-Match", "\"" + FeatureFlagSnapshot.EPOCH + "-2\""))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].name").value("test_flag"));
+	}
+
 	@Test
 	void shouldGetFlagById() throws Exception {
 		given(service.findById(1)).willReturn(Optional.of(testFlag));
@@ -130,6 +225,29 @@ class FeatureFlagControllerTests {
 			.andExpect(jsonPath("$").value(false));
 	}
 
+	@Test
+	void shouldCheckSeveralFlags() throws Exception {
+		mockMvc.perform(get("/api/feature-flags/check").param("names", "test_flag,missing_flag"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", ETAG))
+			.andExpect(jsonPath("$.test_flag").value(true))
+			.andExpect(jsonPath("$.missing_flag").value(false));
+	}
+
+	@Test
+	void shouldCheckAllFlags() throws Exception {
+		mockMvc.perform(get("/api/feature-flags/check").param("names", "all"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.test_flag").value(true))
+			.andExpect(jsonPath("$.all").doesNotExist());
+	}
+
+	@Test
+	void shouldReturnNotModifiedWhenCheckedFlagsAreUnchanged() throws Exception {
+		mockMvc.perform(get("/api/feature-flags/check").header("If-None-Match", ETAG))
+			.andExpect(status().isNotModified());
+	}
+
 	@Test
 	void shouldCreateNewFlag() throws Exception {
 		FeatureFlag newFlag = new FeatureFlag();
@@ -178,7 +296,7 @@ class FeatureFlagControllerTests {
 	@Test
 	void shouldReturnNotFoundWhenUpdatingNonExistentFlag() throws Exception {
 		given(service.update(eq(999), any(FeatureFlag.class)))
-			.willThrow(new IllegalArgumentException("Feature flag not found with id: 999"));
+			.willThrow(new FeatureFlagNotFoundException("Feature flag not found with id: 999"));
 
 		String jsonContent = "{\"name\":\"updated_flag\"}";
 
@@ -186,6 +304,66 @@ class FeatureFlagControllerTests {
 			.andExpect(status().isNotFound());
 	}
 
+	@Test
+	void shouldReturnBadRequestWhenUpdatingWithInvalidTargetingRules() throws Exception {
+		given(service.update(eq(1), any(FeatureFlag.class)))
+			.willThrow(new IllegalArgumentException("Unknown targeting attribute 'planet'"));
+
+		String jsonContent = "{\"name\":\"test_flag\",\"targetingRules\":\"planet=mars\"}";
+
+		mockMvc.perform(put("/api/feature-flags/1").contentType(MediaType.APPLICATION_JSON).content(jsonContent))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void shouldReturnBadRequestWhenUpdatingWithEmptyActivationWindow() throws Exception {
+		given(service.update(eq(1), any(FeatureFlag.class)))
+			.willThrow(new IllegalArgumentException("Active until must be after active from"));
+
+		String jsonContent = "{\"name\":\"test_flag\",\"activeFrom\":\"2026-01-02T00:00:00\","
+				+ "\"activeUntil\":\"2026-01-01T00:00:00\"}";
+
+		mockMvc.perform(put("/api/feature-flags/1").contentType(MediaType.APPLICATION_JSON).content(jsonContent))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void shouldReturnConflictWhenUpdatingChangedFlag() throws Exception {
+		given(service.update(eq(1), any(FeatureFlag.class)))
+			.willThrow(new OptimisticLockingFailureException("Feature flag with id 1 was changed since version 3"));
+
+		String jsonContent = "{\"name\":\"test_flag\",\"version\":3}";
+
+		mockMvc.perform(put("/api/feature-flags/1").contentType(MediaType.APPLICATION_JSON).content(jsonContent))
+			.andExpect(status().isConflict());
+	}
+
+	@Test
+	void shouldExportFlags() throws Exception {
+		given(bulkService.exportFlags()).willReturn(List.of(FeatureFlagDefinition.of(testFlag)));
+
+		mockMvc.perform(get("/api/feature-flags/export"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", ETAG))
+			.andExpect(jsonPath("$[0].name").value("test_flag"))
+			.andExpect(jsonPath("$[0].id").doesNotExist());
+	}
+
+	@Test
+	void shouldImportFlags() throws Exception {
+		given(bulkService.importFlags(any()))
+			.willReturn(List.of(new FeatureFlagImportResult("test_flag", FeatureFlagImportResult.Outcome.UPDATED, null),
+					FeatureFlagImportResult.rejected("", "Name is required")));
+
+		String jsonContent = "[{\"name\":\"test_flag\",\"enabled\":true,\"shadow\":false},{\"name\":\"\",\"enabled\":false,\"shadow\":false}]";
+
+		mockMvc.perform(post("/api/feature-flags/import").contentType(MediaType.APPLICATION_JSON).content(jsonContent))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].outcome").value("UPDATED"))
+			.andExpect(jsonPath("$[1].outcome").value("REJECTED"))
+			.andExpect(jsonPath("$[1].message").value("Name is required"));
+	}
+
 	@Test
 	void shouldDeleteFlag() throws Exception {
 		mockMvc.perform(delete("/api/feature-flags/1")).andExpect(status().isNoContent());
@@ -219,4 +397,19 @@ class FeatureFlagControllerTests {
 		mockMvc.perform(patch("/api/feature-flags/999/toggle")).andExpect(status().isNotFound());
 	}
 
+	/**
+	 * Perform a streamed listing and wait for its body.
+	 */
+	private ResultActions list(MockHttpServletRequestBuilder builder) throws Exception {
+		return mockMvc.perform(asyncDispatch(mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn()));
+	}
+
+	private static FeatureFlag flag(int id, String name) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setId(id);
+		flag.setName(name);
+		flag.setEnabled(true);
+		return flag;
+	}
+
 }
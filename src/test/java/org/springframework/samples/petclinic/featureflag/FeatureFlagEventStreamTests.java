@@ -0,0 +1,191 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagEventStreamTests {
+
+	@Mock
+	private FeatureFlagService service;
+
+	private FeatureFlagEventStream stream;
+
+	private FeatureFlag flag;
+
+	@BeforeEach
+	void setup() {
+		stream = new FeatureFlagEventStream(service, Runnable::run, 4, Duration.ofMinutes(1), Duration.ofSeconds(10));
+		flag = new FeatureFlag();
+		flag.setName("test_flag");
+		flag.setEnabled(true);
+	}
+
+	@Test
+	void shouldSendSnapshotToNewSubscriber() {
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)).withVersion(1));
+		CapturingEmitter emitter = new CapturingEmitter();
+
+		stream.subscribe(emitter, null);
+
+		assertThat(emitter.events).containsExactly("snapshot:" + FeatureFlagSnapshot.EPOCH + "-1");
+	}
+
+	@Test
+	void shouldSendChangesAfterSnapshot() {
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)).withVersion(1));
+		CapturingEmitter emitter = new CapturingEmitter();
+		stream.subscribe(emitter, null);
+
+		stream.onFlagsChanged(change(2));
+		stream.onFlagsChanged(change(3));
+
+		assertThat(emitter.events).containsExactly("snapshot:" + FeatureFlagSnapshot.EPOCH + "-1",
+				"change:" + FeatureFlagSnapshot.EPOCH + "-2", "change:" + FeatureFlagSnapshot.EPOCH + "-3");
+	}
+
+	@Test
+	void shouldResumeFromLastEventId() {
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)).withVersion(4));
+		stream.onFlagsChanged(change(2));
+		stream.onFlagsChanged(change(3));
+		stream.onFlagsChanged(change(4));
+		CapturingEmitter emitter = new CapturingEmitter();
+
+		stream.subscribe(emitter, FeatureFlagSnapshot.EPOCH + "-2");
+
+		assertThat(emitter.events).containsExactly("change:" + FeatureFlagSnapshot.EPOCH + "-3",
+				"change:" + FeatureFlagSnapshot.EPOCH + "-4");
+	}
+
+	@Test
+	void shouldSendSnapshotWhenResumingFromAnotherInstance() {
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)).withVersion(3));
+		stream.onFlagsChanged(change(2));
+		stream.onFlagsChanged(change(3));
+		CapturingEmitter emitter = new CapturingEmitter();
+
+		stream.subscribe(emitter, "other-2");
+
+		assertThat(emitter.events).containsExactly("snapshot:" + FeatureFlagSnapshot.EPOCH + "-3");
+	}
+
+	@Test
+	void shouldSendSnapshotWhenMissedEventsAreNoLongerBuffered() {
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)).withVersion(7));
+		for (int version = 2; version <= 7; version++) {
+			stream.onFlagsChanged(change(version));
+		}
+		CapturingEmitter emitter = new CapturingEmitter();
+
+		stream.subscribe(emitter, FeatureFlagSnapshot.EPOCH + "-2");
+
+		assertThat(emitter.events).containsExactly("snapshot:" + FeatureFlagSnapshot.EPOCH + "-7");
+	}
+
+	@Test
+	void shouldEvictSubscriberThatStoppedReading() throws Exception {
+		given(service.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)).withVersion(1));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			stream = new FeatureFlagEventStream(service, executor, 4, Duration.ofMinutes(1), Duration.ZERO);
+			StalledEmitter stalled = new StalledEmitter();
+			CapturingEmitter other = new CapturingEmitter();
+			stream.subscribe(stalled, null);
+			stream.subscribe(other, null);
+			assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+			stream.evictStalled();
+
+			// the only thread is free again and serves the other subscriber
+			executor.shutdown();
+			assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(stream.getSubscriberCount()).isEqualTo(1);
+			assertThat(other.events).containsExactly("snapshot:" + FeatureFlagSnapshot.EPOCH + "-1");
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private FeatureFlagsChangedEvent change(long version) {
+		return new FeatureFlagsChangedEvent(version,
+				List.of(new FeatureFlagsChangedEvent.Change("test_flag", new FeatureFlagState("test_flag",
+						version % 2 == 0, 100, null, false, null, null, false, false, true))));
+	}
+
+	/**
+	 * Records the name and id of every event sent, in order.
+	 */
+	static class CapturingEmitter extends SseEmitter {
+
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			StringBuilder text = new StringBuilder();
+			builder.build().forEach((part) -> text.append(part.getData()));
+			String event = text.toString();
+			events.add(field(event, "event:") + ":" + field(event, "id:"));
+		}
+
+		private static String field(String event, String prefix) {
+			int start = event.indexOf(prefix) + prefix.length();
+			return event.substring(start, event.indexOf('\n', start));
+		}
+
+	}
+
+	/**
+	 * Blocks every send until interrupted, like a client that stopped reading.
+	 */
+	static class StalledEmitter extends SseEmitter {
+
+		final CountDownLatch sending = new CountDownLatch(1);
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			sending.countDown();
+			try {
+				new CountDownLatch(1).await();
+			}
+			catch (InterruptedException ex) {
+				throw new InterruptedIOException();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagInitializerTests {
+
+	@Mock
+	private FeatureFlagService featureFlagService;
+
+	@Mock
+	private FeatureFlagBulkService bulkService;
+
+	@InjectMocks
+	private FeatureFlagInitializer initializer;
+
+	@Test
+	void shouldCreateOnlyMissingDefaultsInOneBatch() {
+		given(featureFlagService.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag("add_visit"))));
+
+		initializer.run();
+
+		verify(bulkService).createAll(List.of(FeatureFlagInitializer.DEFAULTS.get(0),
+				FeatureFlagInitializer.DEFAULTS.get(2), FeatureFlagInitializer.DEFAULTS.get(3)));
+	}
+
+	@Test
+	void shouldNotWriteWhenAllDefaultsExist() {
+		List<FeatureFlag> flags = FeatureFlagInitializer.DEFAULTS.stream()
+			.map((definition) -> flag(definition.name()))
+			.toList();
+		given(featureFlagService.snapshot()).willReturn(FeatureFlagSnapshot.of(flags));
+
+		initializer.run();
+
+		verify(bulkService, never()).createAll(any());
+	}
+
+	@Test
+	void shouldLeaveDatabaseAloneAtStartupWhenServingSnapshotFile() {
+		given(featureFlagService.isStale()).willReturn(true);
+
+		initializer.run();
+
+		verify(featureFlagService, never()).snapshot();
+		verify(bulkService, never()).createAll(any());
+	}
+
+	@Test
+	void shouldReadTableAndCreateDefaultsOnceReady() {
+		given(featureFlagService.isStale()).willReturn(true);
+		given(featureFlagService.snapshot()).willReturn(FeatureFlagSnapshot.EMPTY);
+
+		initializer.reconcile();
+
+		verify(featureFlagService).refresh();
+		verify(bulkService).createAll(FeatureFlagInitializer.DEFAULTS);
+	}
+
+	@Test
+	void shouldRetryUntilTableIsRead() {
+		given(featureFlagService.isStale()).willReturn(true);
+		given(featureFlagService.snapshot()).willReturn(FeatureFlagSnapshot.EMPTY);
+		willThrow(new DataAccessResourceFailureException("unreachable")).willDoNothing()
+			.given(featureFlagService)
+			.refresh();
+
+		initializer.reconcile();
+		verify(bulkService, never()).createAll(any());
+
+		initializer.reconcile();
+		verify(bulkService).createAll(FeatureFlagInitializer.DEFAULTS);
+
+		initializer.reconcile();
+		verify(featureFlagService, times(2)).refresh();
+		verify(bulkService).createAll(any());
+	}
+
+	@Test
+	@ExtendWith(OutputCaptureExtension.class)
+	void shouldWarnThatNoFlagsAreLoadedWithoutSnapshotFile(CapturedOutput output) {
+		given(featureFlagService.snapshot()).willThrow(new DataAccessResourceFailureException("unreachable"));
+
+		initializer.run();
+
+		assertThat(output).contains("no snapshot file was loaded")
+			.doesNotContain("serving them from the snapshot file");
+	}
+
+	@Test
+	void shouldReloadWhenDefaultsWereCreatedConcurrently() {
+		given(featureFlagService.snapshot()).willReturn(FeatureFlagSnapshot.EMPTY);
+		willThrow(new DataIntegrityViolationException("duplicate")).given(bulkService).createAll(any());
+
+		initializer.run();
+
+		verify(featureFlagService).refresh();
+	}
+
+	private static FeatureFlag flag(String name) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName(name);
+		flag.setEnabled(true);
+		return flag;
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles.Kind;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationCode;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.javapoet.ClassName;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagInterceptorTests {
+
+	@Mock
+	private FeatureFlagService featureFlagService;
+
+	private FeatureFlagInterceptor interceptor;
+
+	private MockHttpServletResponse response;
+
+	@BeforeEach
+	void setup() {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		interceptor = new FeatureFlagInterceptor(featureFlagService,
+				beanFactory.getBeanProvider(RequestMappingHandlerMapping.class),
+				beanFactory.getBeanProvider(MeterRegistry.class));
+		response = new MockHttpServletResponse();
+	}
+
+	@Test
+	void shouldLetRequestThroughWhenFlagIsEnabled() throws Exception {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(true));
+		HandlerMethod handler = register("guarded");
+
+		assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, handler)).isTrue();
+	}
+
+	@Test
+	void shouldThrowWhenFlagIsDisabled() throws Exception {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(false));
+		HandlerMethod handler = register("guarded");
+
+		assertThatExceptionOfType(FeatureFlagDisabledException.class)
+			.isThrownBy(() -> interceptor.preHandle(new MockHttpServletRequest(), response, handler));
+	}
+
+	@Test
+	void shouldSendNotFoundWhenFlagIsDisabledWithoutException() throws Exception {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(false));
+		HandlerMethod handler = register("quiet");
+
+		assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, handler)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(404);
+	}
+
+	@Test
+	void shouldIgnoreUnguardedHandlers() throws Exception {
+		HandlerMethod handler = register("unguarded");
+
+		assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, handler)).isTrue();
+	}
+
+	@Test
+	void shouldRejectTargetedFlagsAtStartup() throws Exception {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(true));
+		HandlerMethod handler = new HandlerMethod(new TargetedController(), "targeted",
+				FeatureFlagEvaluationContext.class);
+
+		assertThatIllegalStateException().isThrownBy(() -> interceptor.register(List.of(handler)));
+	}
+
+	@Test
+	void shouldResolveGuardsAheadOfTime() throws Exception {
+		InMemoryGeneratedFiles generatedFiles = new InMemoryGeneratedFiles();
+		GenerationContext generationContext = processAheadOfTime(GuardedController.class, generatedFiles);
+
+		Properties resolved = new Properties();
+		resolved.load(new StringReader(
+				generatedFiles.getGeneratedFileContent(Kind.RESOURCE, FeatureFlagInterceptor.GUARDS).toString()));
+		assertThat(resolved).containsOnly(
+				entry(FeatureFlagInterceptor.key(GuardedController.class, GuardedController.class.getMethod("guarded")),
+						"test_flag,true"),
+				entry(FeatureFlagInterceptor.key(GuardedController.class, GuardedController.class.getMethod("quiet")),
+						"test_flag,false"));
+		assertThat(RuntimeHintsPredicates.resource().forResource(FeatureFlagInterceptor.GUARDS))
+			.accepts(generationContext.getRuntimeHints());
+	}
+
+	@Test
+	void shouldEnforceGuardsResolvedAheadOfTime() throws Exception {
+		given(featureFlagService.handle("test_flag")).willReturn(handle(false));
+		Properties resolved = new Properties();
+		resolved.setProperty(
+				FeatureFlagInterceptor.key(GuardedController.class, GuardedController.class.getMethod("unguarded")),
+				"test_flag,false");
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		interceptor = new FeatureFlagInterceptor(featureFlagService,
+				beanFactory.getBeanProvider(RequestMappingHandlerMapping.class),
+				beanFactory.getBeanProvider(MeterRegistry.class), resolved);
+		HandlerMethod guarded = new HandlerMethod(new GuardedController(), "guarded");
+		HandlerMethod unguarded = new HandlerMethod(new GuardedController(), "unguarded");
+		interceptor.register(List.of(guarded, unguarded));
+
+		// only the resolved guards count, annotations are not read any more
+		assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, guarded)).isTrue();
+		assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, unguarded)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(404);
+	}
+
+	@Test
+	void shouldRejectTargetedFlagsAheadOfTime() {
+		assertThatIllegalStateException()
+			.isThrownBy(() -> processAheadOfTime(TargetedController.class, new InMemoryGeneratedFiles()));
+	}
+
+	@Test
+	void shouldRegisterRuntimeHints() {
+		RuntimeHints hints = new RuntimeHints();
+		new FeatureFlagRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+		assertThat(RuntimeHintsPredicates.reflection().onType(FeatureFlagRequired.class)).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(FeatureFlagsChangedEvent.class)).accepts(hints);
+	}
+
+	private GenerationContext processAheadOfTime(Class<?> controller, InMemoryGeneratedFiles generatedFiles) {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("controller", new RootBeanDefinition(controller));
+		BeanFactoryInitializationAotContribution contribution = new FeatureFlagGuardsAotProcessor()
+			.processAheadOfTime(beanFactory);
+		GenerationContext generationContext = new DefaultGenerationContext(
+				new ClassNameGenerator(ClassName.get(getClass())), generatedFiles);
+		contribution.applyTo(generationContext, mock(BeanFactoryInitializationCode.class));
+		return generationContext;
+	}
+
+	private HandlerMethod register(String methodName) throws NoSuchMethodException {
+		HandlerMethod handler = new HandlerMethod(new GuardedController(), methodName);
+		interceptor.register(List.of(handler));
+		return handler;
+	}
+
+	private static FeatureFlagHandle handle(boolean enabled) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName("test_flag");
+		flag.setEnabled(enabled);
+		return new FeatureFlagHandle("test_flag", FeatureFlagSnapshot.of(List.of(flag)),
+				new FeatureFlagStatistics().forFlag("test_flag"));
+	}
+
+	@Controller
+	static class GuardedController {
+
+		@GetMapping("/guarded")
+		@FeatureFlagRequired("test_flag")
+		public String guarded() {
+			return "guarded";
+		}
+
+		@GetMapping("/quiet")
+		@FeatureFlagRequired(value = "test_flag", throwException = false)
+		public String quiet() {
+			return "quiet";
+		}
+
+		@GetMapping("/unguarded")
+		public String unguarded() {
+			return "unguarded";
+		}
+
+	}
+
+	@Controller
+	static class TargetedController {
+
+		@GetMapping("/targeted")
+		@FeatureFlagRequired(value = "test_flag", context = "context")
+		public String targeted(FeatureFlagEvaluationContext context) {
+			return "targeted";
+		}
+
+	}
+
+}
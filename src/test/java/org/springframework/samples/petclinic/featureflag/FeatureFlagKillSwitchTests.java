@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagKillSwitchTests {
+
+	private static final long MILLIS = 1_000_000;
+
+	private static final long COOLDOWN = Duration.ofMinutes(1).toNanos();
+
+	@Mock
+	private FeatureFlagService featureFlagService;
+
+	private FeatureFlagKillSwitch killSwitch;
+
+	@BeforeEach
+	void setup() {
+		FeatureFlagBudgets.Budget budget = new FeatureFlagBudgets.Budget(Duration.ofMillis(500), 0.99, 0.05, 20,
+				Duration.ofMinutes(1), Duration.ofMinutes(3), 0.8);
+		killSwitch = new FeatureFlagKillSwitch(featureFlagService, new FeatureFlagBudgets(Map.of("search", budget)));
+	}
+
+	@Test
+	void shouldSwitchFlagOffWhenLatencyExceedsBudget() {
+		givenSwitchedOff(1L);
+		record(20, 800 * MILLIS, false);
+
+		killSwitch.evaluate(0);
+
+		verify(featureFlagService).switchFlag(eq("search"), eq(false), isNull(), contains("p99 latency"));
+	}
+
+	@Test
+	void shouldSwitchFlagOffWhenErrorRateExceedsBudget() {
+		givenSwitchedOff(1L);
+		record(18, MILLIS, false);
+		for (int i = 0; i < 2; i++) {
+			assertThatIllegalStateException().isThrownBy(() -> killSwitch.measure("search", () -> {
+				throw new IllegalStateException();
+			}));
+		}
+
+		killSwitch.evaluate(0);
+
+		verify(featureFlagService).switchFlag(eq("search"), eq(false), isNull(), contains("error rate"));
+	}
+
+	@Test
+	void shouldIgnoreWindowsWithTooFewCalls() {
+		record(19, 800 * MILLIS, false);
+
+		killSwitch.evaluate(0);
+
+		verify(featureFlagService, never()).switchFlag(anyString(), anyBoolean(), any(), anyString());
+	}
+
+	@Test
+	void shouldStartEveryWindowAfresh() {
+		record(19, 800 * MILLIS, false);
+		killSwitch.evaluate(0);
+		record(19, 800 * MILLIS, false);
+
+		killSwitch.evaluate(1);
+
+		verify(featureFlagService, never()).switchFlag(anyString(), anyBoolean(), any(), anyString());
+	}
+
+	@Test
+	void shouldSwitchFlagBackOnAfterCooldown() {
+		givenSwitchedOff(4L);
+		record(20, 800 * MILLIS, false);
+		killSwitch.evaluate(0);
+
+		killSwitch.evaluate(COOLDOWN - 1);
+		verify(featureFlagService, never()).switchFlag(eq("search"), eq(true), eq(4L), anyString());
+
+		killSwitch.evaluate(COOLDOWN);
+		verify(featureFlagService).switchFlag(eq("search"), eq(true), eq(4L), contains("cooldown"));
+	}
+
+	@Test
+	void shouldDoubleCooldownWhenBudgetIsBreachedAgain() {
+		givenSwitchedOff(4L);
+		record(20, 800 * MILLIS, false);
+		killSwitch.evaluate(0);
+		killSwitch.evaluate(COOLDOWN);
+		record(20, 800 * MILLIS, false);
+		killSwitch.evaluate(COOLDOWN + 1);
+
+		killSwitch.evaluate(3 * COOLDOWN);
+		verify(featureFlagService, never()).switchFlag(eq("search"), eq(true), eq(4L), contains("PT2M"));
+
+		killSwitch.evaluate(3 * COOLDOWN + 1);
+		verify(featureFlagService).switchFlag(eq("search"), eq(true), eq(4L), contains("PT2M"));
+	}
+
+	@Test
+	void shouldResetCooldownOnlyWhenClearlyUnderBudget() {
+		givenSwitchedOff(4L);
+		record(20, 800 * MILLIS, false);
+		killSwitch.evaluate(0);
+		killSwitch.evaluate(COOLDOWN);
+		// Within budget, but not by enough to reset the cooldown
+		record(20, 450 * MILLIS, false);
+		killSwitch.evaluate(COOLDOWN + 1);
+		record(20, 800 * MILLIS, false);
+		killSwitch.evaluate(COOLDOWN + 2);
+
+		killSwitch.evaluate(3 * COOLDOWN + 2);
+		verify(featureFlagService).switchFlag(eq("search"), eq(true), eq(4L), contains("PT2M"));
+	}
+
+	@Test
+	void shouldNotRestoreFlagItDidNotSwitchOff() {
+		given(featureFlagService.switchFlag(eq("search"), eq(false), isNull(), anyString()))
+			.willReturn(Optional.empty());
+		record(20, 800 * MILLIS, false);
+		killSwitch.evaluate(0);
+
+		killSwitch.evaluate(COOLDOWN);
+
+		verify(featureFlagService, never()).switchFlag(eq("search"), eq(true), eq(null), anyString());
+	}
+
+	@Test
+	void shouldRunCallsOfFlagsWithoutBudget() {
+		assertThat(killSwitch.measure("other", () -> "result")).isEqualTo("result");
+	}
+
+	@Test
+	void shouldComputePercentilesWithinBucketPrecision() {
+		FeatureFlagKillSwitch.Window window = new FeatureFlagKillSwitch.Window();
+		for (int i = 1; i <= 100; i++) {
+			window.record(i * MILLIS, false);
+		}
+
+		assertThat(window.count()).isEqualTo(100);
+		assertThat(window.percentile(0.99)).isBetween(99 * MILLIS, 99 * MILLIS * 9 / 8);
+		assertThat(window.percentile(0.5)).isBetween(50 * MILLIS, 50 * MILLIS * 9 / 8);
+		assertThat(new FeatureFlagKillSwitch.Window().percentile(0.99)).isZero();
+	}
+
+	private void givenSwitchedOff(Long version) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName("search");
+		flag.setEnabled(false);
+		flag.setVersion(version);
+		given(featureFlagService.switchFlag(eq("search"), anyBoolean(), any(), anyString()))
+			.willReturn(Optional.of(flag));
+	}
+
+	private void record(int calls, long nanos, boolean failed) {
+		for (int i = 0; i < calls; i++) {
+			killSwitch.record("search", nanos, failed);
+		}
+	}
+
+}
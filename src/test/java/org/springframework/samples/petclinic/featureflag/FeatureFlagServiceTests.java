@@ -15,12 +15,19 @@
  */
 package org.springframework.samples.petclinic.featureflag;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -30,9 +37,13 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class FeatureFlagServiceTests {
@@ -40,7 +51,18 @@ class FeatureFlagServiceTests {
 	@Mock
 	private FeatureFlagRepository repository;
 
-	@InjectMocks
+	@Mock
+	private FeatureFlagTombstoneRepository tombstones;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private FeatureFlagSnapshotFile snapshotFile;
+
+	@Mock
+	private FeatureFlagAuditLog auditLog;
+
 	private FeatureFlagService service;
 
 	private FeatureFlag enabledFlag;
@@ -49,6 +71,9 @@ class FeatureFlagServiceTests {
 
 	@BeforeEach
 	void setup() {
+		service = new FeatureFlagService(new JpaFeatureFlagStore(repository, tombstones, null), eventPublisher,
+				snapshotFile, auditLog);
+
 		enabledFlag = new FeatureFlag();
 		enabledFlag.setId(1);
 		enabledFlag.setName("test_flag");
@@ -62,9 +87,14 @@ class FeatureFlagServiceTests {
 		disabledFlag.setDescription("Disabled flag");
 	}
 
+	@AfterEach
+	void resetRequestAttributes() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
 	@Test
 	void shouldReturnTrueWhenFlagIsEnabled() {
-		given(repository.findByName("test_flag")).willReturn(Optional.of(enabledFlag));
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
 
 		boolean result = service.isEnabled("test_flag");
 
@@ -73,7 +103,7 @@ class FeatureFlagServiceTests {
 
 	@Test
 	void shouldReturnFalseWhenFlagIsDisabled() {
-		given(repository.findByName("disabled_flag")).willReturn(Optional.of(disabledFlag));
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
 
 		boolean result = service.isEnabled("disabled_flag");
 
@@ -82,13 +112,142 @@ class FeatureFlagServiceTests {
 
 	@Test
 	void shouldReturnFalseWhenFlagDoesNotExist() {
-		given(repository.findByName("non_existent")).willReturn(Optional.empty());
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
 
 		boolean result = service.isEnabled("non_existent");
 
 		assertThat(result).isFalse();
 	}
 
+	@Test
+	void shouldLoadSnapshotOnlyOnce() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+
+		service.isEnabled("test_flag");
+		service.isEnabled("disabled_flag");
+		service.isEnabled("non_existent");
+
+		verify(repository, times(1)).findAll();
+	}
+
+	@Test
+	void shouldServeFlagsFromSnapshotFileUntilRefreshed() {
+		given(snapshotFile.read()).willReturn(FeatureFlagSnapshot.of(List.of(enabledFlag)));
+		FeatureFlagService service = new FeatureFlagService(new JpaFeatureFlagStore(repository, tombstones, null),
+				eventPublisher, snapshotFile, auditLog);
+
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		assertThat(service.isStale()).isTrue();
+		verify(repository, never()).findAll();
+
+		given(repository.findAll()).willReturn(List.of(disabledFlag));
+		service.refresh();
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.isStale()).isFalse();
+	}
+
+	@Test
+	void shouldWriteSnapshotFileOnEveryChange() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+		givenToggled(disabledFlag);
+		FeatureFlagSnapshot loaded = service.snapshot();
+		verify(snapshotFile).write(loaded);
+
+		service.toggle(2);
+
+		verify(snapshotFile).write(service.snapshot());
+	}
+
+	@Test
+	void shouldReloadSnapshotOnRefresh() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag)).willReturn(List.of(disabledFlag));
+
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		service.refresh();
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.isEnabled("disabled_flag")).isFalse();
+	}
+
+	@Test
+	void shouldKeepFlagStateStableWithinRequest() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+		givenToggled(enabledFlag);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		assertThat(service.isEnabled("test_flag")).isTrue();
+
+		service.toggle(1);
+
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		assertThat(service.requestContext().getResolved()).containsEntry("test_flag", true);
+
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		assertThat(service.isEnabled("test_flag")).isFalse();
+	}
+
+	@Test
+	void shouldCountEvaluationsPerFlag() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+
+		service.isEnabled("test_flag");
+		service.isEnabled("test_flag");
+		service.isEnabled("disabled_flag");
+		service.isEnabled("no_such_flag");
+
+		FeatureFlagStatistics statistics = service.statistics();
+		assertThat(statistics.forFlag("test_flag").getEnabledCount()).isEqualTo(2);
+		assertThat(statistics.forFlag("disabled_flag").getDisabledCount()).isEqualTo(1);
+		assertThat(statistics.forFlag(FeatureFlagStatistics.UNKNOWN).getDisabledCount()).isEqualTo(1);
+		assertThat(statistics.flags()).extracting(FeatureFlagStatistics.Flag::getName).doesNotContain("no_such_flag");
+	}
+
+	@Test
+	void shouldEvaluateTargetingRules() {
+		enabledFlag.setTargetingRules("city=Madison,Monona;petType=dog");
+		given(repository.findAll()).willReturn(List.of(enabledFlag));
+
+		FeatureFlagEvaluationContext madisonDogOwner = new FeatureFlagEvaluationContext(1, "madison",
+				List.of("cat", "dog"));
+		FeatureFlagEvaluationContext madisonCatOwner = new FeatureFlagEvaluationContext(2, "Madison", List.of("cat"));
+		FeatureFlagEvaluationContext otherCityDogOwner = new FeatureFlagEvaluationContext(3, "Sun Prairie",
+				List.of("dog"));
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.isEnabled("test_flag", madisonDogOwner)).isTrue();
+		assertThat(service.isEnabled("test_flag", madisonCatOwner)).isFalse();
+		assertThat(service.isEnabled("test_flag", otherCityDogOwner)).isFalse();
+	}
+
+	@Test
+	void shouldRollOutToStablePercentageOfOwners() {
+		enabledFlag.setRolloutPercentage(25);
+		given(repository.findAll()).willReturn(List.of(enabledFlag));
+
+		int enabled = 0;
+		for (int ownerId = 1; ownerId <= 10_000; ownerId++) {
+			FeatureFlagEvaluationContext context = new FeatureFlagEvaluationContext(ownerId, null, null);
+			boolean first = service.isEnabled("test_flag", context);
+			assertThat(service.isEnabled("test_flag", context)).isEqualTo(first);
+			enabled += first ? 1 : 0;
+		}
+
+		assertThat(enabled).isBetween(2_200, 2_800);
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.isEnabled("test_flag", new FeatureFlagEvaluationContext(null, null, null))).isFalse();
+	}
+
+	@Test
+	void shouldRejectInvalidTargetingRules() {
+		FeatureFlag newFlag = new FeatureFlag();
+		newFlag.setName("new_flag");
+		newFlag.setTargetingRules("country=NL");
+
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.create(newFlag))
+			.withMessageContaining("country");
+		verify(repository, never()).save(any());
+	}
+
 	@Test
 	void shouldFindAllFlags() {
 		List<FeatureFlag> flags = Arrays.asList(enabledFlag, disabledFlag);
@@ -165,14 +324,33 @@ class FeatureFlagServiceTests {
 		updatedFlag.setEnabled(false);
 		updatedFlag.setDescription("Updated description");
 
-		given(repository.findById(1)).willReturn(Optional.of(enabledFlag));
-		given(repository.existsByName("updated_flag")).willReturn(false);
-		given(repository.save(any(FeatureFlag.class))).willReturn(enabledFlag);
+		given(repository.update(eq(1), isNull(), eq("updated_flag"), eq(false), eq("Updated description"), isNull(),
+				isNull(), eq(false), isNull(), isNull(), eq(false), eq(false), any(LocalDateTime.class)))
+			.willReturn(Optional.of(enabledFlag));
 
 		FeatureFlag result = service.update(1, updatedFlag);
 
-		assertThat(result).isNotNull();
-		verify(repository).save(any(FeatureFlag.class));
+		assertThat(result).isSameAs(enabledFlag);
+		verify(repository, never()).save(any(FeatureFlag.class));
+		verify(repository, never()).existsByName(any());
+	}
+
+	@Test
+	void shouldReplaceRenamedFlagInSnapshot() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+		FeatureFlag renamed = new FeatureFlag();
+		renamed.setId(1);
+		renamed.setName("renamed_flag");
+		renamed.setEnabled(true);
+		given(repository.update(eq(1), isNull(), eq("renamed_flag"), eq(true), isNull(), isNull(), isNull(), eq(false),
+				isNull(), isNull(), eq(false), eq(false), any(LocalDateTime.class)))
+			.willReturn(Optional.of(renamed));
+		assertThat(service.isEnabled("test_flag")).isTrue();
+
+		service.update(1, renamed);
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.isEnabled("renamed_flag")).isTrue();
 	}
 
 	@Test
@@ -180,9 +358,7 @@ class FeatureFlagServiceTests {
 		FeatureFlag updatedFlag = new FeatureFlag();
 		updatedFlag.setName("updated_flag");
 
-		given(repository.findById(999)).willReturn(Optional.empty());
-
-		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.update(999, updatedFlag))
+		assertThatExceptionOfType(FeatureFlagNotFoundException.class).isThrownBy(() -> service.update(999, updatedFlag))
 			.withMessageContaining("not found");
 	}
 
@@ -191,25 +367,63 @@ class FeatureFlagServiceTests {
 		FeatureFlag updatedFlag = new FeatureFlag();
 		updatedFlag.setName("duplicate_name");
 
-		given(repository.findById(1)).willReturn(Optional.of(enabledFlag));
-		given(repository.existsByName("duplicate_name")).willReturn(true);
+		given(repository.update(eq(1), isNull(), eq("duplicate_name"), any(), any(), any(), any(), any(), any(), any(),
+				any(), any(), any(LocalDateTime.class)))
+			.willThrow(new DuplicateKeyException("unique constraint"));
 
 		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.update(1, updatedFlag))
 			.withMessageContaining("already exists");
 	}
 
 	@Test
-	void shouldDeleteFlag() {
+	void shouldNotReportOtherViolationsAsDuplicateName() {
+		FeatureFlag updatedFlag = new FeatureFlag();
+		updatedFlag.setName("test_flag");
+
+		given(repository.update(eq(1), isNull(), eq("test_flag"), any(), any(), any(), any(), any(), any(), any(),
+				any(), any(), any(LocalDateTime.class)))
+			.willThrow(new DataIntegrityViolationException("not null constraint"));
+
+		assertThatExceptionOfType(DataIntegrityViolationException.class)
+			.isThrownBy(() -> service.update(1, updatedFlag));
+	}
+
+	@Test
+	void shouldRejectUpdateOfConcurrentlyChangedFlag() {
+		FeatureFlag updatedFlag = new FeatureFlag();
+		updatedFlag.setName("test_flag");
+		updatedFlag.setVersion(3L);
 		given(repository.existsById(1)).willReturn(true);
 
+		assertThatExceptionOfType(OptimisticLockingFailureException.class)
+			.isThrownBy(() -> service.update(1, updatedFlag));
+	}
+
+	@Test
+	void shouldDeleteFlag() {
+		given(repository.findById(1)).willReturn(Optional.of(enabledFlag));
+
 		service.delete(1);
 
 		verify(repository).deleteById(1);
+		verify(tombstones).save(any(FeatureFlagTombstone.class));
+		verify(auditLog).recordChange("test_flag", "deleted", null);
+	}
+
+	@Test
+	void shouldRemoveDeletedFlagFromSnapshot() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+		given(repository.findById(1)).willReturn(Optional.of(enabledFlag));
+		assertThat(service.isEnabled("test_flag")).isTrue();
+
+		service.delete(1);
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
 	}
 
 	@Test
 	void shouldThrowExceptionWhenDeletingNonExistentFlag() {
-		given(repository.existsById(999)).willReturn(false);
+		given(repository.findById(999)).willReturn(Optional.empty());
 
 		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.delete(999))
 			.withMessageContaining("not found");
@@ -217,40 +431,176 @@ class FeatureFlagServiceTests {
 
 	@Test
 	void shouldToggleFlagFromEnabledToDisabled() {
-		given(repository.findById(1)).willReturn(Optional.of(enabledFlag));
-		given(repository.save(any(FeatureFlag.class))).willAnswer(invocation -> {
-			FeatureFlag flag = invocation.getArgument(0);
-			assertThat(flag.getEnabled()).isFalse();
-			return flag;
-		});
+		givenToggled(enabledFlag);
 
 		FeatureFlag result = service.toggle(1);
 
 		assertThat(result.getEnabled()).isFalse();
-		verify(repository).save(enabledFlag);
+		verify(repository, never()).save(any(FeatureFlag.class));
+		verify(auditLog).recordChange("test_flag", "toggled", "enabled=false");
 	}
 
 	@Test
 	void shouldToggleFlagFromDisabledToEnabled() {
-		given(repository.findById(2)).willReturn(Optional.of(disabledFlag));
-		given(repository.save(any(FeatureFlag.class))).willAnswer(invocation -> {
-			FeatureFlag flag = invocation.getArgument(0);
-			assertThat(flag.getEnabled()).isTrue();
-			return flag;
-		});
+		givenToggled(disabledFlag);
 
 		FeatureFlag result = service.toggle(2);
 
 		assertThat(result.getEnabled()).isTrue();
-		verify(repository).save(disabledFlag);
+		verify(repository, never()).save(any(FeatureFlag.class));
 	}
 
 	@Test
-	void shouldThrowExceptionWhenTogglingNonExistentFlag() {
-		given(repository.findById(999)).willReturn(Optional.empty());
+	void shouldPublishToggledStateWithoutReloading() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+		givenToggled(disabledFlag);
+		assertThat(service.isEnabled("disabled_flag")).isFalse();
+
+		service.toggle(2);
+
+		assertThat(service.isEnabled("disabled_flag")).isTrue();
+		verify(repository, times(1)).findAll();
+	}
+
+	@Test
+	void shouldPublishChangedFlagsWithNextVersion() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag, disabledFlag));
+		givenToggled(disabledFlag);
+		long version = service.snapshot().version();
+
+		service.toggle(2);
+
+		FeatureFlagsChangedEvent event = new FeatureFlagsChangedEvent(version + 1, List
+			.of(new FeatureFlagsChangedEvent.Change("disabled_flag",
+					new FeatureFlagState("disabled_flag", true, 100, null, false, null, null, false, false, true))));
+		verify(eventPublisher).publishEvent(event);
+		assertThat(service.snapshot().version()).isEqualTo(version + 1);
+	}
 
+	@Test
+	void shouldThrowExceptionWhenTogglingNonExistentFlag() {
 		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.toggle(999))
 			.withMessageContaining("not found");
 	}
 
+	@Test
+	void shouldSwitchFlagOffAndPublishIt() {
+		given(repository.findAll()).willReturn(List.of(enabledFlag));
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		FeatureFlag switched = new FeatureFlag();
+		switched.setId(1);
+		switched.setName("test_flag");
+		switched.setEnabled(false);
+		given(repository.switchEnabled(eq("test_flag"), eq(false), isNull(), any(LocalDateTime.class)))
+			.willReturn(Optional.of(switched));
+
+		Optional<FeatureFlag> result = service.switchFlag("test_flag", false, null, "too slow");
+
+		assertThat(result).contains(switched);
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		verify(auditLog).recordChange("test_flag", "switched", "enabled=false, too slow");
+	}
+
+	@Test
+	void shouldNotSwitchFlagThatWasChangedSinceVersion() {
+		given(repository.switchEnabled(eq("test_flag"), eq(true), eq(3L), any(LocalDateTime.class)))
+			.willReturn(Optional.empty());
+
+		assertThat(service.switchFlag("test_flag", true, 3L, "recovered")).isEmpty();
+		verify(repository, never()).findByName("test_flag");
+		verifyNoInteractions(auditLog);
+	}
+
+	@Test
+	void shouldTreatFlagAsDisabledOutsideItsActivationWindow() {
+		LocalDateTime now = LocalDateTime.now();
+		enabledFlag.setActiveFrom(now.plusHours(1));
+		enabledFlag.setActiveUntil(now.plusHours(2));
+		given(repository.findAll()).willReturn(List.of(enabledFlag));
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.snapshot().nextTransitions()).containsEntry("test_flag", now.plusHours(1));
+
+		service.activate(now.plusHours(1));
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		assertThat(service.isEnabled("test_flag", new FeatureFlagEvaluationContext(1, null, null))).isTrue();
+		assertThat(service.snapshot().nextTransitions()).containsEntry("test_flag", now.plusHours(2));
+
+		service.activate(now.plusHours(2));
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.snapshot().nextTransitions()).isEmpty();
+		verify(eventPublisher, times(2)).publishEvent(any(FeatureFlagsChangedEvent.class));
+	}
+
+	@Test
+	void shouldPauseFlagInsideInvertedDailyWindow() {
+		LocalDateTime now = LocalDateTime.now();
+		enabledFlag.setActiveFrom(now.plusHours(1));
+		enabledFlag.setActiveUntil(now.plusHours(2));
+		enabledFlag.setWindowInverted(true);
+		enabledFlag.setWindowDaily(true);
+		given(repository.findAll()).willReturn(List.of(enabledFlag));
+
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		assertThat(service.snapshot().nextTransitions()).containsEntry("test_flag", now.plusHours(1));
+
+		service.activate(now.plusHours(1));
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.snapshot().nextTransitions()).containsEntry("test_flag", now.plusHours(2));
+
+		service.activate(now.plusHours(2));
+		assertThat(service.isEnabled("test_flag")).isTrue();
+		assertThat(service.snapshot().nextTransitions()).containsEntry("test_flag", now.plusDays(1).plusHours(1));
+
+		service.activate(now.plusDays(3).plusHours(1).plusMinutes(30));
+		assertThat(service.isEnabled("test_flag")).isFalse();
+		assertThat(service.snapshot().nextTransitions()).containsEntry("test_flag", now.plusDays(3).plusHours(2));
+	}
+
+	@Test
+	void shouldRejectDailyWindowOfADayOrLonger() {
+		LocalDateTime now = LocalDateTime.now();
+		enabledFlag.setActiveFrom(now);
+		enabledFlag.setActiveUntil(now.plusDays(1));
+		enabledFlag.setWindowDaily(true);
+
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.create(enabledFlag))
+			.withMessageContaining("daily window");
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	void shouldNotMoveActivationBackInTime() {
+		LocalDateTime now = LocalDateTime.now();
+		enabledFlag.setActiveUntil(now.plusHours(1));
+		given(repository.findAll()).willReturn(List.of(enabledFlag));
+		service.activate(now.plusHours(1));
+		assertThat(service.isEnabled("test_flag")).isFalse();
+
+		service.activate(now);
+		service.refresh();
+
+		assertThat(service.isEnabled("test_flag")).isFalse();
+	}
+
+	@Test
+	void shouldRejectEmptyActivationWindow() {
+		LocalDateTime now = LocalDateTime.now();
+		enabledFlag.setActiveFrom(now);
+		enabledFlag.setActiveUntil(now);
+
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> service.create(enabledFlag))
+			.withMessageContaining("Active until");
+		verify(repository, never()).save(any());
+	}
+
+	private void givenToggled(FeatureFlag flag) {
+		FeatureFlag toggled = new FeatureFlag();
+		toggled.setId(flag.getId());
+		toggled.setName(flag.getName());
+		toggled.setEnabled(!flag.getEnabled());
+		toggled.setDescription(flag.getDescription());
+		given(repository.toggle(eq(flag.getId()), any(LocalDateTime.class))).willReturn(Optional.of(toggled));
+	}
+
 }
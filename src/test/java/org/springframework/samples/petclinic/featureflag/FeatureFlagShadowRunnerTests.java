@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagShadowRunnerTests {
+
+	@Mock
+	private FeatureFlagService featureFlagService;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final List<Runnable> tasks = new ArrayList<>();
+
+	private final AtomicInteger candidateCalls = new AtomicInteger();
+
+	private FeatureFlagShadowRunner runner;
+
+	@BeforeEach
+	void setup() {
+		runner = new FeatureFlagShadowRunner(featureFlagService, meterRegistry, tasks::add, 1);
+	}
+
+	@Test
+	void shouldRunCandidateWhenFlagIsEnabled() {
+		given(featureFlagService.isEnabled("search")).willReturn(true);
+
+		assertThat(runner.run("search", () -> "current", this::candidate)).isEqualTo("candidate");
+
+		assertThat(candidateCalls).hasValue(1);
+		assertThat(tasks).isEmpty();
+		assertThat(count("candidate", false)).isEqualTo(1);
+	}
+
+	@Test
+	void shouldRunOnlyCurrentPathWhenFlagIsDisabled() {
+		assertThat(runner.run("search", () -> "current", this::candidate)).isEqualTo("current");
+
+		assertThat(tasks).isEmpty();
+		assertThat(candidateCalls).hasValue(0);
+		assertThat(count("current", false)).isEqualTo(1);
+	}
+
+	@Test
+	void shouldRunCandidateInShadowAndDiscardItsResult() {
+		given(featureFlagService.isShadowed("search")).willReturn(true);
+
+		assertThat(runner.run("search", () -> "current", this::candidate)).isEqualTo("current");
+		assertThat(tasks).hasSize(1);
+		tasks.get(0).run();
+
+		assertThat(candidateCalls).hasValue(1);
+		assertThat(count("current", false)).isEqualTo(1);
+		assertThat(count("candidate", true)).isEqualTo(1);
+	}
+
+	@Test
+	void shouldSkipShadowCallsBeyondConcurrencyLimit() {
+		given(featureFlagService.isShadowed("search")).willReturn(true);
+
+		runner.run("search", () -> "current", this::candidate);
+		runner.run("search", () -> "current", this::candidate);
+		assertThat(tasks).hasSize(1);
+		assertThat(meterRegistry.get("petclinic.featureflags.shadow.skipped").counter().count()).isEqualTo(1);
+
+		tasks.get(0).run();
+		runner.run("search", () -> "current", this::candidate);
+		assertThat(tasks).hasSize(2);
+	}
+
+	@Test
+	void shouldReleasePermitWhenShadowCallFails() {
+		given(featureFlagService.isShadowed("search")).willReturn(true);
+
+		runner.run("search", () -> "current", () -> {
+			throw new IllegalStateException("candidate failed");
+		});
+		tasks.get(0).run();
+		runner.run("search", () -> "current", this::candidate);
+
+		assertThat(tasks).hasSize(2);
+		assertThat(count("candidate", true)).isEqualTo(1);
+	}
+
+	private String candidate() {
+		candidateCalls.incrementAndGet();
+		return "candidate";
+	}
+
+	private long count(String path, boolean shadow) {
+		return meterRegistry.get("petclinic.featureflags.path")
+			.tag("flag", "search")
+			.tag("path", path)
+			.tag("shadow", Boolean.toString(shadow))
+			.timer()
+			.count();
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeatureFlagSnapshotFileTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void shouldReadBackWrittenSnapshot() {
+		FeatureFlagSnapshotFile file = new FeatureFlagSnapshotFile(directory.resolve("flags/snapshot").toString());
+		FeatureFlag targeted = flag(1, "targeted", true);
+		targeted.setTargetingRules("city=Madison");
+		targeted.setUpdatedAt(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_789));
+		FeatureFlag shadowed = flag(2, "shadowed", false);
+		shadowed.setShadow(true);
+		shadowed.setRolloutPercentage(25);
+		FeatureFlagSnapshot snapshot = FeatureFlagSnapshot.of(List.of(flag(3, "plain", true), targeted, shadowed));
+
+		file.write(snapshot);
+		FeatureFlagSnapshot read = file.read();
+
+		assertThat(read.describe()).isEqualTo(snapshot.describe());
+		assertThat(read.isEnabled("plain")).isTrue();
+		assertThat(read.isEnabled("targeted", new FeatureFlagEvaluationContext(1, "Madison", null))).isTrue();
+		assertThat(read.isShadowed("shadowed")).isTrue();
+		assertThat(read.changesSince(snapshot)).isEmpty();
+	}
+
+	@Test
+	void shouldReplacePreviousSnapshot() throws IOException {
+		FeatureFlagSnapshotFile file = new FeatureFlagSnapshotFile(directory.resolve("snapshot").toString());
+		file.write(FeatureFlagSnapshot.of(List.of(flag(1, "first", true))));
+
+		file.write(FeatureFlagSnapshot.of(List.of(flag(2, "second", true))));
+
+		assertThat(file.read().asMap()).containsOnlyKeys("second");
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files).containsExactly(directory.resolve("snapshot"));
+		}
+	}
+
+	@Test
+	void shouldIgnoreMissingOrUnreadableFile() throws IOException {
+		Path path = directory.resolve("snapshot");
+		FeatureFlagSnapshotFile file = new FeatureFlagSnapshotFile(path.toString());
+		assertThat(file.read()).isNull();
+
+		Files.writeString(path, "{\"flags\":[]}");
+
+		assertThat(file.read()).isNull();
+	}
+
+	@Test
+	void shouldDoNothingWithoutPath() {
+		FeatureFlagSnapshotFile file = new FeatureFlagSnapshotFile("");
+
+		file.write(FeatureFlagSnapshot.of(List.of(flag(1, "flag", true))));
+
+		assertThat(file.read()).isNull();
+	}
+
+	private static FeatureFlag flag(int id, String name, boolean enabled) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setId(id);
+		flag.setName(name);
+		flag.setEnabled(enabled);
+		return flag;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagSynchronizerTests {
+
+	@Mock
+	private FeatureFlagRepository repository;
+
+	@Mock
+	private FeatureFlagTombstoneRepository tombstones;
+
+	@Mock
+	private FeatureFlagAuditLog auditLog;
+
+	private FeatureFlagService service;
+
+	private FeatureFlagSynchronizer synchronizer;
+
+	@BeforeEach
+	void setup() {
+		FeatureFlagStore store = new JpaFeatureFlagStore(repository, tombstones, null);
+		service = new FeatureFlagService(store, (event) -> {
+		}, new FeatureFlagSnapshotFile(""), auditLog);
+		synchronizer = new FeatureFlagSynchronizer(service, store, Duration.ofSeconds(30), Duration.ofDays(1));
+	}
+
+	@Test
+	void shouldApplyFlagsChangedOnOtherNodes() {
+		given(repository.findAll()).willReturn(List.of(flag("remote_flag", false, LocalDateTime.now().minusHours(1))));
+		assertThat(service.isEnabled("remote_flag")).isFalse();
+
+		given(repository.findByUpdatedAtGreaterThanEqual(any()))
+			.willReturn(List.of(flag("remote_flag", true, LocalDateTime.now())));
+		synchronizer.synchronize();
+
+		assertThat(service.isEnabled("remote_flag")).isTrue();
+	}
+
+	@Test
+	void shouldRemoveFlagsDeletedOnOtherNodes() {
+		given(repository.findAll()).willReturn(List.of(flag("remote_flag", true, LocalDateTime.now().minusHours(1))));
+		assertThat(service.isEnabled("remote_flag")).isTrue();
+
+		given(tombstones.findByDeletedAtGreaterThanEqual(any()))
+			.willReturn(List.of(new FeatureFlagTombstone("remote_flag", LocalDateTime.now())));
+		synchronizer.synchronize();
+
+		assertThat(service.isEnabled("remote_flag")).isFalse();
+	}
+
+	@Test
+	void shouldKeepFlagRecreatedAfterDeletion() {
+		LocalDateTime now = LocalDateTime.now();
+		given(repository.findAll()).willReturn(List.of(flag("remote_flag", false, now.minusHours(1))));
+		assertThat(service.isEnabled("remote_flag")).isFalse();
+
+		given(tombstones.findByDeletedAtGreaterThanEqual(any()))
+			.willReturn(List.of(new FeatureFlagTombstone("remote_flag", now.minusSeconds(5))));
+		given(repository.findByUpdatedAtGreaterThanEqual(any())).willReturn(List.of(flag("remote_flag", true, now)));
+		synchronizer.synchronize();
+
+		assertThat(service.isEnabled("remote_flag")).isTrue();
+	}
+
+	@Test
+	void shouldIgnoreChangesOlderThanLocalState() {
+		LocalDateTime now = LocalDateTime.now();
+		given(repository.findAll()).willReturn(List.of(flag("local_flag", true, now)));
+		assertThat(service.isEnabled("local_flag")).isTrue();
+
+		given(repository.findByUpdatedAtGreaterThanEqual(any()))
+			.willReturn(List.of(flag("local_flag", false, now.minusSeconds(10))));
+		synchronizer.synchronize();
+
+		assertThat(service.isEnabled("local_flag")).isTrue();
+	}
+
+	private static FeatureFlag flag(String name, boolean enabled, LocalDateTime updatedAt) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName(name);
+		flag.setEnabled(enabled);
+		flag.setUpdatedAt(updatedAt);
+		return flag;
+	}
+
+}
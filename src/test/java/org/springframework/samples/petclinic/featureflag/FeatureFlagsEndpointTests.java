@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagsEndpoint.FlagDescriptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagsEndpointTests {
+
+	@Mock
+	private FeatureFlagService featureFlagService;
+
+	private FeatureFlagStatistics statistics;
+
+	private FeatureFlagsEndpoint endpoint;
+
+	@BeforeEach
+	void setup() {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName("test_flag");
+		flag.setEnabled(true);
+		statistics = new FeatureFlagStatistics();
+		given(featureFlagService.snapshot()).willReturn(FeatureFlagSnapshot.of(List.of(flag)));
+		given(featureFlagService.statistics()).willReturn(statistics);
+		endpoint = new FeatureFlagsEndpoint(featureFlagService);
+	}
+
+	@Test
+	void shouldListFlagsWithHitRates() {
+		FeatureFlagStatistics.Flag flag = statistics.forFlag("test_flag");
+		flag.record(true);
+		flag.record(true);
+		flag.record(true);
+		flag.record(false);
+
+		List<FlagDescriptor> flags = endpoint.flags();
+
+		assertThat(flags).hasSize(1);
+		FlagDescriptor descriptor = flags.get(0);
+		assertThat(descriptor.name()).isEqualTo("test_flag");
+		assertThat(descriptor.state().enabled()).isTrue();
+		assertThat(descriptor.enabledCount()).isEqualTo(3);
+		assertThat(descriptor.disabledCount()).isEqualTo(1);
+		assertThat(descriptor.hitRate()).isEqualTo(0.75);
+	}
+
+	@Test
+	void shouldListChecksOfUnknownFlags() {
+		statistics.forFlag(FeatureFlagStatistics.UNKNOWN).record(false);
+
+		assertThat(endpoint.flag(FeatureFlagStatistics.UNKNOWN).state()).isNull();
+		assertThat(endpoint.flag("missing")).isNull();
+	}
+
+}
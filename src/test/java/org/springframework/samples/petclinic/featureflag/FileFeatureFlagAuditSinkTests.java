@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileFeatureFlagAuditSinkTests {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void shouldAppendOneEscapedLinePerEvent() throws IOException {
+		Path file = this.directory.resolve("audit/audit.log");
+		FileFeatureFlagAuditSink sink = new FileFeatureFlagAuditSink(file, DataSize.ofMegabytes(1), 2);
+
+		sink.write(List.of(event("flag_a", "created", null)));
+		sink.write(List.of(event("flag_b", "switched", "enabled=false,\ttoo slow")));
+		sink.destroy();
+
+		List<String> lines = Files.readAllLines(file);
+		assertThat(lines).hasSize(2);
+		assertThat(lines.get(1)).endsWith("\tCHANGE\tflag_b\tswitched\tsystem\tenabled=false,\\ttoo slow");
+	}
+
+	@Test
+	void shouldRollFilesOverOnceFull() throws IOException {
+		Path file = this.directory.resolve("audit.log");
+		FileFeatureFlagAuditSink sink = new FileFeatureFlagAuditSink(file, DataSize.ofBytes(10), 2);
+
+		for (int i = 0; i < 4; i++) {
+			sink.write(List.of(event("flag_" + i, "created", null)));
+		}
+		sink.write(List.of(event("flag_4", "created", null)));
+		sink.destroy();
+
+		assertThat(this.directory.resolve("audit.log.3")).doesNotExist();
+		assertThat(Files.readString(this.directory.resolve("audit.log.2"))).contains("flag_3");
+		assertThat(Files.readString(this.directory.resolve("audit.log.1"))).contains("flag_4");
+		assertThat(file).doesNotExist();
+	}
+
+	private static FeatureFlagAuditEvent event(String flagName, String action, String detail) {
+		return new FeatureFlagAuditEvent(LocalDateTime.now(), FeatureFlagAuditEvent.Kind.CHANGE, flagName, action,
+				"system", detail);
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class FileFeatureFlagStoreTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void shouldKeepFlagsAcrossRestarts() {
+		Path path = directory.resolve("flags.store");
+		FileFeatureFlagStore store = new FileFeatureFlagStore(path);
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName("targeted");
+		flag.setEnabled(true);
+		flag.setDescription("Targeted flag");
+		flag.setRolloutPercentage(25);
+		flag.setTargetingRules("city=Madison");
+		flag.setShadow(true);
+		FeatureFlag created = store.create(flag);
+		FeatureFlag deleted = new FeatureFlag();
+		deleted.setName("deleted");
+		store.delete(store.create(deleted).getId());
+
+		FileFeatureFlagStore restarted = new FileFeatureFlagStore(path);
+
+		FeatureFlag read = restarted.findByName("targeted").get();
+		assertThat(read).usingRecursiveComparison().isEqualTo(created);
+		assertThat(restarted.findDeletedSince(LocalDateTime.MIN)).containsOnlyKeys("deleted");
+		assertThat(restarted.create(deleted).getId()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldUndoChangeThatCouldNotBeWritten() throws IOException {
+		Path path = directory.resolve("flags.store");
+		FileFeatureFlagStore store = new FileFeatureFlagStore(path);
+		FeatureFlag kept = new FeatureFlag();
+		kept.setName("kept");
+		store.create(kept);
+		// a non-empty directory cannot be replaced by the new file
+		Files.delete(path);
+		Files.createFile(Files.createDirectory(path).resolve("blocking"));
+		FeatureFlag lost = new FeatureFlag();
+		lost.setName("lost");
+
+		assertThatExceptionOfType(DataAccessResourceFailureException.class).isThrownBy(() -> store.create(lost));
+		assertThat(store.findAll()).extracting(FeatureFlag::getName).containsExactly("kept");
+		assertThatExceptionOfType(DataAccessResourceFailureException.class)
+			.isThrownBy(() -> store.toggle(store.findByName("kept").get().getId()));
+		assertThat(store.findByName("kept").get().getVersion()).isZero();
+	}
+
+	@Test
+	void shouldStartEmptyWithoutFile() {
+		assertThat(new FileFeatureFlagStore(directory.resolve("missing")).findAll()).isEmpty();
+	}
+
+	@Test
+	void shouldRefuseUnreadableFile() throws IOException {
+		Path path = Files.writeString(directory.resolve("flags.store"), "not flags");
+
+		assertThatIllegalStateException().isThrownBy(() -> new FileFeatureFlagStore(path));
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.tuple;
+
+class InMemoryFeatureFlagStoreTests {
+
+	private final InMemoryFeatureFlagStore store = new InMemoryFeatureFlagStore();
+
+	@Test
+	void shouldCreateFlagsWithIdsAndVersions() {
+		FeatureFlag created = store.create(flag("first", true));
+
+		assertThat(created.getId()).isEqualTo(1);
+		assertThat(created.getVersion()).isZero();
+		assertThat(store.findByName("first")).get().extracting(FeatureFlag::getId).isEqualTo(1);
+		assertThatIllegalArgumentException().isThrownBy(() -> store.create(flag("first", false)));
+	}
+
+	@Test
+	void shouldNotShareStoredInstances() {
+		FeatureFlag created = store.create(flag("first", true));
+
+		created.setEnabled(false);
+
+		assertThat(store.findById(created.getId()).get().getEnabled()).isTrue();
+	}
+
+	@Test
+	void shouldUpdateOnlyUnchangedVersion() {
+		FeatureFlag created = store.create(flag("first", true));
+		FeatureFlag update = flag("renamed", false);
+		update.setVersion(created.getVersion());
+
+		FeatureFlag updated = store.update(created.getId(), update).get();
+
+		assertThat(updated.getName()).isEqualTo("renamed");
+		assertThat(updated.getVersion()).isEqualTo(1);
+		assertThatExceptionOfType(OptimisticLockingFailureException.class)
+			.isThrownBy(() -> store.update(created.getId(), update));
+		assertThat(store.update(99, flag("missing", true))).isEmpty();
+	}
+
+	@Test
+	void shouldToggleAndSwitchFlags() {
+		FeatureFlag created = store.create(flag("first", true));
+
+		assertThat(store.toggle(created.getId()).get().getEnabled()).isFalse();
+		assertThat(store.switchEnabled("first", false, null)).isEmpty();
+		assertThat(store.switchEnabled("first", true, 0L)).isEmpty();
+		assertThat(store.switchEnabled("first", true, 1L).get().getEnabled()).isTrue();
+	}
+
+	@Test
+	void shouldLeaveDatabaseOnlyBeansOut() {
+		new ApplicationContextRunner().withPropertyValues(FeatureFlagStore.PROPERTY + "=memory")
+			.withUserConfiguration(InMemoryFeatureFlagStore.class, JdbcFeatureFlagAuditSink.class,
+					FeatureFlagSynchronizer.class)
+			.run((context) -> assertThat(context).hasSingleBean(FeatureFlagStore.class)
+				.doesNotHaveBean(JdbcFeatureFlagAuditSink.class)
+				.doesNotHaveBean(FeatureFlagSynchronizer.class));
+	}
+
+	@Test
+	void shouldReportChangesAndDeletionsSince() {
+		LocalDateTime start = LocalDateTime.now();
+		FeatureFlag kept = store.create(flag("kept", true));
+		FeatureFlag removed = store.create(flag("removed", true));
+
+		store.delete(removed.getId());
+
+		assertThat(store.findChangedSince(start)).extracting(FeatureFlag::getName).containsExactly("kept");
+		assertThat(store.findDeletedSince(start)).containsOnlyKeys("removed");
+		store.purgeDeletedBefore(LocalDateTime.now().plusSeconds(1));
+		assertThat(store.findDeletedSince(start)).isEmpty();
+		assertThat(store.findAll()).extracting(FeatureFlag::getId).containsExactly(kept.getId());
+	}
+
+	@Test
+	void shouldSaveNothingWhenAnyCreatedFlagExists() {
+		store.create(flag("existing", true));
+
+		assertThatExceptionOfType(DataIntegrityViolationException.class)
+			.isThrownBy(() -> store.saveAll(List.of(definition("new"), definition("existing")), Map.of()));
+
+		assertThat(store.findIds()).containsOnlyKeys("existing");
+	}
+
+	@Test
+	void shouldCreateAndUpdateInBulk() {
+		FeatureFlag existing = store.create(flag("existing", false));
+
+		store.saveAll(List.of(definition("new")), Map.of(existing.getId(), definition("existing")));
+
+		assertThat(store.findAll()).extracting(FeatureFlag::getName, FeatureFlag::getEnabled, FeatureFlag::getVersion)
+			.containsExactly(tuple("existing", true, 1L), tuple("new", true, 0L));
+	}
+
+	@Test
+	void shouldFindPagesInNameOrder() {
+		store.create(flag("add_visit", false));
+		store.create(flag("add_pet", true));
+		store.create(flag("addxpet", true));
+
+		assertThat(store.find(new FeatureFlagQuery("add_", null, null, 10))).extracting(FeatureFlag::getName)
+			.containsExactly("add_pet", "add_visit");
+		assertThat(store.find(new FeatureFlagQuery(null, true, "add_pet", 10))).extracting(FeatureFlag::getName)
+			.containsExactly("addxpet");
+		assertThat(store.findSummaries(new FeatureFlagQuery(null, null, null, 1)))
+			.containsExactly(new FeatureFlagSummary("add_pet", true));
+	}
+
+	private static FeatureFlag flag(String name, boolean enabled) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName(name);
+		flag.setEnabled(enabled);
+		return flag;
+	}
+
+	private static FeatureFlagDefinition definition(String name) {
+		return new FeatureFlagDefinition(name, true, null, null, null, false, null, null, false, false);
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class JpaFeatureFlagStoreTests {
+
+	@Autowired
+	private FeatureFlagRepository repository;
+
+	@Autowired
+	private FeatureFlagTombstoneRepository tombstones;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private JpaFeatureFlagStore store;
+
+	private FeatureFlag addVisit;
+
+	@BeforeEach
+	void setup() {
+		store = new JpaFeatureFlagStore(repository, tombstones, new JdbcTemplate(dataSource));
+		addVisit = store.create(flag("add_visit", false));
+		store.create(flag("add_pet", true));
+		store.create(flag("addxpet", true));
+		store.create(flag("owner_search", true));
+	}
+
+	@Test
+	void shouldFindFlagsByPrefixInNameOrder() {
+		assertThat(store.find(new FeatureFlagQuery("add_", null, null, 10))).extracting(FeatureFlag::getName)
+			.containsExactly("add_pet", "add_visit");
+	}
+
+	@Test
+	void shouldFindFlagsByEnabledState() {
+		assertThat(store.find(new FeatureFlagQuery(null, true, null, 10))).extracting(FeatureFlag::getName)
+			.containsExactly("add_pet", "addxpet", "owner_search");
+	}
+
+	@Test
+	void shouldFindPageAfterName() {
+		assertThat(store.find(new FeatureFlagQuery(null, null, "add_visit", 2))).extracting(FeatureFlag::getName)
+			.containsExactly("addxpet", "owner_search");
+	}
+
+	@Test
+	void shouldFindSummaries() {
+		assertThat(store.findSummaries(new FeatureFlagQuery("add", null, null, 2)))
+			.containsExactly(new FeatureFlagSummary("add_pet", true), new FeatureFlagSummary("add_visit", false));
+	}
+
+	@Test
+	void shouldReturnStateLeftByToggle() {
+		FeatureFlag toggled = store.toggle(addVisit.getId()).orElseThrow();
+
+		assertThat(toggled.getEnabled()).isTrue();
+		assertThat(toggled.getVersion()).isEqualTo(addVisit.getVersion() + 1);
+		assertThat(store.toggle(addVisit.getId()))
+			.hasValueSatisfying((flag) -> assertThat(flag.getEnabled()).isFalse());
+		assertThat(store.toggle(-1)).isEmpty();
+	}
+
+	@Test
+	void shouldSwitchOnlyFlagsInOtherStateAndVersion() {
+		assertThat(store.switchEnabled("add_visit", false, null)).isEmpty();
+		assertThat(store.switchEnabled("add_visit", true, addVisit.getVersion() + 1)).isEmpty();
+
+		FeatureFlag switched = store.switchEnabled("add_visit", true, addVisit.getVersion()).orElseThrow();
+
+		assertThat(switched.getEnabled()).isTrue();
+		assertThat(switched.getName()).isEqualTo("add_visit");
+	}
+
+	@Test
+	void shouldReturnStateLeftByUpdate() {
+		FeatureFlag changes = flag("visits", true);
+		changes.setDescription("Enable adding visits");
+		changes.setRolloutPercentage(20);
+
+		FeatureFlag updated = store.update(addVisit.getId(), changes).orElseThrow();
+
+		assertThat(updated.getId()).isEqualTo(addVisit.getId());
+		assertThat(updated.getName()).isEqualTo("visits");
+		assertThat(updated.getEnabled()).isTrue();
+		assertThat(updated.getRolloutPercentage()).isEqualTo(20);
+		assertThat(updated.getUpdatedAt()).isNotNull();
+	}
+
+	@Test
+	void shouldRejectUpdateToTakenName() {
+		assertThatIllegalArgumentException().isThrownBy(() -> store.update(addVisit.getId(), flag("add_pet", true)))
+			.withMessageContaining("already exists");
+	}
+
+	@Test
+	void shouldRejectUpdateOfChangedVersion() {
+		FeatureFlag changes = flag("add_visit", true);
+		changes.setVersion(addVisit.getVersion() + 1);
+
+		assertThatExceptionOfType(OptimisticLockingFailureException.class)
+			.isThrownBy(() -> store.update(addVisit.getId(), changes));
+	}
+
+	private static FeatureFlag flag(String name, boolean enabled) {
+		FeatureFlag flag = new FeatureFlag();
+		flag.setName(name);
+		flag.setEnabled(enabled);
+		return flag;
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class RingBufferTests {
+
+	@Test
+	void shouldPollElementsInOfferOrder() {
+		RingBuffer<String> buffer = new RingBuffer<>(4);
+		buffer.offer("a");
+		buffer.offer("b");
+
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.poll()).isEqualTo("a");
+		assertThat(buffer.poll()).isEqualTo("b");
+		assertThat(buffer.poll()).isNull();
+		assertThat(buffer.size()).isZero();
+	}
+
+	@Test
+	void shouldRejectElementsWhileFull() {
+		RingBuffer<Integer> buffer = new RingBuffer<>(2);
+
+		assertThat(buffer.offer(1)).isTrue();
+		assertThat(buffer.offer(2)).isTrue();
+		assertThat(buffer.offer(3)).isFalse();
+		assertThat(buffer.poll()).isEqualTo(1);
+		assertThat(buffer.offer(3)).isTrue();
+	}
+
+	@Test
+	void shouldWrapAroundManyTimes() {
+		RingBuffer<Integer> buffer = new RingBuffer<>(4);
+		for (int i = 0; i < 100; i++) {
+			assertThat(buffer.offer(i)).isTrue();
+			assertThat(buffer.offer(-i)).isTrue();
+			assertThat(buffer.poll()).isEqualTo(i);
+			assertThat(buffer.poll()).isEqualTo(-i);
+		}
+		assertThat(buffer.poll()).isNull();
+	}
+
+	@Test
+	void shouldRoundCapacityUpToPowerOfTwo() {
+		assertThat(new RingBuffer<>(5).capacity()).isEqualTo(8);
+		assertThat(new RingBuffer<>(1).capacity()).isEqualTo(1);
+		assertThatIllegalArgumentException().isThrownBy(() -> new RingBuffer<>(0));
+	}
+
+	@Test
+	void shouldNotLoseElementsOfferedConcurrently() throws InterruptedException {
+		RingBuffer<Integer> buffer = new RingBuffer<>(4096);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> producers = new ArrayList<>();
+		for (int p = 0; p < 4; p++) {
+			int offset = p * 1000;
+			Thread producer = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				IntStream.range(offset, offset + 1000).forEach(buffer::offer);
+			});
+			producer.start();
+			producers.add(producer);
+		}
+		start.countDown();
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		List<Integer> polled = new ArrayList<>();
+		for (Integer element = buffer.poll(); element != null; element = buffer.poll()) {
+			polled.add(element);
+		}
+		assertThat(polled).hasSize(4000).doesNotHaveDuplicates();
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.featureflag;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TimerWheelTests {
+
+	@Test
+	void shouldRunTaskNotBeforeItsDeadline() throws InterruptedException {
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(10), 8, Thread::new)) {
+			assertThat(runAfter(wheel, Duration.ofMillis(50))).isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+		}
+	}
+
+	@Test
+	void shouldRunTaskDueAfterSeveralRevolutions() throws InterruptedException {
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 4, Thread::new)) {
+			assertThat(runAfter(wheel, Duration.ofMillis(70))).isGreaterThanOrEqualTo(Duration.ofMillis(70).toNanos());
+		}
+	}
+
+	@Test
+	void shouldRunOverdueTaskOnNextTick() throws InterruptedException {
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(10), 8, Thread::new)) {
+			assertThat(runAfter(wheel, Duration.ofSeconds(-1))).isGreaterThanOrEqualTo(0);
+		}
+	}
+
+	@Test
+	void shouldNotRunCancelledTask() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 4, Thread::new)) {
+			TimerWheel.Timeout cancelled = wheel.schedule(Duration.ofMillis(20), runs::incrementAndGet);
+			cancelled.cancel();
+			runAfter(wheel, Duration.ofMillis(60));
+			assertThat(cancelled.isCancelled()).isTrue();
+		}
+		assertThat(runs).hasValue(0);
+	}
+
+	@Test
+	void shouldKeepRunningAfterTaskFails() throws InterruptedException {
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 4, Thread::new)) {
+			wheel.schedule(Duration.ZERO, () -> {
+				throw new IllegalStateException("failed");
+			});
+			assertThat(runAfter(wheel, Duration.ofMillis(10))).isGreaterThanOrEqualTo(Duration.ofMillis(10).toNanos());
+		}
+	}
+
+	@Test
+	void shouldRoundWheelSizeUpToPowerOfTwo() {
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(10), 500, Thread::new)) {
+			assertThat(wheel.size()).isEqualTo(512);
+		}
+		try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(10), 1, Thread::new)) {
+			assertThat(wheel.size()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void shouldRejectInvalidTick() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new TimerWheel(Duration.ZERO, 8, Thread::new));
+	}
+
+	/**
+	 * Schedule a task after the given delay and return how long it took to run.
+	 */
+	private static long runAfter(TimerWheel wheel, Duration delay) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicLong elapsed = new AtomicLong();
+		long start = System.nanoTime();
+		wheel.schedule(delay, () -> {
+			elapsed.set(System.nanoTime() - start);
+			latch.countDown();
+		});
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		return elapsed.get();
+	}
+
+}
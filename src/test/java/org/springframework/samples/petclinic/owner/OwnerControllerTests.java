@@ -21,8 +21,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -30,11 +29,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.springframework.samples.petclinic.featureflag.FeatureFlagKillSwitch;
 import org.springframework.samples.petclinic.featureflag.FeatureFlagService;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
@@ -43,6 +47,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
@@ -58,6 +63,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @author Wick Dynex
  */
 @WebMvcTest(OwnerController.class)
+@Import(OwnerPager.class)
 @DisabledInNativeImage
 @DisabledInAotMode
 class OwnerControllerTests {
@@ -73,6 +79,9 @@ class OwnerControllerTests {
 	@MockitoBean
 	private FeatureFlagService featureFlagService;
 
+	@MockitoBean
+	private FeatureFlagKillSwitch killSwitch;
+
 	private Owner george() {
 		Owner george = new Owner();
 		george.setId(TEST_OWNER_ID);
@@ -94,13 +103,16 @@ class OwnerControllerTests {
 
 	@BeforeEach
 	void setup() {
+		given(killSwitch.measure(eq("owner_search"), any()))
+			.willAnswer((invocation) -> ((Supplier<?>) invocation.getArgument(1)).get());
 		given(featureFlagService.isEnabled("owner_search")).willReturn(true);
 
 		Owner george = george();
-		given(this.owners.findByLastNameStartingWith(eq("Franklin"), any(Pageable.class)))
-			.willReturn(new PageImpl<>(List.of(george)));
+		given(this.owners.findSummariesAfter(eq("franklin%"), eq(""), eq(0), any(Pageable.class)))
+			.willReturn(List.of(summary(george)));
 
 		given(this.owners.findById(TEST_OWNER_ID)).willReturn(Optional.of(george));
+		given(this.owners.findWithPetsAndVisitsById(TEST_OWNER_ID)).willReturn(Optional.of(george));
 		Visit visit = new Visit();
 		visit.setDate(LocalDate.now());
 		george.getPet("Max").getVisits().add(visit);
@@ -147,25 +159,45 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormSuccess() throws Exception {
-		Page<Owner> tasks = new PageImpl<>(List.of(george(), new Owner()));
-		when(this.owners.findByLastNameStartingWith(anyString(), any(Pageable.class))).thenReturn(tasks);
-		mockMvc.perform(get("/owners?page=1")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
+		List<OwnerSummary> tasks = List.of(summary(george()), summary(new Owner()));
+		when(this.owners.findSummariesAfter(anyString(), anyString(), anyInt(), any(Pageable.class))).thenReturn(tasks);
+		mockMvc.perform(get("/owners")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	void testProcessFindFormLinksToNextPages() throws Exception {
+		List<OwnerSummary> tasks = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			tasks.add(summary(george()));
+		}
+		when(this.owners.findSummariesAfter(anyString(), anyString(), anyInt(), any(Pageable.class))).thenReturn(tasks);
+		when(this.owners.countByLastNameLike("%")).thenReturn(12L);
+		mockMvc.perform(get("/owners"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("listOwners", hasSize(5)))
+			.andExpect(content().string(containsString("/owners?lastName=&amp;cursor=")))
+			.andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	void testProcessFindFormStartsOverOnInvalidCursor() throws Exception {
+		mockMvc.perform(get("/owners").param("lastName", "Franklin").param("cursor", "not a cursor"))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
 	}
 
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
-		Page<Owner> tasks = new PageImpl<>(List.of(george()));
-		when(this.owners.findByLastNameStartingWith(eq("Franklin"), any(Pageable.class))).thenReturn(tasks);
-		mockMvc.perform(get("/owners?page=1").param("lastName", "Franklin"))
+		mockMvc.perform(get("/owners").param("lastName", "Franklin"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
 	}
 
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
-		Page<Owner> tasks = new PageImpl<>(List.of());
-		when(this.owners.findByLastNameStartingWith(eq("Unknown Surname"), any(Pageable.class))).thenReturn(tasks);
-		mockMvc.perform(get("/owners?page=1").param("lastName", "Unknown Surname"))
+		when(this.owners.findSummariesAfter(eq("unknown surname%"), eq(""), eq(0), any(Pageable.class)))
+			.thenReturn(List.of());
+		mockMvc.perform(get("/owners").param("lastName", "Unknown Surname"))
 			.andExpect(status().isOk())
 			.andExpect(model().attributeHasFieldErrors("owner", "lastName"))
 			.andExpect(model().attributeHasFieldErrorCode("owner", "lastName", "notFound"))
@@ -254,4 +286,11 @@ class OwnerControllerTests {
 			.andExpect(flash().attributeExists("error"));
 	}
 
+	private static OwnerSummary summary(Owner owner) {
+		String pets = owner.getPets().isEmpty() ? null
+				: owner.getPets().stream().map(Pet::getName).sorted().collect(Collectors.joining(", "));
+		return new OwnerSummary(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+				owner.getCity(), owner.getTelephone(), pets);
+	}
+
 }
@@ -20,24 +20,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
+import java.util.function.Supplier;
 
+import org.springframework.samples.petclinic.featureflag.FeatureFlagKillSwitch;
 import org.springframework.samples.petclinic.featureflag.FeatureFlagService;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(OwnerController.class)
+@Import(OwnerPager.class)
 @DisabledInNativeImage
 @DisabledInAotMode
 class OwnerControllerWithFeatureFlagTests {
@@ -51,10 +55,15 @@ class OwnerControllerWithFeatureFlagTests {
 	@MockitoBean
 	private FeatureFlagService featureFlagService;
 
+	@MockitoBean
+	private FeatureFlagKillSwitch killSwitch;
+
 	private Owner testOwner;
 
 	@BeforeEach
 	void setup() {
+		given(killSwitch.measure(eq("owner_search"), any()))
+			.willAnswer((invocation) -> ((Supplier<?>) invocation.getArgument(1)).get());
 		testOwner = new Owner();
 		testOwner.setId(1);
 		testOwner.setFirstName("George");
@@ -67,8 +76,10 @@ class OwnerControllerWithFeatureFlagTests {
 	@Test
 	void shouldAllowSearchWhenFlagIsEnabled() throws Exception {
 		given(featureFlagService.isEnabled("owner_search")).willReturn(true);
-		Page<Owner> page = new PageImpl<>(Arrays.asList(testOwner, testOwner, testOwner));
-		given(owners.findByLastNameStartingWith(anyString(), any(Pageable.class))).willReturn(page);
+		OwnerSummary summary = new OwnerSummary(testOwner.getId(), testOwner.getFirstName(), testOwner.getLastName(),
+				testOwner.getAddress(), testOwner.getCity(), testOwner.getTelephone(), null);
+		given(owners.findSummariesAfter(anyString(), anyString(), anyInt(), any(Pageable.class)))
+			.willReturn(Arrays.asList(summary, summary, summary));
 
 		mockMvc.perform(get("/owners").param("lastName", "Franklin").param("page", "1"))
 			.andExpect(status().isOk())
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link OwnerCursor}
+ */
+class OwnerCursorTests {
+
+	@Test
+	void shouldRoundTripThroughToken() {
+		OwnerCursor after = new OwnerCursor(3, "Van der Berg: the 2nd", 42, false);
+		OwnerCursor before = new OwnerCursor(2, "Davis", 4, true);
+
+		assertThat(OwnerCursor.decode(after.encode())).isEqualTo(after);
+		assertThat(OwnerCursor.decode(before.encode())).isEqualTo(before);
+		assertThat(OwnerCursor.decode(OwnerCursor.last(7).encode())).isEqualTo(OwnerCursor.last(7));
+		assertThat(OwnerCursor.decode(OwnerCursor.FIRST.encode()).isFirst()).isTrue();
+	}
+
+	@Test
+	void shouldUseUrlSafeTokens() {
+		assertThat(new OwnerCursor(12, "O'Brien/Ünal?", 99, false).encode()).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void shouldRejectMalformedTokens() {
+		assertThatIllegalArgumentException().isThrownBy(() -> OwnerCursor.decode("not base64!"));
+		assertThatIllegalArgumentException().isThrownBy(() -> OwnerCursor.decode(token("x:a:1:Davis")));
+		assertThatIllegalArgumentException().isThrownBy(() -> OwnerCursor.decode(token("1:c:1:Davis")));
+		assertThatIllegalArgumentException().isThrownBy(() -> OwnerCursor.decode(token("0:a:1:Davis")));
+		assertThatIllegalArgumentException().isThrownBy(() -> OwnerCursor.decode(token("2:a:")));
+	}
+
+	private static String token(String value) {
+		return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
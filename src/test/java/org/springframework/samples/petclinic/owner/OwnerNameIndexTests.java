@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link OwnerNameIndex}.
+ */
+class OwnerNameIndexTests {
+
+	private OwnerRepository owners;
+
+	private OwnerNameIndex index;
+
+	@BeforeEach
+	void setup() {
+		owners = mock(OwnerRepository.class);
+		given(owners.findAllKeys()).willReturn(List.of(new OwnerKey(3, "Davis"), new OwnerKey(1, "davidson"),
+				new OwnerKey(2, "Davis"), new OwnerKey(4, "Black")));
+		index = new OwnerNameIndex(owners);
+	}
+
+	@Test
+	void shouldNotAnswerBeforeBeingBuilt() {
+		assertThat(index.find("Dav")).isNull();
+	}
+
+	@Test
+	void shouldFindPrefixIgnoringCaseInNameAndIdOrder() {
+		index.rebuild();
+
+		OwnerNameIndex.Range range = index.find("DAV");
+
+		assertThat(range.size()).isEqualTo(3);
+		assertThat(range.keys(0, 3)).extracting(OwnerKey::id).containsExactly(1, 2, 3);
+		assertThat(index.find("").size()).isEqualTo(4);
+		assertThat(index.find("Davisson").size()).isZero();
+	}
+
+	@Test
+	void shouldCountOwnersAroundAKey() {
+		index.rebuild();
+		OwnerNameIndex.Range range = index.find("davis");
+
+		assertThat(range.countBefore("Davis", 3)).isEqualTo(1);
+		assertThat(range.countUpTo("Davis", 3)).isEqualTo(2);
+		assertThat(range.countUpTo("", 0)).isZero();
+		assertThat(range.countBefore("Zeta", 0)).isEqualTo(2);
+	}
+
+	@Test
+	void shouldMoveSavedOwners() {
+		index.rebuild();
+
+		index.saved(owner(2, "Black"));
+		index.saved(owner(5, "Davies"));
+
+		assertThat(index.find("dav").keys(0, 3)).extracting(OwnerKey::id).containsExactly(1, 5, 3);
+		assertThat(index.find("black").keys(0, 2)).extracting(OwnerKey::id).containsExactly(2, 4);
+	}
+
+	@Test
+	void shouldKeepOwnersSavedDuringRebuild() {
+		index.rebuild();
+		given(owners.findAllKeys()).willAnswer((invocation) -> {
+			index.saved(owner(6, "Dawson"));
+			return List.of(new OwnerKey(4, "Black"));
+		});
+
+		index.rebuild();
+
+		assertThat(index.find("").keys(0, 2)).extracting(OwnerKey::id).containsExactly(4, 6);
+	}
+
+	@Test
+	void shouldKeepSnapshotWhenRebuildFails() {
+		index.rebuild();
+		given(owners.findAllKeys()).willThrow(new IllegalStateException("database is down"));
+
+		index.rebuild();
+
+		assertThat(index.find("").size()).isEqualTo(4);
+	}
+
+	private static Owner owner(int id, String lastName) {
+		Owner owner = new Owner();
+		owner.setId(id);
+		owner.setLastName(lastName);
+		return owner;
+	}
+
+}
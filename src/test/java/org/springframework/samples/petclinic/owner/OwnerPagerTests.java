@@ -0,0 +1,232 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagShadowRunner;
+
+/**
+ * Test class for {@link OwnerPager}, against the sample owners ordered by last name:
+ * Black, Coleman, Davis, Davis, Escobito, Estaban, Franklin, McTavish, Rodriquez and
+ * Schroeder. Pages are read from the database, or from an {@link OwnerNameIndex} of the
+ * same owners.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class OwnerPagerTests {
+
+	private static final List<String> ALL = List.of("Black", "Coleman", "Davis", "Davis", "Escobito", "Estaban",
+			"Franklin", "McTavish", "Rodriquez", "Schroeder");
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Test
+	void shouldWalkForwardThroughAllPages() {
+		OwnerPager pager = new OwnerPager(this.owners, (OwnerNameIndex) null, 2, 1, true);
+		List<String> lastNames = new ArrayList<>();
+		List<Integer> numbers = new ArrayList<>();
+
+		OwnerPage page = pager.find("", OwnerCursor.FIRST);
+		assertThat(page.previous()).isNull();
+		assertThat(page.total()).isEqualTo(10);
+		assertThat(page.last().number()).isEqualTo(5);
+		while (true) {
+			page.owners().forEach((owner) -> lastNames.add(owner.lastName()));
+			numbers.add(page.number());
+			if (page.next() == null) {
+				break;
+			}
+			page = pager.find("", OwnerCursor.decode(page.next().cursor()));
+		}
+
+		assertThat(lastNames).isEqualTo(ALL);
+		assertThat(numbers).containsExactly(1, 2, 3, 4, 5);
+	}
+
+	@Test
+	void shouldWalkBackwardFromLastPage() {
+		OwnerPager pager = new OwnerPager(this.owners, (OwnerNameIndex) null, 2, 1, true);
+		List<String> lastNames = new ArrayList<>();
+		List<Integer> numbers = new ArrayList<>();
+
+		OwnerPage page = pager.find("", OwnerCursor.last(5));
+		assertThat(page.next()).isNull();
+		while (true) {
+			lastNames.addAll(0, page.owners().stream().map(OwnerSummary::lastName).toList());
+			numbers.add(0, page.number());
+			if (page.previous() == null) {
+				break;
+			}
+			page = pager.find("", OwnerCursor.decode(page.previous().cursor()));
+		}
+
+		assertThat(lastNames).isEqualTo(ALL);
+		assertThat(numbers).containsExactly(1, 2, 3, 4, 5);
+	}
+
+	@Test
+	void shouldLinkToSlidingWindowOfPages() {
+		OwnerPager pager = new OwnerPager(this.owners, (OwnerNameIndex) null, 2, 2, true);
+
+		OwnerPage page = pager.find("", new OwnerCursor(3, "Davis", 4, false));
+
+		assertThat(page.number()).isEqualTo(3);
+		assertThat(page.owners()).extracting(OwnerSummary::lastName).containsExactly("Escobito", "Estaban");
+		assertThat(page.pages()).extracting(OwnerPage.Link::number).containsExactly(1, 2, 3, 4, 5);
+		assertThat(OwnerCursor.decode(page.pages().get(0).cursor()).isFirst()).isTrue();
+		assertThat(pager.find("", OwnerCursor.decode(page.pages().get(1).cursor())).owners())
+			.extracting(OwnerSummary::lastName)
+			.containsExactly("Davis", "Davis");
+		assertThat(pager.find("", OwnerCursor.decode(page.pages().get(4).cursor())).owners())
+			.extracting(OwnerSummary::lastName)
+			.containsExactly("Rodriquez", "Schroeder");
+	}
+
+	@Test
+	void shouldStartOverAtFirstPageWhenNothingIsBefore() {
+		OwnerPager pager = new OwnerPager(this.owners, (OwnerNameIndex) null, 2, 1, true);
+
+		OwnerPage page = pager.find("", new OwnerCursor(2, "Coleman", 6, true));
+
+		assertThat(page.number()).isEqualTo(1);
+		assertThat(page.owners()).extracting(OwnerSummary::lastName).containsExactly("Black", "Coleman");
+	}
+
+	@Test
+	void shouldWalkForwardThroughAllPagesOfIndex() {
+		OwnerPager pager = new OwnerPager(this.owners, index(), 2, 1, true);
+		List<String> lastNames = new ArrayList<>();
+		List<Integer> numbers = new ArrayList<>();
+
+		OwnerPage page = pager.find("", OwnerCursor.FIRST);
+		assertThat(page.total()).isEqualTo(10);
+		assertThat(page.last().number()).isEqualTo(5);
+		while (true) {
+			page.owners().forEach((owner) -> lastNames.add(owner.lastName()));
+			numbers.add(page.number());
+			if (page.next() == null) {
+				break;
+			}
+			page = pager.find("", OwnerCursor.decode(page.next().cursor()));
+		}
+
+		assertThat(lastNames).isEqualTo(ALL);
+		assertThat(numbers).containsExactly(1, 2, 3, 4, 5);
+	}
+
+	@Test
+	void shouldNumberPagesExactlyFromIndex() {
+		OwnerPager pager = new OwnerPager(this.owners, index(), 2, 1, true);
+
+		OwnerPage page = pager.find("", new OwnerCursor(9, "Davis", 4, false));
+		assertThat(page.number()).isEqualTo(3);
+		assertThat(page.owners()).extracting(OwnerSummary::lastName).containsExactly("Escobito", "Estaban");
+		assertThat(page.pages()).extracting(OwnerPage.Link::number).containsExactly(2, 3, 4);
+
+		OwnerPage last = pager.find("", OwnerCursor.last(5));
+		assertThat(last.number()).isEqualTo(5);
+		assertThat(last.owners()).extracting(OwnerSummary::lastName).containsExactly("Rodriquez", "Schroeder");
+		assertThat(pager.find("", OwnerCursor.decode(last.previous().cursor())).owners())
+			.extracting(OwnerSummary::lastName)
+			.containsExactly("Franklin", "McTavish");
+	}
+
+	@Test
+	void shouldMatchPrefixIgnoringCaseFromIndex() {
+		OwnerPage page = new OwnerPager(this.owners, index(), 5, 2, true).find("es", OwnerCursor.FIRST);
+
+		assertThat(page.owners()).extracting(OwnerSummary::lastName).containsExactly("Escobito", "Estaban");
+		assertThat(page.total()).isEqualTo(2);
+		assertThat(new OwnerPager(this.owners, index(), 5, 2, true).find("Zz", OwnerCursor.FIRST).owners()).isEmpty();
+	}
+
+	@Test
+	void shouldMatchPrefixIgnoringCaseFromDatabase() {
+		OwnerPager pager = new OwnerPager(this.owners, (OwnerNameIndex) null, 1, 1, true);
+
+		OwnerPage page = pager.find("es", OwnerCursor.FIRST);
+		assertThat(page.owners()).extracting(OwnerSummary::lastName).containsExactly("Escobito");
+		assertThat(page.total()).isEqualTo(2);
+		OwnerPage next = pager.find("eS", OwnerCursor.decode(page.next().cursor()));
+		assertThat(next.owners()).extracting(OwnerSummary::lastName).containsExactly("Estaban");
+		assertThat(pager.find("ES", OwnerCursor.decode(next.previous().cursor())).owners())
+			.extracting(OwnerSummary::lastName)
+			.containsExactly("Escobito");
+	}
+
+	@Test
+	void shouldNotCountSinglePageOrWhenCountIsOff() {
+		OwnerPage single = new OwnerPager(this.owners, (OwnerNameIndex) null, 5, 2, true).find("Davis",
+				OwnerCursor.FIRST);
+		assertThat(single.owners()).hasSize(2);
+		assertThat(single.next()).isNull();
+		assertThat(single.total()).isEqualTo(2);
+
+		OwnerPage uncounted = new OwnerPager(this.owners, (OwnerNameIndex) null, 2, 1, false).find("",
+				OwnerCursor.FIRST);
+		assertThat(uncounted.total()).isNull();
+		assertThat(uncounted.last()).isNull();
+		assertThat(uncounted.next()).isNotNull();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void shouldLetFlagChooseBetweenDatabaseAndIndex() {
+		FeatureFlagShadowRunner shadowRunner = mock(FeatureFlagShadowRunner.class);
+		// the flag is disabled, the current path reads the database
+		given(shadowRunner.run(eq("owner_search_index"), any(), any()))
+			.willAnswer((invocation) -> ((Supplier<OwnerPage>) invocation.getArgument(1)).get());
+		OwnerPager pager = new OwnerPager(this.owners, index(), shadowRunner, 2, 1, true);
+
+		OwnerPage page = pager.find("Es", OwnerCursor.FIRST);
+
+		assertThat(page.owners()).extracting(OwnerSummary::lastName).containsExactly("Escobito", "Estaban");
+		verify(shadowRunner).run(eq("owner_search_index"), any(), any());
+	}
+
+	@Test
+	void shouldReadDatabaseWithoutFlagUntilIndexIsBuilt() {
+		FeatureFlagShadowRunner shadowRunner = mock(FeatureFlagShadowRunner.class);
+		OwnerPager pager = new OwnerPager(this.owners, new OwnerNameIndex(this.owners), shadowRunner, 2, 1, true);
+
+		assertThat(pager.find("Es", OwnerCursor.FIRST).owners()).hasSize(2);
+		verifyNoInteractions(shadowRunner);
+	}
+
+	private OwnerNameIndex index() {
+		OwnerNameIndex index = new OwnerNameIndex(this.owners);
+		index.rebuild();
+		return index;
+	}
+
+}
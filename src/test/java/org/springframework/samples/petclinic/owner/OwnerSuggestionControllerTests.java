@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagService;
+import org.springframework.test.context.aot.DisabledInAotMode;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for {@link OwnerSuggestionController}.
+ */
+@WebMvcTest(OwnerSuggestionController.class)
+@DisabledInNativeImage
+@DisabledInAotMode
+class OwnerSuggestionControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private OwnerSuggestions suggestions;
+
+	@MockitoBean
+	private FeatureFlagService featureFlagService;
+
+	@BeforeEach
+	void setup() {
+		given(featureFlagService.isEnabled("owner_search")).willReturn(true);
+	}
+
+	@Test
+	void shouldReturnSuggestionsAsJson() throws Exception {
+		given(suggestions.suggest("Fra", 5))
+			.willReturn(List.of(new OwnerSuggestion(1, "George Franklin", "Madison", "Leo")));
+
+		mockMvc.perform(get("/owners/suggestions").param("lastName", " Fra ").param("limit", "5"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(1)))
+			.andExpect(jsonPath("$[0].id").value(1))
+			.andExpect(jsonPath("$[0].name").value("George Franklin"))
+			.andExpect(jsonPath("$[0].city").value("Madison"))
+			.andExpect(jsonPath("$[0].pets").value("Leo"));
+	}
+
+	@Test
+	void shouldNotSuggestForBlankLastName() throws Exception {
+		mockMvc.perform(get("/owners/suggestions").param("lastName", " "))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(0)));
+
+		verify(suggestions, never()).suggest(anyString(), anyInt());
+	}
+
+	@Test
+	void shouldNotSuggestWhenOwnerSearchIsDisabled() throws Exception {
+		given(featureFlagService.isEnabled("owner_search")).willReturn(false);
+
+		mockMvc.perform(get("/owners/suggestions").param("lastName", "Fra"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(0)));
+
+		verify(suggestions, never()).suggest(anyString(), anyInt());
+	}
+
+}
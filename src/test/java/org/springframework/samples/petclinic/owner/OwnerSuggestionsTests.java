@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.featureflag.FeatureFlagKillSwitch;
+
+/**
+ * Test class for {@link OwnerSuggestions}.
+ */
+class OwnerSuggestionsTests {
+
+	private OwnerRepository owners;
+
+	private OwnerNameIndex index;
+
+	private FeatureFlagKillSwitch killSwitch;
+
+	private Clock clock;
+
+	private OwnerSuggestions suggestions;
+
+	@BeforeEach
+	void setup() {
+		owners = mock(OwnerRepository.class);
+		given(owners.findAllKeys())
+			.willReturn(List.of(new OwnerKey(2, "Davis"), new OwnerKey(4, "Davis"), new OwnerKey(7, "Black")));
+		given(owners.findSummariesInOrder(any())).willAnswer((invocation) -> {
+			List<Integer> ids = invocation.getArgument(0);
+			return ids.stream().map(OwnerSuggestionsTests::summary).toList();
+		});
+		index = new OwnerNameIndex(owners);
+		killSwitch = mock(FeatureFlagKillSwitch.class);
+		given(killSwitch.measure(eq("owner_search"), any()))
+			.willAnswer((invocation) -> ((Supplier<?>) invocation.getArgument(1)).get());
+		clock = mock(Clock.class);
+		suggestions = new OwnerSuggestions(owners, index, killSwitch, 10, 2, Duration.ofMinutes(1), clock);
+	}
+
+	@Test
+	void shouldSuggestOwnersFromIndex() {
+		index.rebuild();
+
+		List<OwnerSuggestion> found = suggestions.suggest("da", 10);
+
+		assertThat(found).containsExactly(new OwnerSuggestion(2, "Owner 2", "Madison", "Pet 2"),
+				new OwnerSuggestion(4, "Owner 4", "Madison", "Pet 4"));
+		assertThat(suggestions.suggest("da", 1)).extracting(OwnerSuggestion::id).containsExactly(2);
+		verify(owners).findSummariesInOrder(List.of(2, 4));
+		// only the read is measured against the budget of the owner search, not cache
+		// hits
+		verify(killSwitch).measure(eq("owner_search"), any());
+	}
+
+	@Test
+	void shouldReadFromDatabaseWithoutIndex() {
+		given(owners.findSummariesAfter("da%", "", 0, PageRequest.ofSize(10))).willReturn(List.of(summary(2)));
+
+		assertThat(suggestions.suggest("Da", 10)).extracting(OwnerSuggestion::id).containsExactly(2);
+		// the prefix is cached in lower case, another spelling gets the same owners
+		assertThat(suggestions.suggest("dA", 10)).extracting(OwnerSuggestion::id).containsExactly(2);
+		verify(owners).findSummariesAfter("da%", "", 0, PageRequest.ofSize(10));
+		verify(owners, never()).findSummariesInOrder(any());
+	}
+
+	@Test
+	void shouldServeRepeatedPrefixesFromCache() {
+		index.rebuild();
+
+		suggestions.suggest("Dav", 10);
+		suggestions.suggest("dav", 5);
+		suggestions.suggest("b", 10);
+		suggestions.suggest("c", 10);
+		suggestions.suggest("dav", 10);
+
+		// the least recently used prefix is evicted from the cache of two
+		verify(owners, times(2)).findSummariesInOrder(List.of(2, 4));
+	}
+
+	@Test
+	void shouldDropCachedSuggestionsWhenOwnerIsSavedOrExpired() {
+		index.rebuild();
+		suggestions.suggest("dav", 10);
+
+		Owner renamed = new Owner();
+		renamed.setId(7);
+		renamed.setLastName("Davison");
+		index.saved(renamed);
+		assertThat(suggestions.suggest("dav", 10)).extracting(OwnerSuggestion::id).containsExactly(2, 4, 7);
+
+		given(clock.millis()).willReturn(Duration.ofMinutes(2).toMillis());
+		suggestions.suggest("dav", 10);
+		verify(owners, times(2)).findSummariesInOrder(List.of(2, 4, 7));
+	}
+
+	private static OwnerSummary summary(Integer id) {
+		return new OwnerSummary(id, "Owner", String.valueOf(id), "Main St.", "Madison", "6085550000", "Pet " + id);
+	}
+
+}
@@ -71,7 +71,7 @@ class PetControllerWithFeatureFlagTests {
 		petType.setId(1);
 		petType.setName("dog");
 
-		given(owners.findById(1)).willReturn(Optional.of(testOwner));
+		given(owners.findWithPetsById(1)).willReturn(Optional.of(testOwner));
 		given(types.findPetTypes()).willReturn(List.of(petType));
 	}
 
@@ -17,20 +17,25 @@
 package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.owner.PetTypeRepository;
@@ -104,6 +109,51 @@ class ClinicServiceTests {
 		assertThat(owner.getPets().get(0).getType().getName()).isEqualTo("cat");
 	}
 
+	@Test
+	void shouldFindOwnerSummariesWithPetNames() {
+		List<OwnerSummary> owners = this.owners.findSummariesAfter("davis%", "", 0, PageRequest.ofSize(5));
+		assertThat(owners).extracting(OwnerSummary::firstName, OwnerSummary::pets)
+			.containsExactly(tuple("Betty", "Basil"), tuple("Harold", "Iggy"));
+
+		owners = this.owners.findSummariesAfter("coleman%", "", 0, PageRequest.ofSize(5));
+		assertThat(owners).singleElement().extracting(OwnerSummary::pets).isEqualTo("Max, Samantha");
+
+		assertThat(this.owners.findSummariesAfter("Dav!_s%", "", 0, PageRequest.ofSize(5))).isEmpty();
+	}
+
+	@Test
+	void shouldSeekOwnerSummariesByLastNameAndId() {
+		List<OwnerSummary> after = this.owners.findSummariesAfter("%", "davis", 2, PageRequest.ofSize(2));
+		assertThat(after).extracting(OwnerSummary::lastName, OwnerSummary::id)
+			.containsExactly(tuple("Davis", 4), tuple("Escobito", 8));
+
+		List<OwnerSummary> before = this.owners.findSummariesBefore("%", "davis", 4, PageRequest.ofSize(2));
+		assertThat(before).extracting(OwnerSummary::lastName, OwnerSummary::id)
+			.containsExactly(tuple("Davis", 2), tuple("Coleman", 6));
+
+		assertThat(this.owners.findLastSummaries("%", PageRequest.ofSize(1))).extracting(OwnerSummary::lastName)
+			.containsExactly("Schroeder");
+		assertThat(this.owners.countByLastNameLike("es%")).isEqualTo(2);
+	}
+
+	@Test
+	void shouldLoadPetsWithoutVisitsForPetForms() {
+		Owner owner = this.owners.findWithPetsById(6).orElseThrow();
+
+		assertThat(Hibernate.isInitialized(owner.getPets())).isTrue();
+		assertThat(owner.getPets()).hasSize(2)
+			.allSatisfy((pet) -> assertThat(Hibernate.isInitialized(pet.getVisits())).isFalse());
+	}
+
+	@Test
+	void shouldLoadPetsAndVisitsForOwnerDetails() {
+		Owner owner = this.owners.findWithPetsAndVisitsById(6).orElseThrow();
+
+		assertThat(owner.getPets()).hasSize(2)
+			.allSatisfy((pet) -> assertThat(Hibernate.isInitialized(pet.getVisits())).isTrue());
+		assertThat(owner.getPet("Samantha").getVisits()).hasSize(2);
+	}
+
 	@Test
 	@Transactional
 	void shouldInsertOwner() {